@@ -0,0 +1,102 @@
+package com.trimly.security;
+
+import com.trimly.entity.User;
+import com.trimly.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through JwtAuthFilter: a token whose claims are
+ * already in JwtService's verified cache, against a signature check on every
+ * request (cache disabled). Account state and revocation are in-memory stubs,
+ * so the difference is the verification itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtAuthFilter cached;
+    private JwtAuthFilter cold;
+    private MockHttpServletRequest cachedRequest;
+    private MockHttpServletRequest coldRequest;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        UserStateCache.UserState state = new UserStateCache.UserState(true, Role.BARBER, null,
+            "Amit", "amit@trimly.in", "9876543210");
+        UserStateCache userStates = new UserStateCache(null, null) {
+            @Override public Optional<UserState> get(Long userId) { return Optional.of(state); }
+        };
+        TokenRevocationService revocations = new TokenRevocationService(null, null, null, null);
+
+        User user = User.builder().fullName("Amit").email("amit@trimly.in").phone("9876543210").role(Role.BARBER).build();
+        user.setId(42L);
+
+        JwtService withCache = jwtService(10_000);
+        JwtService noCache   = jwtService(0);
+        cached = new JwtAuthFilter(withCache, userStates, revocations);
+        cold   = new JwtAuthFilter(noCache, userStates, revocations);
+        cachedRequest = request(withCache.generateAccessToken(user, 7L));
+        coldRequest   = request(noCache.generateAccessToken(user, 7L));
+    }
+
+    @Benchmark
+    public Authentication cachedTokenHit() throws Exception {
+        return authenticate(cached, cachedRequest);
+    }
+
+    @Benchmark
+    public Authentication coldVerify() throws Exception {
+        return authenticate(cold, coldRequest);
+    }
+
+    private Authentication authenticate(JwtAuthFilter filter, MockHttpServletRequest request) throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilterInternal(request, response, chain);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) throw new IllegalStateException("request was not authenticated");
+        return auth;
+    }
+
+    private static JwtService jwtService(long cacheSize) {
+        JwtService s = new JwtService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(s, "secret", SECRET);
+        ReflectionTestUtils.setField(s, "accessExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(s, "verifiedCacheSize", cacheSize);
+        ReflectionTestUtils.setField(s, "verifiedCacheTtlSeconds", 3_600L);
+        s.init();
+        return s;
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest r = new MockHttpServletRequest("GET", "/api/barber/bookings");
+        r.addHeader("Authorization", "Bearer " + token);
+        return r;
+    }
+}
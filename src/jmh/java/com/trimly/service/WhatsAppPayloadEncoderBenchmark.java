@@ -0,0 +1,91 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimly.repository.WhatsAppOutboxRepository.Claimed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one stored outbox row into a Graph API body, per template.
+ * Run with {@code -prof gc} (the jmh profile does) and read
+ * gc.alloc.rate.norm for bytes allocated per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WhatsAppPayloadEncoderBenchmark {
+
+    private WhatsAppPayloadEncoder encoder;
+
+    private Claimed bookingRequest, bookingConfirmed, bookingRejected, bookingCancelled, bookingCompleted,
+                    rescheduleRequest, rescheduleResponse, waitlistPromoted, otpLogin, passwordReset,
+                    appointmentReminder, dailyDigest;
+
+    @Setup
+    public void setUp() {
+        encoder = new WhatsAppPayloadEncoder(new ObjectMapper());
+        ReflectionTestUtils.setField(encoder, "baseUrl", "https://graph.facebook.com/v19.0");
+        ReflectionTestUtils.setField(encoder, "phoneNumberId", "1234567890");
+        ReflectionTestUtils.setField(encoder, "accessToken", "EAAG-benchmark-token");
+        ReflectionTestUtils.setField(encoder, "language", "en_IN");
+        encoder.init();
+
+        bookingRequest      = row("trimly_booking_request",
+            "[\"Ravi Kumar\",\"Haircut, Beard Trim\",\"12 Oct 2026\",\"10:30 AM\",\"#TRM100042\"]");
+        bookingConfirmed    = row("trimly_booking_confirmed",
+            "[\"Ravi Kumar\",\"Sharp Cuts\",\"Haircut, Beard Trim\",\"12 Oct 2026\",\"10:30 AM\"]");
+        bookingRejected     = row("trimly_booking_rejected",
+            "[\"Ravi Kumar\",\"Sharp Cuts\",\"Haircut, Beard Trim\",\"Fully booked that afternoon\"]");
+        bookingCancelled    = row("trimly_booking_cancelled",
+            "[\"Ravi Kumar\",\"Sharp Cuts\",\"12 Oct 2026\",\"10:30 AM\"]");
+        bookingCompleted    = row("trimly_booking_completed",
+            "[\"Ravi Kumar\",\"Sharp Cuts\",\"₹350.00\"]");
+        rescheduleRequest   = row("trimly_reschedule_request",
+            "[\"Ravi Kumar\",\"Sharp Cuts\",\"10:30 AM\",\"13 Oct 2026\",\"11:00 AM\",\"Barber running late\"]");
+        rescheduleResponse  = row("trimly_reschedule_response",
+            "[\"Sharp Cuts\",\"Ravi Kumar\",\"11:00 AM\",\"ACCEPTED\"]");
+        waitlistPromoted    = row("trimly_waitlist_promoted",
+            "[\"Ravi Kumar\",\"Sharp Cuts\",\"12 Oct 2026\",\"10:30 AM\"]");
+        otpLogin            = row("trimly_otp_login", "[\"482913\",\"5\"]");
+        passwordReset       = row("trimly_password_reset",
+            "[\"Amit\",\"https://trimly.in/reset-password?token=3f2b9c1e-7a4d-4e8f-9b21-5c6d7e8f9a0b\",\"1\"]");
+        appointmentReminder = row("trimly_appointment_reminder",
+            "[\"Ravi Kumar\",\"Sharp Cuts\",\"Haircut, Beard Trim\",\"10:30 AM\"]");
+        dailyDigest         = row("trimly_daily_digest",
+            "[\"Sharp Cuts\",\"13 Oct 2026\",\"6\",\"9:30 AM Ravi, 10:00 AM Amit, 10:30 AM Suresh, "
+                + "11:00 AM Karan, 2:00 PM Vikram, 4:30 PM Arjun\"]");
+    }
+
+    @Benchmark public byte[] bookingRequest()      throws IOException { return encoder.encode(bookingRequest); }
+    @Benchmark public byte[] bookingConfirmed()    throws IOException { return encoder.encode(bookingConfirmed); }
+    @Benchmark public byte[] bookingRejected()     throws IOException { return encoder.encode(bookingRejected); }
+    @Benchmark public byte[] bookingCancelled()    throws IOException { return encoder.encode(bookingCancelled); }
+    @Benchmark public byte[] bookingCompleted()    throws IOException { return encoder.encode(bookingCompleted); }
+    @Benchmark public byte[] rescheduleRequest()   throws IOException { return encoder.encode(rescheduleRequest); }
+    @Benchmark public byte[] rescheduleResponse()  throws IOException { return encoder.encode(rescheduleResponse); }
+    @Benchmark public byte[] waitlistPromoted()    throws IOException { return encoder.encode(waitlistPromoted); }
+    @Benchmark public byte[] otpLogin()            throws IOException { return encoder.encode(otpLogin); }
+    @Benchmark public byte[] passwordReset()       throws IOException { return encoder.encode(passwordReset); }
+    @Benchmark public byte[] appointmentReminder() throws IOException { return encoder.encode(appointmentReminder); }
+    @Benchmark public byte[] dailyDigest()         throws IOException { return encoder.encode(dailyDigest); }
+
+    private static Claimed row(String template, String paramsJson) {
+        return new Claimed(1L, "+91 98765 43210", template, paramsJson, 0, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,147 @@
+package com.trimly.config;
+
+import com.trimly.entity.BarberService;
+import com.trimly.repository.BarberServiceRepository;
+import com.trimly.repository.BookingItemJdbcRepository;
+import com.trimly.repository.BookingItemJdbcRepository.Row;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One-off migration: fills booking_items for bookings created before line items
+ * existed, by parsing the legacy serviceIds CSV.
+ *
+ * Runs in the background after startup, walking bookings in primary-key chunks
+ * (one JDBC batch per chunk) with a short pause in between. Safe to re-run —
+ * bookings that already have items are skipped, so it becomes a no-op once done.
+ *
+ * Durations come from the current service rows; a service deleted since falls
+ * back to its name in servicesSnapshot. Prices are the booking's stored
+ * total_amount split across its items in proportion to today's prices (evenly
+ * when none are known), with the rounding remainder on the last item — so
+ * per-service revenue still adds up to what the customer was charged.
+ */
+@Component @RequiredArgsConstructor @Slf4j
+public class BookingItemBackfill {
+
+    private final JdbcTemplate              jdbc;
+    private final BookingItemJdbcRepository itemJdbc;
+    private final BarberServiceRepository   svcRepo;
+    private final PlatformTransactionManager txManager;
+
+    @Value("${app.booking.items-backfill.enabled:true}")   private boolean enabled;
+    @Value("${app.booking.items-backfill.chunk-size:500}") private int chunkSize;
+    @Value("${app.booking.items-backfill.pause-ms:200}")   private long pauseMs;
+
+    private record Legacy(long id, long shopId, String serviceIds, String snapshot, BigDecimal total) {}
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        if (!enabled) return;
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<Legacy> chunk = jdbc.query("""
+                SELECT b.id, b.shop_id, b.service_ids, b.services_snapshot, b.total_amount
+                FROM bookings b
+                WHERE b.id > ?
+                  AND b.service_ids IS NOT NULL AND b.service_ids <> ''
+                  AND NOT EXISTS (SELECT 1 FROM booking_items i WHERE i.booking_id = b.id)
+                ORDER BY b.id
+                LIMIT ?
+                """,
+                (rs, n) -> new Legacy(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4),
+                    rs.getBigDecimal(5)),
+                lastId, chunkSize);
+            if (chunk.isEmpty()) break;
+
+            List<Row> rows = toRows(chunk);
+            tx.executeWithoutResult(s -> itemJdbc.insertAll(rows));
+            total += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).id();
+            if (chunk.size() < chunkSize) break;
+            pause();
+        }
+        if (total > 0) log.info("booking_items backfill: {} booking(s) migrated", total);
+    }
+
+    private List<Row> toRows(List<Legacy> chunk) {
+        Set<Long> svcIds = new HashSet<>();
+        Map<Long, List<Long>> parsed = new HashMap<>();
+        for (Legacy l : chunk) {
+            List<Long> ids = Arrays.stream(l.serviceIds().split(","))
+                .map(String::trim).filter(t -> t.matches("\\d+"))
+                .map(Long::valueOf).toList();
+            parsed.put(l.id(), ids);
+            svcIds.addAll(ids);
+        }
+        Map<Long, BarberService> svcs = svcRepo.findAllById(svcIds).stream()
+            .collect(Collectors.toMap(BarberService::getId, Function.identity()));
+
+        List<Row> rows = new ArrayList<>();
+        for (Legacy l : chunk) {
+            List<Long> ids = parsed.get(l.id());
+            if (ids.isEmpty()) continue;
+            String[] names = l.snapshot() != null ? l.snapshot().split(", ") : new String[0];
+            List<BigDecimal> prices = split(l.total(), ids.stream()
+                .map(id -> svcs.containsKey(id) ? svcs.get(id).getPrice() : null).toList());
+            for (int i = 0; i < ids.size(); i++) {
+                BarberService sv = svcs.get(ids.get(i));
+                if (sv != null) {
+                    rows.add(new Row(l.id(), l.shopId(), sv.getId(), sv.getServiceName(),
+                        prices.get(i), sv.getDurationMinutes()));
+                } else {
+                    String name = i < names.length ? names[i] : "Service #" + ids.get(i);
+                    rows.add(new Row(l.id(), l.shopId(), ids.get(i), name, prices.get(i), 0));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /** {@code total} in shares weighted by {@code weights} (null = unknown), summing exactly to it */
+    static List<BigDecimal> split(BigDecimal total, List<BigDecimal> weights) {
+        int n = weights.size();
+        BigDecimal amount = total != null ? total : BigDecimal.ZERO;
+        List<BigDecimal> w = weights.stream()
+            .map(p -> p != null && p.signum() > 0 ? p : BigDecimal.ZERO).toList();
+        BigDecimal sum = w.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (sum.signum() == 0) {
+            w = Collections.nCopies(n, BigDecimal.ONE);   // nothing known — split evenly
+            sum = BigDecimal.valueOf(n);
+        }
+        List<BigDecimal> out = new ArrayList<>(n);
+        BigDecimal left = amount;
+        for (int i = 0; i < n - 1; i++) {
+            BigDecimal share = amount.multiply(w.get(i)).divide(sum, 2, RoundingMode.DOWN);   // never over, so the remainder is >= 0
+            out.add(share);
+            left = left.subtract(share);
+        }
+        out.add(left.setScale(2, RoundingMode.HALF_UP));
+        return out;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
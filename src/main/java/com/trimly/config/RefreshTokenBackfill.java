@@ -0,0 +1,61 @@
+package com.trimly.config;
+
+import com.trimly.service.RefreshTokenStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off migration: replaces refresh tokens stored in the clear (the UUIDs
+ * issued before digests) with their SHA-256 digest, so the table never holds
+ * a usable token.
+ *
+ * Runs in the background after startup, walking refresh_tokens in primary-key
+ * chunks (one JDBC batch per chunk). A digest is always 43 characters, so rows
+ * of any other length are the legacy ones; once they are gone it is a no-op.
+ * Until then RefreshTokenStore still finds a UUID-shaped token by its raw value.
+ */
+@Component @RequiredArgsConstructor @Slf4j
+public class RefreshTokenBackfill {
+
+    private final JdbcTemplate jdbc;
+
+    @Value("${app.jwt.refresh-backfill.enabled:true}")   private boolean enabled;
+    @Value("${app.jwt.refresh-backfill.chunk-size:500}") private int chunkSize;
+
+    private record Legacy(long id, String token) {}
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        if (!enabled) return;
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<Legacy> chunk = jdbc.query("""
+                SELECT id, token FROM refresh_tokens
+                WHERE id > ? AND CHAR_LENGTH(token) <> 43
+                ORDER BY id
+                LIMIT ?
+                """,
+                (rs, n) -> new Legacy(rs.getLong(1), rs.getString(2)),
+                lastId, chunkSize);
+            if (chunk.isEmpty()) break;
+
+            // Matching on the old value too: a refresh may have rewritten the row meanwhile
+            jdbc.batchUpdate("UPDATE refresh_tokens SET token = ? WHERE id = ? AND token = ?",
+                chunk.stream().map(l -> new Object[]{ RefreshTokenStore.digest(l.token()), l.id(), l.token() }).toList());
+            total += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).id();
+            if (chunk.size() < chunkSize) break;
+        }
+        if (total > 0) log.info("refresh_tokens backfill: {} legacy token(s) digested", total);
+    }
+}
@@ -1,7 +1,11 @@
 package com.trimly.config;
 
+import com.trimly.entity.User;
 import com.trimly.repository.UserRepository;
+import com.trimly.security.BoundedPasswordEncoder;
 import com.trimly.security.JwtAuthFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -15,9 +19,9 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -36,10 +40,17 @@ public class SecurityConfig {
 
     private final UserRepository userRepository;
     private final JwtAuthFilter jwtAuthFilter;
+    private final MeterRegistry meters;
 
     @Value("${app.cors.allowed-origins}")
     private String allowedOrigins;
 
+    @Value("${app.security.bcrypt.strength:12}")          private int     bcryptStrength;
+    @Value("${app.security.bcrypt.threads:0}")            private int     bcryptThreads;   // 0 = one per CPU
+    @Value("${app.security.bcrypt.queue-capacity:64}")    private int     bcryptQueue;
+    @Value("${app.security.bcrypt.timeout-ms:5000}")      private long    bcryptTimeoutMs;
+    @Value("${app.security.bcrypt.rehash-on-login:true}") private boolean rehashOnLogin;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -47,6 +58,9 @@ public class SecurityConfig {
             .cors(c -> c.configurationSource(corsSource()))
             .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(a -> a
+                // Async re-dispatch of streamed exports (StreamingResponseBody) and SSE, and the error
+                // dispatch if a stream fails — the original request was already authorised
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 // Public — no token needed
                 .requestMatchers("/api/auth/otp/send").permitAll()
                 .requestMatchers("/api/auth/otp/verify").permitAll()
@@ -138,9 +152,20 @@ public class SecurityConfig {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService());
         provider.setPasswordEncoder(passwordEncoder());
+        if (rehashOnLogin) provider.setUserDetailsPasswordService(passwordUpgrader());
         return provider;
     }
 
+    /** Called after a successful login whose stored hash has a different cost factor */
+    private UserDetailsPasswordService passwordUpgrader() {
+        return (user, newHash) -> {
+            User u = (User) user;
+            userRepository.updatePassword(u.getId(), newHash);
+            u.setPassword(newHash);
+            return u;
+        };
+    }
+
     @Bean
     public AuthenticationManager authManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
@@ -148,6 +173,7 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+        int threads = bcryptThreads > 0 ? bcryptThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(bcryptStrength, threads, bcryptQueue, bcryptTimeoutMs, meters);
     }
 }
@@ -1,13 +1,57 @@
 package com.trimly.config;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebClientConfig {
+
+    @Value("${app.whatsapp.http.connect-timeout-ms:3000}")      private int  connectTimeoutMs;
+    @Value("${app.whatsapp.http.read-timeout-ms:10000}")        private long readTimeoutMs;
+    @Value("${app.whatsapp.http.max-connections:32}")           private int  maxConnections;
+    @Value("${app.whatsapp.http.pending-acquire-max:256}")      private int  pendingAcquireMax;
+    @Value("${app.whatsapp.http.pending-acquire-timeout-ms:5000}") private long pendingAcquireTimeoutMs;
+    @Value("${app.whatsapp.http.max-idle-seconds:30}")          private long maxIdleSeconds;
+
     @Bean
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
+
+    /**
+     * Graph API client: its own bounded pool and explicit timeouts, so a Meta
+     * slowdown queues (or fails fast) here instead of piling up sockets and
+     * buffers without limit.
+     */
+    @Bean
+    public WebClient whatsAppWebClient(WebClient.Builder builder) {
+        ConnectionProvider pool = ConnectionProvider.builder("whatsapp")
+            .maxConnections(maxConnections)
+            .pendingAcquireMaxCount(pendingAcquireMax)
+            .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+            .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+            .evictInBackground(Duration.ofSeconds(maxIdleSeconds))
+            .metrics(true)
+            .build();
+        HttpClient http = HttpClient.create(pool)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .responseTimeout(Duration.ofMillis(readTimeoutMs))
+            .doOnConnected(c -> c
+                .addHandlerLast(new ReadTimeoutHandler(readTimeoutMs, TimeUnit.MILLISECONDS))
+                .addHandlerLast(new WriteTimeoutHandler(readTimeoutMs, TimeUnit.MILLISECONDS)));
+        return builder.clone()
+            .clientConnector(new ReactorClientHttpConnector(http))
+            .build();
+    }
 }
@@ -3,13 +3,19 @@ package com.trimly.controller;
 import com.trimly.dto.*;
 import com.trimly.enums.BookingStatus;
 import com.trimly.enums.ShopStatus;
+import com.trimly.service.BookingEventHub;
+import com.trimly.service.BookingExportService;
 import com.trimly.service.BookingService;
 import com.trimly.service.ShopService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Map;
 
 @RestController
@@ -19,6 +25,8 @@ public class AdminController {
 
     private final ShopService    shopService;
     private final BookingService bookingService;
+    private final BookingExportService exportService;
+    private final BookingEventHub eventHub;
 
     @GetMapping("/stats")
     public ResponseEntity<ApiResponse<DashboardStats>> stats() {
@@ -63,4 +71,25 @@ public class AdminController {
             @RequestParam(required = false) BookingStatus status) {
         return ResponseEntity.ok(ApiResponse.ok(bookingService.getAllAdmin(status)));
     }
+
+    /** Stream all bookings as CSV (default) or NDJSON — constant memory at any size */
+    @GetMapping("/bookings/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) Long shopId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) BookingStatus status,
+            @RequestParam(defaultValue = "CSV") BookingExportService.Format format) {
+        return BarberController.exportResponse(exportService.export(shopId,
+            from != null ? LocalDate.parse(from) : null,
+            to   != null ? LocalDate.parse(to)   : null,
+            status, format), format);
+    }
+
+    /** Live booking feed across all shops (Server-Sent Events) */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return eventHub.subscribe(BookingEventHub.ADMIN_TOPIC, lastEventId);
+    }
 }
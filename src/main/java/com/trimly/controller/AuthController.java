@@ -1,7 +1,8 @@
 package com.trimly.controller;
 
 import com.trimly.dto.*;
-import com.trimly.entity.User;
+import com.trimly.security.AuthUser;
+import com.trimly.security.RateLimited;
 import com.trimly.service.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -19,6 +20,8 @@ public class AuthController {
 
     /** Step 1 — customer enters phone, OTP sent via WhatsApp */
     @PostMapping("/otp/send")
+    @RateLimited(name = "otp-send-phone", by = RateLimited.By.ARG, key = "#req.phone", capacity = 3, periodSeconds = 600)
+    @RateLimited(name = "otp-send-ip", capacity = 20, periodSeconds = 600)
     public ResponseEntity<ApiResponse<Void>> sendOtp(
             @Valid @RequestBody SendOtpRequest req) {
         authService.sendCustomerOtp(req.getPhone());
@@ -31,6 +34,8 @@ public class AuthController {
      * until explicit logout — no re-OTP needed.
      */
     @PostMapping("/otp/verify")
+    @RateLimited(name = "otp-verify-phone", by = RateLimited.By.ARG, key = "#req.phone", capacity = 10, periodSeconds = 600)
+    @RateLimited(name = "otp-verify-ip", capacity = 30, periodSeconds = 600)
     public ResponseEntity<ApiResponse<AuthResponse>> verifyOtp(
             @Valid @RequestBody VerifyOtpRequest req,
             HttpServletRequest http) {
@@ -40,6 +45,8 @@ public class AuthController {
 
     /** Barber / Admin email + password login */
     @PostMapping("/login")
+    @RateLimited(name = "login-email", by = RateLimited.By.ARG, key = "#req.email", capacity = 10, periodSeconds = 900)
+    @RateLimited(name = "login-ip", capacity = 30, periodSeconds = 900)
     public ResponseEntity<ApiResponse<AuthResponse>> login(
             @Valid @RequestBody LoginRequest req,
             HttpServletRequest http) {
@@ -75,26 +82,22 @@ public class AuthController {
      */
     @PostMapping("/logout")
     public ResponseEntity<ApiResponse<Void>> logout(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @RequestBody(required = false) LogoutRequest req) {
-        authService.logout(user.getId(), req);
+        authService.logout(user.id(), user.tokenId(), user.tokenExpiresAt(), req);
         return ResponseEntity.ok(ApiResponse.ok("Logged out successfully", null));
     }
 
     /** Get current authenticated user info */
     @GetMapping("/me")
-    public ResponseEntity<ApiResponse<UserInfo>> me(@AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(ApiResponse.ok(UserInfo.builder()
-            .id(user.getId())
-            .fullName(user.getFullName())
-            .email(user.getEmail())
-            .phone(user.getPhone())
-            .role(user.getRole())
-            .build()));
+    public ResponseEntity<ApiResponse<UserInfo>> me(@AuthenticationPrincipal AuthUser user) {
+        return ResponseEntity.ok(ApiResponse.ok(authService.me(user.id())));
     }
 
     /** Barber forgot password — sends reset link via WhatsApp */
     @PostMapping("/forgot-password")
+    @RateLimited(name = "forgot-password-email", by = RateLimited.By.ARG, key = "#req.email", capacity = 3, periodSeconds = 3600)
+    @RateLimited(name = "forgot-password-ip", capacity = 10, periodSeconds = 3600)
     public ResponseEntity<ApiResponse<Void>> forgotPassword(
             @Valid @RequestBody ForgotPasswordRequest req) {
         authService.forgotPassword(req);
@@ -113,9 +116,9 @@ public class AuthController {
 
     @PatchMapping("/profile")
     public ResponseEntity<ApiResponse<UserInfo>> updateProfile(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @RequestBody UpdateProfileRequest req) {
-        return ResponseEntity.ok(ApiResponse.ok(authService.updateProfile(user.getId(), req)));
+        return ResponseEntity.ok(ApiResponse.ok(authService.updateProfile(user.id(), req)));
     }
 
     private String deviceInfo(HttpServletRequest r) {
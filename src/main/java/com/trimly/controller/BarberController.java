@@ -1,15 +1,22 @@
 package com.trimly.controller;
 
 import com.trimly.dto.*;
-import com.trimly.entity.User;
 import com.trimly.enums.BookingStatus;
+import com.trimly.security.AuthUser;
+import com.trimly.service.BookingEventHub;
+import com.trimly.service.BookingExportService;
 import com.trimly.service.BookingService;
+import com.trimly.service.IdempotencyService;
 import com.trimly.service.ShopService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -21,114 +28,240 @@ public class BarberController {
 
     private final ShopService    shopService;
     private final BookingService bookingService;
+    private final IdempotencyService idempotency;
+    private final BookingExportService exportService;
+    private final BookingEventHub eventHub;
 
     // ── Shop management ──────────────────────────────────────────────────
 
     @GetMapping("/shop")
     public ResponseEntity<ApiResponse<ShopResponse>> myShop(
-            @AuthenticationPrincipal User user) {
+            @AuthenticationPrincipal AuthUser user) {
         return ResponseEntity.ok(ApiResponse.ok(
-            shopService.getBarberShop(user.getId())));
+            shopService.getBarberShop(user.id())));
     }
 
     @PatchMapping("/shop")
     public ResponseEntity<ApiResponse<ShopResponse>> updateShop(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @RequestBody ShopUpdateRequest req) {
         return ResponseEntity.ok(ApiResponse.ok("Shop updated",
-            shopService.updateShop(user.getId(), req)));
+            shopService.updateShop(user.id(), req)));
     }
 
     // ── Service management ───────────────────────────────────────────────
 
     @PostMapping("/services")
     public ResponseEntity<ApiResponse<ServiceResponse>> addService(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @Valid @RequestBody ServiceRequest req) {
         return ResponseEntity.ok(ApiResponse.ok("Service added",
-            shopService.addService(user.getId(), req)));
+            shopService.addService(user.id(), req)));
     }
 
     @PutMapping("/services/{id}")
     public ResponseEntity<ApiResponse<ServiceResponse>> updateService(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @PathVariable Long id,
             @Valid @RequestBody ServiceRequest req) {
         return ResponseEntity.ok(ApiResponse.ok("Service updated",
-            shopService.updateService(user.getId(), id, req)));
+            shopService.updateService(user.id(), id, req)));
     }
 
     @PatchMapping("/services/{id}/toggle")
     public ResponseEntity<ApiResponse<ServiceResponse>> toggleService(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @PathVariable Long id) {
         return ResponseEntity.ok(ApiResponse.ok(
-            shopService.toggleService(user.getId(), id)));
+            shopService.toggleService(user.id(), id)));
     }
 
     @DeleteMapping("/services/{id}")
     public ResponseEntity<ApiResponse<Void>> deleteService(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @PathVariable Long id) {
-        shopService.deleteService(user.getId(), id);
+        shopService.deleteService(user.id(), id);
         return ResponseEntity.ok(ApiResponse.ok("Service deleted", null));
     }
 
     // ── Booking management ───────────────────────────────────────────────
 
+    /** archived=true also returns closed bookings older than the retention horizon */
     @GetMapping("/bookings")
     public ResponseEntity<ApiResponse<?>> bookings(
-            @AuthenticationPrincipal User user,
-            @RequestParam(required = false) BookingStatus status) {
+            @AuthenticationPrincipal AuthUser user,
+            @RequestParam(required = false) BookingStatus status,
+            @RequestParam(defaultValue = "false") boolean archived) {
         return ResponseEntity.ok(ApiResponse.ok(
-            bookingService.getBarberBookings(user.getId(), status)));
+            bookingService.getBarberBookings(user.id(), status, archived)));
+    }
+
+    /**
+     * Delta sync — bookings changed and removed since the opaque cursor.
+     * Omit since for the first call; repeat while hasMore is true.
+     */
+    @GetMapping("/bookings/changes")
+    public ResponseEntity<ApiResponse<BookingChangesResponse>> bookingChanges(
+            @AuthenticationPrincipal AuthUser user,
+            @RequestParam(required = false) String since) {
+        return ResponseEntity.ok(ApiResponse.ok(
+            bookingService.getBarberChanges(user.id(), since)));
+    }
+
+    /**
+     * Stream the shop's bookings as CSV (default) or NDJSON.
+     * Optional filters: from/to (YYYY-MM-DD, on booking date) and status.
+     */
+    @GetMapping("/bookings/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @AuthenticationPrincipal AuthUser user,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) BookingStatus status,
+            @RequestParam(defaultValue = "CSV") BookingExportService.Format format) {
+        StreamingResponseBody body = exportService.exportForBarber(user.id(),
+            from != null ? LocalDate.parse(from) : null,
+            to   != null ? LocalDate.parse(to)   : null,
+            status, format);
+        return exportResponse(body, format);
+    }
+
+    static ResponseEntity<StreamingResponseBody> exportResponse(
+            StreamingResponseBody body, BookingExportService.Format format) {
+        boolean csv = format == BookingExportService.Format.CSV;
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"bookings." + (csv ? "csv" : "ndjson") + "\"")
+            .contentType(csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+            .body(body);
+    }
+
+    /**
+     * Live booking feed for the barber dashboard (Server-Sent Events).
+     * On reconnect the browser sends Last-Event-ID and missed events are replayed.
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(
+            @AuthenticationPrincipal AuthUser user,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return eventHub.subscribe(
+            BookingEventHub.shopTopic(shopService.getOwnedShopId(user.id())), lastEventId);
     }
 
     @GetMapping("/bookings/stats")
     public ResponseEntity<ApiResponse<DashboardStats>> stats(
-            @AuthenticationPrincipal User user) {
+            @AuthenticationPrincipal AuthUser user) {
+        return ResponseEntity.ok(ApiResponse.ok(
+            bookingService.getBarberStats(user.id())));
+    }
+
+    // ── Sales analytics ──────────────────────────────────────────────────
+
+    /** Completed sales per service; from/to: YYYY-MM-DD (defaults to this month) */
+    @GetMapping("/sales/services")
+    public ResponseEntity<ApiResponse<List<ServiceSalesResponse>>> serviceSales(
+            @AuthenticationPrincipal AuthUser user,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        LocalDate f = from != null ? LocalDate.parse(from) : LocalDate.now().withDayOfMonth(1);
+        LocalDate t = to   != null ? LocalDate.parse(to)   : LocalDate.now();
+        return ResponseEntity.ok(ApiResponse.ok(bookingService.getServiceSales(user.id(), f, t)));
+    }
+
+    /** Day-by-day completed sales of one service */
+    @GetMapping("/sales/services/{serviceId}/daily")
+    public ResponseEntity<ApiResponse<List<DailySalesPoint>>> serviceDailySales(
+            @AuthenticationPrincipal AuthUser user,
+            @PathVariable Long serviceId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        LocalDate f = from != null ? LocalDate.parse(from) : LocalDate.now().withDayOfMonth(1);
+        LocalDate t = to   != null ? LocalDate.parse(to)   : LocalDate.now();
+        return ResponseEntity.ok(ApiResponse.ok(
+            bookingService.getServiceDailySales(user.id(), serviceId, f, t)));
+    }
+
+    /** WhatsApp messages about a booking (to customer and shop) with delivery receipts */
+    @GetMapping("/bookings/{id}/messages")
+    public ResponseEntity<ApiResponse<List<MessageDeliveryResponse>>> bookingMessages(
+            @AuthenticationPrincipal AuthUser user,
+            @PathVariable Long id) {
         return ResponseEntity.ok(ApiResponse.ok(
-            bookingService.getBarberStats(user.getId())));
+            bookingService.barberDeliveries(user.id(), id)));
     }
 
     @PostMapping("/bookings/{id}/accept")
     public ResponseEntity<ApiResponse<BookingResponse>> accept(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idemKey,
             @PathVariable Long id) {
-        return ResponseEntity.ok(ApiResponse.ok(
-            "Booking accepted — customer notified via WhatsApp",
-            bookingService.accept(user.getId(), id)));
+        return idempotency.execute(user.id(), idemKey, "accept:" + id, null,
+            BookingResponse.class, () -> ResponseEntity.ok(ApiResponse.ok(
+                "Booking accepted — customer notified via WhatsApp",
+                bookingService.accept(user.id(), id))));
     }
 
     @PostMapping("/bookings/{id}/reject")
     public ResponseEntity<ApiResponse<BookingResponse>> reject(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idemKey,
             @PathVariable Long id,
             @RequestBody(required = false) BookingActionRequest req) {
-        return ResponseEntity.ok(ApiResponse.ok(
-            "Booking rejected — customer notified",
-            bookingService.reject(user.getId(), id,
-                req != null ? req : new BookingActionRequest())));
+        return idempotency.execute(user.id(), idemKey, "reject:" + id, req,
+            BookingResponse.class, () -> ResponseEntity.ok(ApiResponse.ok(
+                "Booking rejected — customer notified",
+                bookingService.reject(user.id(), id,
+                    req != null ? req : new BookingActionRequest()))));
     }
 
     @PostMapping("/bookings/{id}/cancel")
     public ResponseEntity<ApiResponse<BookingResponse>> cancel(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idemKey,
             @PathVariable Long id,
             @RequestBody(required = false) BookingActionRequest req) {
-        return ResponseEntity.ok(ApiResponse.ok(
-            "Booking cancelled — customer notified",
-            bookingService.cancelByBarber(user.getId(), id,
-                req != null ? req : new BookingActionRequest())));
+        return idempotency.execute(user.id(), idemKey, "cancel:" + id, req,
+            BookingResponse.class, () -> ResponseEntity.ok(ApiResponse.ok(
+                "Booking cancelled — customer notified",
+                bookingService.cancelByBarber(user.id(), id,
+                    req != null ? req : new BookingActionRequest()))));
     }
 
     @PostMapping("/bookings/{id}/complete")
     public ResponseEntity<ApiResponse<BookingResponse>> complete(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idemKey,
             @PathVariable Long id) {
+        return idempotency.execute(user.id(), idemKey, "complete:" + id, null,
+            BookingResponse.class, () -> ResponseEntity.ok(ApiResponse.ok(
+                "Booking completed! Customer asked to rate.",
+                bookingService.complete(user.id(), id))));
+    }
+
+    // ── Bulk booking actions (e.g. completing the day's bookings at closing) ──
+
+    @PostMapping("/bookings/bulk/accept")
+    public ResponseEntity<ApiResponse<BulkActionResult>> bulkAccept(
+            @AuthenticationPrincipal AuthUser user,
+            @Valid @RequestBody BulkBookingActionRequest req) {
+        return ResponseEntity.ok(ApiResponse.ok(
+            bookingService.bulkAccept(user.id(), req)));
+    }
+
+    @PostMapping("/bookings/bulk/reject")
+    public ResponseEntity<ApiResponse<BulkActionResult>> bulkReject(
+            @AuthenticationPrincipal AuthUser user,
+            @Valid @RequestBody BulkBookingActionRequest req) {
         return ResponseEntity.ok(ApiResponse.ok(
-            "Booking completed! Customer asked to rate.",
-            bookingService.complete(user.getId(), id)));
+            bookingService.bulkReject(user.id(), req)));
+    }
+
+    @PostMapping("/bookings/bulk/complete")
+    public ResponseEntity<ApiResponse<BulkActionResult>> bulkComplete(
+            @AuthenticationPrincipal AuthUser user,
+            @Valid @RequestBody BulkBookingActionRequest req) {
+        return ResponseEntity.ok(ApiResponse.ok(
+            bookingService.bulkComplete(user.id(), req)));
     }
 
     /**
@@ -137,38 +270,40 @@ public class BarberController {
      */
     @PostMapping("/bookings/{id}/reschedule")
     public ResponseEntity<ApiResponse<BookingResponse>> reschedule(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idemKey,
             @PathVariable Long id,
             @Valid @RequestBody RescheduleRequest req) {
-        return ResponseEntity.ok(ApiResponse.ok(
-            "Reschedule request sent to customer via WhatsApp",
-            bookingService.requestReschedule(user.getId(), id, req)));
+        return idempotency.execute(user.id(), idemKey, "reschedule:" + id, req,
+            BookingResponse.class, () -> ResponseEntity.ok(ApiResponse.ok(
+                "Reschedule request sent to customer via WhatsApp",
+                bookingService.requestReschedule(user.id(), id, req))));
     }
 
     // Get blocked slots for a date (default today)
     @GetMapping("/blocked-slots")
     public ResponseEntity<ApiResponse<List<String>>> getBlockedSlots(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @RequestParam(required = false) String date) {
         LocalDate d = date != null ? LocalDate.parse(date) : LocalDate.now();
-        return ResponseEntity.ok(ApiResponse.ok(shopService.getBlockedSlots(user.getId(), d)));
+        return ResponseEntity.ok(ApiResponse.ok(shopService.getBlockedSlots(user.id(), d)));
     }
 
     // Block a slot
     @PostMapping("/blocked-slots")
     public ResponseEntity<ApiResponse<Void>> blockSlot(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @RequestBody BlockedSlotRequest req) {
-        shopService.blockSlot(user.getId(), req);
+        shopService.blockSlot(user.id(), req);
         return ResponseEntity.ok(ApiResponse.ok("Slot blocked", null));
     }
 
     // Unblock a slot
     @DeleteMapping("/blocked-slots")
     public ResponseEntity<ApiResponse<Void>> unblockSlot(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @RequestBody BlockedSlotRequest req) {
-        shopService.unblockSlot(user.getId(), req);
+        shopService.unblockSlot(user.id(), req);
         return ResponseEntity.ok(ApiResponse.ok("Slot unblocked", null));
     }
 }
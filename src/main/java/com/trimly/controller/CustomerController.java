@@ -1,14 +1,20 @@
 package com.trimly.controller;
 
 import com.trimly.dto.*;
-import com.trimly.entity.User;
+import com.trimly.security.AuthUser;
+import com.trimly.security.RateLimited;
+import com.trimly.service.BookingSeriesService;
 import com.trimly.service.BookingService;
+import com.trimly.service.IdempotencyService;
+import com.trimly.service.SeatHoldService;
+import com.trimly.service.WaitlistService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,44 +22,154 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class CustomerController {
 
-    private final BookingService bookingService;
+    private final BookingService  bookingService;
+    private final SeatHoldService seatHoldService;
+    private final IdempotencyService idempotency;
+    private final WaitlistService waitlistService;
+    private final BookingSeriesService seriesService;
 
-    /** Create a new booking */
+    /**
+     * Create a new booking.
+     * Send an Idempotency-Key header so retries return the original booking.
+     */
     @PostMapping("/bookings")
+    @RateLimited(name = "book-user", by = RateLimited.By.USER, capacity = 10, periodSeconds = 60)
     public ResponseEntity<ApiResponse<BookingResponse>> book(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idemKey,
             @Valid @RequestBody BookingRequest req) {
+        return idempotency.execute(user.id(), idemKey, "POST /api/customer/bookings", req,
+            BookingResponse.class, () -> ResponseEntity.ok(ApiResponse.ok(
+                "Booking submitted! Barber will confirm shortly.",
+                bookingService.create(user.id(), req))));
+    }
+
+    /**
+     * Hold seats at a slot while the customer picks services.
+     * Pass the returned holdId in the booking request to convert it.
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<ApiResponse<SeatHoldResponse>> hold(
+            @AuthenticationPrincipal AuthUser user,
+            @Valid @RequestBody SeatHoldRequest req) {
         return ResponseEntity.ok(ApiResponse.ok(
-            "Booking submitted! Barber will confirm shortly.",
-            bookingService.create(user.getId(), req)));
+            seatHoldService.hold(user.id(), req)));
+    }
+
+    /** Release a seat hold early (e.g. customer backed out of checkout) */
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<ApiResponse<Void>> releaseHold(
+            @AuthenticationPrincipal AuthUser user,
+            @PathVariable String holdId) {
+        seatHoldService.release(user.id(), holdId);
+        return ResponseEntity.ok(ApiResponse.ok("Hold released", null));
+    }
+
+    /**
+     * Join the waitlist for a full slot. When seats free up the entry is
+     * turned into a booking request automatically and the customer is notified.
+     */
+    @PostMapping("/waitlist")
+    public ResponseEntity<ApiResponse<WaitlistResponse>> joinWaitlist(
+            @AuthenticationPrincipal AuthUser user,
+            @Valid @RequestBody WaitlistRequest req) {
+        return ResponseEntity.ok(ApiResponse.ok("Added to the waitlist",
+            waitlistService.join(user.id(), req)));
+    }
+
+    @GetMapping("/waitlist")
+    public ResponseEntity<ApiResponse<List<WaitlistResponse>>> myWaitlist(
+            @AuthenticationPrincipal AuthUser user) {
+        return ResponseEntity.ok(ApiResponse.ok(waitlistService.getMine(user.id())));
+    }
+
+    @DeleteMapping("/waitlist/{id}")
+    public ResponseEntity<ApiResponse<Void>> leaveWaitlist(
+            @AuthenticationPrincipal AuthUser user,
+            @PathVariable String id) {
+        waitlistService.leave(user.id(), id);
+        return ResponseEntity.ok(ApiResponse.ok("Removed from the waitlist", null));
+    }
+
+    /**
+     * Set up a recurring booking (e.g. every other Saturday at 10:00).
+     * Upcoming dates are booked ahead automatically; dates that could not be
+     * booked are listed with a reason.
+     */
+    @PostMapping("/series")
+    public ResponseEntity<ApiResponse<BookingSeriesResponse>> createSeries(
+            @AuthenticationPrincipal AuthUser user,
+            @Valid @RequestBody BookingSeriesRequest req) {
+        return ResponseEntity.ok(ApiResponse.ok("Recurring booking created",
+            seriesService.create(user.id(), req)));
     }
 
-    /** Get all bookings for the logged-in customer */
+    @GetMapping("/series")
+    public ResponseEntity<ApiResponse<List<BookingSeriesResponse>>> mySeries(
+            @AuthenticationPrincipal AuthUser user) {
+        return ResponseEntity.ok(ApiResponse.ok(seriesService.getMine(user.id())));
+    }
+
+    /** Stop a recurring booking — bookings already made are kept */
+    @DeleteMapping("/series/{id}")
+    public ResponseEntity<ApiResponse<BookingSeriesResponse>> stopSeries(
+            @AuthenticationPrincipal AuthUser user,
+            @PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.ok("Recurring booking stopped",
+            seriesService.stop(user.id(), id)));
+    }
+
+    /**
+     * Get all bookings for the logged-in customer.
+     * archived=true also returns closed bookings older than the retention horizon.
+     */
     @GetMapping("/bookings")
     public ResponseEntity<ApiResponse<?>> myBookings(
-            @AuthenticationPrincipal User user) {
+            @AuthenticationPrincipal AuthUser user,
+            @RequestParam(defaultValue = "false") boolean archived) {
+        return ResponseEntity.ok(ApiResponse.ok(
+            bookingService.getCustomerBookings(user.id(), archived)));
+    }
+
+    /**
+     * Delta sync — bookings changed and removed since the opaque cursor.
+     * Omit since for the first call; repeat while hasMore is true.
+     */
+    @GetMapping("/bookings/changes")
+    public ResponseEntity<ApiResponse<BookingChangesResponse>> bookingChanges(
+            @AuthenticationPrincipal AuthUser user,
+            @RequestParam(required = false) String since) {
+        return ResponseEntity.ok(ApiResponse.ok(
+            bookingService.getCustomerChanges(user.id(), since)));
+    }
+
+    /** WhatsApp messages sent to you about this booking, with delivery receipts */
+    @GetMapping("/bookings/{id}/messages")
+    public ResponseEntity<ApiResponse<List<MessageDeliveryResponse>>> bookingMessages(
+            @AuthenticationPrincipal AuthUser user,
+            @PathVariable Long id) {
         return ResponseEntity.ok(ApiResponse.ok(
-            bookingService.getCustomerBookings(user.getId())));
+            bookingService.customerDeliveries(user.id(), id)));
     }
 
     /** Cancel a pending or confirmed booking */
     @PostMapping("/bookings/{id}/cancel")
     public ResponseEntity<ApiResponse<BookingResponse>> cancel(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @PathVariable Long id) {
         return ResponseEntity.ok(ApiResponse.ok("Booking cancelled",
-            bookingService.cancelByCustomer(user.getId(), id)));
+            bookingService.cancelByCustomer(user.id(), id)));
     }
 
     /** Rate and review a completed booking */
     @PostMapping("/bookings/{id}/rate")
     public ResponseEntity<ApiResponse<BookingResponse>> rate(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @PathVariable Long id,
             @Valid @RequestBody RatingRequest req) {
         return ResponseEntity.ok(ApiResponse.ok(
             "Thanks for your review!",
-            bookingService.rate(user.getId(), id, req)));
+            bookingService.rate(user.id(), id, req)));
     }
 
     /**
@@ -62,20 +178,20 @@ public class CustomerController {
      */
     @PostMapping("/bookings/{id}/reschedule/respond")
     public ResponseEntity<ApiResponse<BookingResponse>> respondReschedule(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @PathVariable Long id,
             @RequestBody RescheduleResponseRequest req) {
         return ResponseEntity.ok(ApiResponse.ok(
             req.isAccept() ? "Reschedule accepted ✅" : "Declined — original slot kept",
-            bookingService.respondToReschedule(user.getId(), id, req)));
+            bookingService.respondToReschedule(user.id(), id, req)));
     }
 
     /** Update profile name */
     @PatchMapping("/profile")
     public ResponseEntity<ApiResponse<UserInfo>> updateProfile(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthUser user,
             @RequestBody Map<String, String> body) {
         return ResponseEntity.ok(ApiResponse.ok(
-            bookingService.updateCustomerProfile(user.getId(), body.get("fullName"))));
+            bookingService.updateCustomerProfile(user.id(), body.get("fullName"))));
     }
 }
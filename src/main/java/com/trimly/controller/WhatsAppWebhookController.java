@@ -0,0 +1,36 @@
+package com.trimly.controller;
+
+import com.trimly.service.WhatsAppStatusIngestor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Meta webhook for WhatsApp delivery receipts. Public (under /api/public) —
+ * callbacks are authenticated by their HMAC signature instead of a JWT.
+ */
+@RestController
+@RequestMapping("/api/public/whatsapp/webhook")
+@RequiredArgsConstructor
+public class WhatsAppWebhookController {
+
+    private final WhatsAppStatusIngestor ingestor;
+
+    /** Subscription handshake — Meta expects the bare challenge back */
+    @GetMapping
+    public ResponseEntity<String> verify(
+            @RequestParam("hub.mode") String mode,
+            @RequestParam("hub.verify_token") String token,
+            @RequestParam("hub.challenge") String challenge) {
+        return ResponseEntity.ok(ingestor.verifySubscription(mode, token, challenge));
+    }
+
+    /** Queues the receipts and acknowledges at once; 503 asks Meta to redeliver */
+    @PostMapping
+    public ResponseEntity<Void> receive(
+            @RequestBody byte[] body,
+            @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature) {
+        ingestor.receive(body, signature);
+        return ResponseEntity.ok().build();
+    }
+}
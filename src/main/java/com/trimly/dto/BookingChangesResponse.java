@@ -0,0 +1,15 @@
+package com.trimly.dto;
+import lombok.*; import java.util.List;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class BookingChangesResponse {
+    /** Created or updated since the cursor, oldest change first */
+    List<BookingResponse> changed;
+    /** Booking ids to drop from the local copy (archived) */
+    List<Long> removed;
+    /** Pass back as ?since= on the next call */
+    String cursor;
+    /** More changes are waiting — call again straight away */
+    boolean hasMore;
+    /** Cursor was missing or too old — discard local data; this is a fresh listing */
+    boolean fullResync;
+}
@@ -7,4 +7,5 @@ import java.time.LocalDate; import java.time.LocalTime; import java.util.List;
     @NotNull @FutureOrPresent LocalDate bookingDate;
     @NotNull LocalTime slotTime;
     @Min(1) @Max(4) int seats = 1;
+    String holdId;   // optional — seat hold taken via POST /api/customer/holds
 }
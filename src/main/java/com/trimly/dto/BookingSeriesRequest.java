@@ -0,0 +1,12 @@
+package com.trimly.dto;
+import jakarta.validation.constraints.*; import lombok.Data;
+import java.time.LocalDate; import java.time.LocalTime; import java.util.List;
+@Data public class BookingSeriesRequest {
+    @NotNull Long shopId;
+    @NotEmpty(message="Select at least one service") List<Long> serviceIds;
+    @NotNull @FutureOrPresent LocalDate startDate;   // first visit; its weekday repeats
+    @NotNull LocalTime slotTime;
+    @Min(1) @Max(4) int seats = 1;
+    @Min(1) @Max(8) int intervalWeeks = 1;           // 2 = every other week
+    LocalDate endDate;                               // optional — open-ended if null
+}
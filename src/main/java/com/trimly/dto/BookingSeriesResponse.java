@@ -0,0 +1,15 @@
+package com.trimly.dto;
+import lombok.*;
+import java.time.LocalDate; import java.time.LocalTime; import java.util.List;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class BookingSeriesResponse {
+    Long id; Long shopId; List<Long> serviceIds; LocalTime slotTime; int seats;
+    int intervalWeeks; LocalDate startDate; LocalDate endDate; LocalDate nextDate; boolean active;
+    List<Occurrence> upcoming;
+
+    /** bookingId is set when booked; conflictReason when the date could not be booked */
+    @Data @Builder @NoArgsConstructor @AllArgsConstructor
+    public static class Occurrence {
+        LocalDate date; Long bookingId; String conflictReason;
+    }
+}
@@ -0,0 +1,11 @@
+package com.trimly.dto;
+import lombok.*; import java.util.List;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class BulkActionResult {
+    int succeeded; int failed; List<BulkItemResult> results;
+
+    public static BulkActionResult of(List<BulkItemResult> results) {
+        int ok = (int) results.stream().filter(BulkItemResult::isSuccess).count();
+        return new BulkActionResult(ok, results.size() - ok, results);
+    }
+}
@@ -0,0 +1,7 @@
+package com.trimly.dto;
+import jakarta.validation.constraints.*; import lombok.Data;
+import java.util.List;
+@Data public class BulkBookingActionRequest {
+    @NotEmpty(message="Select at least one booking") @Size(max=100) List<Long> bookingIds;
+    @Size(max=500) String cancelReason;   // used by bulk reject
+}
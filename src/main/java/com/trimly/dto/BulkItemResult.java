@@ -0,0 +1,6 @@
+package com.trimly.dto;
+import com.trimly.enums.BookingStatus; import lombok.*;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class BulkItemResult {
+    Long bookingId; boolean success; String message; BookingStatus status;
+}
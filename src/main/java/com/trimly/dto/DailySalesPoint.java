@@ -0,0 +1,6 @@
+package com.trimly.dto;
+import lombok.*; import java.math.BigDecimal; import java.time.LocalDate;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class DailySalesPoint {
+    LocalDate date; Long quantity; BigDecimal revenue;
+}
@@ -0,0 +1,9 @@
+package com.trimly.dto;
+import com.trimly.enums.DeliveryStatus; import com.trimly.enums.OutboxStatus; import lombok.*;
+import java.time.LocalDateTime;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class MessageDeliveryResponse {
+    Long messageId; String template; OutboxStatus outboxStatus; DeliveryStatus deliveryStatus;
+    LocalDateTime queuedAt; LocalDateTime sentAt; LocalDateTime deliveredAt; LocalDateTime readAt;
+    String error;
+}
@@ -0,0 +1,9 @@
+package com.trimly.dto;
+import jakarta.validation.constraints.*; import lombok.Data;
+import java.time.LocalDate; import java.time.LocalTime;
+@Data public class SeatHoldRequest {
+    @NotNull Long shopId;
+    @NotNull @FutureOrPresent LocalDate bookingDate;
+    @NotNull LocalTime slotTime;
+    @Min(1) @Max(4) int seats = 1;
+}
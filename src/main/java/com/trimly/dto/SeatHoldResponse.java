@@ -0,0 +1,8 @@
+package com.trimly.dto;
+import lombok.*;
+import java.time.LocalDate; import java.time.LocalDateTime; import java.time.LocalTime;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class SeatHoldResponse {
+    String holdId; Long shopId; LocalDate bookingDate; LocalTime slotTime;
+    int seats; LocalDateTime expiresAt;
+}
@@ -0,0 +1,6 @@
+package com.trimly.dto;
+import lombok.*; import java.math.BigDecimal;
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class ServiceSalesResponse {
+    Long serviceId; String serviceName; Long quantity; BigDecimal revenue;
+}
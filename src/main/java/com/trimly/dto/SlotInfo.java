@@ -3,5 +3,5 @@ import lombok.*; import java.time.LocalTime;
 @Data @Builder @NoArgsConstructor @AllArgsConstructor
 public class SlotInfo {
     LocalTime time; String label; boolean taken; boolean available;
-    int seatsTotal; int seatsUsed; int seatsLeft;
+    int seatsTotal; int seatsUsed; int seatsHeld; int seatsLeft;
 }
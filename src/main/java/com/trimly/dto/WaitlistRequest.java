@@ -0,0 +1,10 @@
+package com.trimly.dto;
+import jakarta.validation.constraints.*; import lombok.Data;
+import java.time.LocalDate; import java.time.LocalTime; import java.util.List;
+@Data public class WaitlistRequest {
+    @NotNull Long shopId;
+    @NotEmpty(message="Select at least one service") List<Long> serviceIds;
+    @NotNull @FutureOrPresent LocalDate bookingDate;
+    @NotNull LocalTime slotTime;
+    @Min(1) @Max(4) int seats = 1;
+}
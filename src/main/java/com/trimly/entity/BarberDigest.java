@@ -0,0 +1,31 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/** One row per shop and day whose "tomorrow's schedule" digest went out */
+@Entity
+@Table(name = "barber_digests", indexes = {
+    @Index(name = "idx_digest_shop_date", columnList = "shop_id,digest_date", unique = true),
+    @Index(name = "idx_digest_sent",      columnList = "sent_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BarberDigest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "shop_id", nullable = false)
+    private Long shopId;
+
+    /** The day the digest describes */
+    @Column(name = "digest_date", nullable = false)
+    private LocalDate digestDate;
+
+    @Column(name = "sent_at", nullable = false)
+    private LocalDateTime sentAt;
+}
@@ -14,7 +14,10 @@ import java.time.LocalTime;
     @Index(name = "idx_bk_customer", columnList = "customer_id"),
     @Index(name = "idx_bk_status",   columnList = "status"),
     @Index(name = "idx_bk_date",     columnList = "booking_date"),
-    @Index(name = "idx_bk_slot",     columnList = "shop_id,booking_date,slot_time")
+    @Index(name = "idx_bk_slot",     columnList = "shop_id,booking_date,slot_time"),
+    @Index(name = "idx_bk_status_slot", columnList = "status,booking_date,slot_time"),
+    @Index(name = "idx_bk_shop_updated",     columnList = "shop_id,updated_at"),
+    @Index(name = "idx_bk_customer_updated", columnList = "customer_id,updated_at")
 })
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Booking extends BaseEntity {
@@ -31,7 +34,7 @@ public class Booking extends BaseEntity {
     @Column(nullable = false, length = 500)
     private String servicesSnapshot;
 
-    /** Comma-separated service IDs */
+    /** Legacy comma-separated service IDs — superseded by booking_items, read only by the backfill */
     @Column(length = 500)
     private String serviceIds;
 
@@ -86,7 +89,11 @@ public class Booking extends BaseEntity {
     @Column(length = 20)
     private RescheduleStatus rescheduleStatus;
 
-    /** WhatsApp message SID returned by the API for tracking */
+    /** Recurring series this booking was generated from, if any */
+    @Column(name = "series_id")
+    private Long seriesId;
+
+    /** Graph API id (wamid) of the latest message sent about this booking — see wa_outbox for all of them */
     @Column(length = 100)
     private String waMsgId;
 }
@@ -0,0 +1,48 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * One service line of a booking, snapshotted at booking time.
+ * Replaces parsing Booking.serviceIds / servicesSnapshot for per-service sales.
+ *
+ * Rows are inserted in a single JDBC batch by BookingItemJdbcRepository,
+ * so this mapping exists for schema generation and JPQL aggregation.
+ */
+@Entity
+@Table(name = "booking_items", indexes = {
+    @Index(name = "idx_bi_booking",  columnList = "booking_id"),
+    @Index(name = "idx_bi_shop_svc", columnList = "shop_id,service_id")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BookingItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "booking_id", nullable = false)
+    private Booking booking;
+
+    /** Denormalised from the booking so shop-level GROUP BYs stay on one index */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "shop_id", nullable = false)
+    private Shop shop;
+
+    /** Not a foreign key — the service may be deleted later, the sale stays */
+    @Column(name = "service_id", nullable = false)
+    private Long serviceId;
+
+    @Column(nullable = false, length = 150)
+    private String serviceName;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+
+    @Column(nullable = false)
+    private int durationMinutes;
+}
@@ -0,0 +1,40 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Marks the appointment reminder sent for one booking at one slot. Written in
+ * the same transaction as the reminder's outbox row, so a restart neither
+ * resends nor loses it; a rescheduled booking has a new slot and gets a new
+ * reminder. Kept off the bookings row so JPA saves of a loaded Booking can
+ * never write a stale marker back.
+ */
+@Entity
+@Table(name = "booking_reminders", indexes = {
+    @Index(name = "idx_reminder_slot", columnList = "booking_id,booking_date,slot_time", unique = true),
+    @Index(name = "idx_reminder_sent", columnList = "sent_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BookingReminder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+
+    @Column(name = "booking_date", nullable = false)
+    private LocalDate bookingDate;
+
+    @Column(name = "slot_time", nullable = false)
+    private LocalTime slotTime;
+
+    @Column(name = "sent_at", nullable = false)
+    private LocalDateTime sentAt;
+}
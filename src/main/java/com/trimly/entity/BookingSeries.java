@@ -0,0 +1,57 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Recurring booking rule: same shop, services and time every intervalWeeks
+ * weeks on the weekday of startDate, until endDate (open-ended if null).
+ *
+ * nextDate is the first occurrence not yet materialised. The generator only
+ * reads active series whose nextDate falls inside the horizon and moves it
+ * past the horizon, so each run touches just the series that are due.
+ */
+@Entity
+@Table(name = "booking_series", indexes = {
+    @Index(name = "idx_series_due",      columnList = "active,next_date"),
+    @Index(name = "idx_series_customer", columnList = "customer_id")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BookingSeries extends BaseEntity {
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "shop_id", nullable = false)
+    private Long shopId;
+
+    /** Comma-separated service IDs booked on every occurrence */
+    @Column(name = "service_ids", nullable = false, length = 500)
+    private String serviceIds;
+
+    @Column(name = "slot_time", nullable = false)
+    private LocalTime slotTime;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int seats = 1;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int intervalWeeks = 1;
+
+    @Column(nullable = false)
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+
+    @Column(name = "next_date", nullable = false)
+    private LocalDate nextDate;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean active = true;
+}
@@ -0,0 +1,38 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a booking that left the bookings table (moved to the archive), so
+ * delta-sync clients can drop it from their local copy. Written by the
+ * archival job in the same transaction as the move; pruned after the
+ * retention window, after which stale clients are told to resync fully.
+ */
+@Entity
+@Table(name = "booking_tombstones", indexes = {
+    @Index(name = "idx_tomb_shop",     columnList = "shop_id,id"),
+    @Index(name = "idx_tomb_customer", columnList = "customer_id,id"),
+    @Index(name = "idx_tomb_removed",  columnList = "removed_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BookingTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+
+    @Column(name = "shop_id", nullable = false)
+    private Long shopId;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "removed_at", nullable = false)
+    private LocalDateTime removedAt;
+}
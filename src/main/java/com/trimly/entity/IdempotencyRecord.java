@@ -0,0 +1,56 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored result of a request sent with an Idempotency-Key header.
+ * The row is inserted as a reservation (statusCode 0) in the same transaction
+ * as the action and filled in before commit, so idx_idem_user_key is what
+ * lets exactly one request per key run, on any node. Backs the in-memory
+ * cache in IdempotencyService. Rows are purged once past expiresAt.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idem_user_key", columnList = "user_id,idem_key", unique = true),
+    @Index(name = "idx_idem_expires",  columnList = "expires_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idem_key", nullable = false, length = 100)
+    private String idemKey;
+
+    /** Operation the key was first used for, e.g. "POST /api/customer/bookings" */
+    @Column(nullable = false, length = 150)
+    private String scope;
+
+    /** SHA-256 of scope and request body — the same key with another payload is refused */
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    /** 0 while the original request is still running */
+    @Column(nullable = false)
+    private int statusCode;
+
+    /** Serialised ApiResponse body returned to the original request */
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
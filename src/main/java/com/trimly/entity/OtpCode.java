@@ -0,0 +1,34 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pending customer OTP, one row per phone — used only when app.otp.store=jdbc
+ * so several nodes share codes. Holds an HMAC of the code, never the code.
+ */
+@Entity
+@Table(name = "otp_codes", indexes = {
+    @Index(name = "idx_otp_expires", columnList = "expires_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class OtpCode {
+
+    @Id
+    @Column(length = 20)
+    private String phone;
+
+    @Column(name = "code_hash", nullable = false, length = 64)
+    private String codeHash;
+
+    @Column(name = "issued_at", nullable = false)
+    private LocalDateTime issuedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(nullable = false)
+    private int attempts;
+}
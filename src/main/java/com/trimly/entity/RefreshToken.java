@@ -29,7 +29,7 @@ public class RefreshToken {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    /** The opaque token string sent to client (stored hashed) */
+    /** SHA-256 (base64url) of the opaque token sent to the client — the raw value is never stored */
     @Column(nullable = false, unique = true, length = 512)
     private String token;
 
@@ -0,0 +1,33 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Access token revoked before its exp (logout from one device). Loaded into
+ * TokenRevocationService's Bloom filter at startup and polled by id from
+ * other nodes; rows are dropped once the token would have expired anyway.
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+    @Index(name = "idx_revoked_jti",     columnList = "jti", unique = true),
+    @Index(name = "idx_revoked_expires", columnList = "expires_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String jti;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,36 @@
+package com.trimly.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/** Outcome of one generated date of a BookingSeries — a booking, or the reason it could not be booked */
+@Entity
+@Table(name = "booking_series_occurrences", indexes = {
+    @Index(name = "idx_occ_series_date", columnList = "series_id,occurrence_date", unique = true)
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class SeriesOccurrence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "series_id", nullable = false)
+    private Long seriesId;
+
+    @Column(name = "occurrence_date", nullable = false)
+    private LocalDate occurrenceDate;
+
+    /** Null when the occurrence was a conflict */
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    @Column(name = "conflict_reason", length = 200)
+    private String conflictReason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -2,6 +2,7 @@ package com.trimly.entity;
 
 import com.trimly.enums.PlanType;
 import com.trimly.enums.ShopStatus;
+import com.trimly.service.ShopChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -11,6 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(ShopChangeListener.class)
 @Table(name = "shops", indexes = {
     @Index(name = "idx_shop_status", columnList = "status"),
     @Index(name = "idx_shop_slug",   columnList = "slug",   unique = true),
@@ -1,6 +1,7 @@
 package com.trimly.entity;
 
 import com.trimly.enums.Role;
+import com.trimly.security.UserStateListener;
 import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
@@ -15,8 +16,10 @@ import java.util.List;
 @Table(name = "users", indexes = {
     @Index(name = "idx_user_email",  columnList = "email",  unique = true),
     @Index(name = "idx_user_phone",  columnList = "phone",  unique = true),
-    @Index(name = "idx_user_role",   columnList = "role")
+    @Index(name = "idx_user_role",   columnList = "role"),
+    @Index(name = "idx_user_tokens_valid_after", columnList = "tokens_valid_after")
 })
+@EntityListeners(UserStateListener.class)
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class User extends BaseEntity implements UserDetails {
 
@@ -53,6 +56,10 @@ public class User extends BaseEntity implements UserDetails {
     @Builder.Default
     private int otpAttempts = 0;
 
+    /** Access tokens issued before this instant are rejected — see TokenRevocationService */
+    @Column(name = "tokens_valid_after")
+    private LocalDateTime tokensValidAfter;
+
     // ── Password reset (for barbers) ─────────────────────────────────────
     @Column(length = 200)
     private String resetToken;
@@ -0,0 +1,61 @@
+package com.trimly.entity;
+
+import com.trimly.enums.WaitlistStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Customer waiting for seats at a full slot. The live FIFO queues are held in
+ * memory by WaitlistService; this table is their write-behind copy, reloaded
+ * on startup.
+ */
+@Entity
+@Table(name = "waitlist_entries", indexes = {
+    @Index(name = "idx_wl_status_date", columnList = "status,booking_date"),
+    @Index(name = "idx_wl_customer",    columnList = "customer_id")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class WaitlistEntry {
+
+    /** UUID assigned in memory, so the row can be written later */
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "shop_id", nullable = false)
+    private Long shopId;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "booking_date", nullable = false)
+    private LocalDate bookingDate;
+
+    @Column(name = "slot_time", nullable = false)
+    private LocalTime slotTime;
+
+    @Column(nullable = false)
+    private int seats;
+
+    /** Comma-separated service IDs to book on promotion */
+    @Column(name = "service_ids", nullable = false, length = 500)
+    private String serviceIds;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WaitlistStatus status;
+
+    /** Booking created on promotion */
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
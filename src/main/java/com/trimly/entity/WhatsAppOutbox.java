@@ -0,0 +1,79 @@
+package com.trimly.entity;
+
+import com.trimly.enums.DeliveryStatus;
+import com.trimly.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * WhatsApp template message waiting for delivery. Rows are inserted by
+ * WhatsAppService in the same transaction as the change they announce, and
+ * delivered by WhatsAppDispatcher. Meta's status webhooks then fill in the
+ * delivery columns by wa_msg_id. Written and read through
+ * WhatsAppOutboxRepository (JDBC); the entity exists for the schema.
+ */
+@Entity
+@Table(name = "wa_outbox", indexes = {
+    @Index(name = "idx_wa_outbox_due", columnList = "status,next_attempt_at"),
+    @Index(name = "idx_wa_outbox_msg", columnList = "wa_msg_id"),
+    @Index(name = "idx_wa_outbox_booking", columnList = "booking_id")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class WhatsAppOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Booking the message is about; null for OTP and password-reset messages */
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    /** 10-digit number as stored on users — normalised at send time */
+    @Column(nullable = false, length = 20)
+    private String phone;
+
+    @Column(nullable = false, length = 100)
+    private String template;
+
+    /** JSON array of the template's body parameters */
+    @Lob
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String params;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    /** Graph API message id (wamid) once accepted */
+    @Column(name = "wa_msg_id", length = 100)
+    private String waMsgId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    /** Latest receipt from the status webhook; only ever moves forward */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "delivery_status", length = 20)
+    private DeliveryStatus deliveryStatus;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+}
@@ -5,5 +5,6 @@ public enum BookingStatus {
     COMPLETED,
     REJECTED,
     CANCELLED,
-    RESCHEDULE_REQUESTED   // barber requested a new slot; customer yet to respond
+    RESCHEDULE_REQUESTED,  // barber requested a new slot; customer yet to respond
+    EXPIRED                // pending request the barber never answered before the slot passed
 }
@@ -0,0 +1,8 @@
+package com.trimly.enums;
+/** WhatsApp delivery receipts, in the order Meta reports them */
+public enum DeliveryStatus {
+    SENT,        // accepted by WhatsApp servers
+    DELIVERED,   // reached the handset
+    READ,
+    FAILED       // undeliverable after acceptance
+}
@@ -0,0 +1,7 @@
+package com.trimly.enums;
+public enum OutboxStatus {
+    PENDING,    // waiting for its next attempt
+    SENDING,    // claimed by a dispatcher; next_attempt_at is the lease expiry
+    SENT,
+    FAILED      // permanent error or out of attempts
+}
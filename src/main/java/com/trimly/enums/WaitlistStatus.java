@@ -0,0 +1,7 @@
+package com.trimly.enums;
+public enum WaitlistStatus {
+    WAITING,
+    PROMOTED,   // turned into a PENDING booking when seats freed up
+    CANCELLED,  // left by the customer, or could no longer be booked
+    EXPIRED     // slot passed while still waiting
+}
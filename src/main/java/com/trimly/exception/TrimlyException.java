@@ -15,7 +15,9 @@ public class TrimlyException extends RuntimeException {
     public static TrimlyException notFound(String msg)   { return new TrimlyException(msg, HttpStatus.NOT_FOUND); }
     public static TrimlyException badRequest(String msg) { return new TrimlyException(msg, HttpStatus.BAD_REQUEST); }
     public static TrimlyException conflict(String msg)   { return new TrimlyException(msg, HttpStatus.CONFLICT); }
+    public static TrimlyException unprocessable(String msg) { return new TrimlyException(msg, HttpStatus.UNPROCESSABLE_ENTITY); }
     public static TrimlyException forbidden(String msg)  { return new TrimlyException(msg, HttpStatus.FORBIDDEN); }
     public static TrimlyException unauth(String msg)     { return new TrimlyException(msg, HttpStatus.UNAUTHORIZED); }
     public static TrimlyException rateLimit(String msg)  { return new TrimlyException(msg, HttpStatus.TOO_MANY_REQUESTS); }
+    public static TrimlyException unavailable(String msg){ return new TrimlyException(msg, HttpStatus.SERVICE_UNAVAILABLE); }
 }
@@ -0,0 +1,161 @@
+package com.trimly.repository;
+
+import com.trimly.dto.BookingResponse;
+import com.trimly.enums.BookingStatus;
+import com.trimly.enums.RescheduleStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cold storage for closed bookings past the retention horizon.
+ *
+ * bookings_archive and booking_items_archive are created with
+ * {@code CREATE TABLE ... LIKE} (same columns and indexes, no foreign keys).
+ * Copies use the archive table's own column list, so a column added to the
+ * hot table later never breaks archiving. Each moved booking leaves a row in
+ * booking_tombstones so delta-sync clients learn it is gone.
+ */
+@Repository @RequiredArgsConstructor
+public class BookingArchiveRepository {
+
+    /** Archived bookings are all closed, so only the completed ones add revenue */
+    public record Totals(long bookings, long completed, BigDecimal revenue, BigDecimal commission) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public void ensureTables() {
+        jdbc.getJdbcTemplate().execute("CREATE TABLE IF NOT EXISTS bookings_archive LIKE bookings");
+        jdbc.getJdbcTemplate().execute("CREATE TABLE IF NOT EXISTS booking_items_archive LIKE booking_items");
+    }
+
+    /** Next chunk of closed bookings older than the horizon, in primary-key order */
+    public List<Long> findIdsToArchive(Collection<BookingStatus> closed, LocalDate before, int limit) {
+        return jdbc.queryForList("""
+            SELECT id FROM bookings
+            WHERE status IN (:statuses) AND booking_date < :before
+            ORDER BY id
+            LIMIT :limit
+            """,
+            new MapSqlParameterSource()
+                .addValue("statuses", closed.stream().map(Enum::name).toList())
+                .addValue("before", before)
+                .addValue("limit", limit),
+            Long.class);
+    }
+
+    /** Copy then delete — callers run this inside one transaction per chunk */
+    public int moveToArchive(List<Long> ids) {
+        Map<String, Object> p = Map.of("ids", ids);
+        String bookingCols = columns("bookings_archive");
+        String itemCols    = columns("booking_items_archive");
+
+        jdbc.update("INSERT INTO booking_items_archive (" + itemCols + ") SELECT " + itemCols
+            + " FROM booking_items WHERE booking_id IN (:ids)", p);
+        jdbc.update("INSERT INTO bookings_archive (" + bookingCols + ") SELECT " + bookingCols
+            + " FROM bookings WHERE id IN (:ids)", p);
+        jdbc.update("INSERT INTO booking_tombstones (booking_id, shop_id, customer_id, removed_at)"
+            + " SELECT id, shop_id, customer_id, NOW(6) FROM bookings WHERE id IN (:ids)", p);
+        jdbc.update("DELETE FROM booking_items WHERE booking_id IN (:ids)", p);
+        return jdbc.update("DELETE FROM bookings WHERE id IN (:ids)", p);
+    }
+
+    // ── Dashboard totals ──────────────────────────────────────────────────
+
+    public Totals totalsByShop(Long shopId) {
+        return jdbc.queryForObject(SELECT_TOTALS + " WHERE shop_id = :id", Map.of("id", shopId), TOTALS);
+    }
+
+    public Totals totals() {
+        return jdbc.queryForObject(SELECT_TOTALS, Map.of(), TOTALS);
+    }
+
+    private static final String SELECT_TOTALS = """
+        SELECT COUNT(*) AS n,
+               COALESCE(SUM(status = 'COMPLETED'), 0) AS completed,
+               COALESCE(SUM(CASE WHEN status = 'COMPLETED' THEN total_amount END), 0) AS revenue,
+               COALESCE(SUM(CASE WHEN status = 'COMPLETED' THEN platform_fee END), 0) AS commission
+        FROM bookings_archive""";
+
+    private static final RowMapper<Totals> TOTALS = (rs, n) -> new Totals(rs.getLong("n"),
+        rs.getLong("completed"), rs.getBigDecimal("revenue"), rs.getBigDecimal("commission"));
+
+    // ── History reads ─────────────────────────────────────────────────────
+
+    public List<BookingResponse> findByCustomer(Long customerId) {
+        return jdbc.query(SELECT_ARCHIVED + " WHERE a.customer_id = :id ORDER BY a.created_at DESC",
+            Map.of("id", customerId), mapper(false));
+    }
+
+    public List<BookingResponse> findByShop(Long shopId, BookingStatus status) {
+        MapSqlParameterSource p = new MapSqlParameterSource("id", shopId);
+        String where = " WHERE a.shop_id = :id";
+        if (status != null) {
+            where += " AND a.status = :status";
+            p.addValue("status", status.name());
+        }
+        return jdbc.query(SELECT_ARCHIVED + where + " ORDER BY a.created_at DESC", p, mapper(true));
+    }
+
+    private static final String SELECT_ARCHIVED = """
+        SELECT a.*, s.shop_name, s.emoji AS shop_emoji, c.full_name AS customer_name, c.phone AS customer_phone
+        FROM bookings_archive a
+        JOIN shops s ON s.id = a.shop_id
+        JOIN users c ON c.id = a.customer_id
+        """;
+
+    private static RowMapper<BookingResponse> mapper(boolean showFee) {
+        return (rs, n) -> {
+            Date      rd = rs.getDate("reschedule_date");
+            Time      rt = rs.getTime("reschedule_time");
+            String    rst = rs.getString("reschedule_status");
+            Timestamp ca = rs.getTimestamp("created_at");
+            return BookingResponse.builder()
+                .id(rs.getLong("id"))
+                .shopId(rs.getLong("shop_id"))
+                .shopName(rs.getString("shop_name"))
+                .shopEmoji(rs.getString("shop_emoji"))
+                .customerId(rs.getLong("customer_id"))
+                .customerName(rs.getString("customer_name"))
+                .customerPhone(rs.getString("customer_phone"))
+                .servicesSnapshot(rs.getString("services_snapshot"))
+                .bookingDate(rs.getDate("booking_date").toLocalDate())
+                .slotTime(rs.getTime("slot_time").toLocalTime())
+                .durationMinutes(rs.getInt("duration_minutes"))
+                .seats(rs.getInt("seats"))
+                .totalAmount(rs.getBigDecimal("total_amount"))
+                .platformFee(showFee ? rs.getBigDecimal("platform_fee") : null)
+                .barberEarning(showFee ? rs.getBigDecimal("barber_earning") : null)
+                .status(BookingStatus.valueOf(rs.getString("status")))
+                .cancelReason(rs.getString("cancel_reason"))
+                .rating(rs.getObject("rating") != null ? rs.getInt("rating") : null)
+                .review(rs.getString("review"))
+                .rescheduleDate(rd != null ? rd.toLocalDate() : null)
+                .rescheduleTime(rt != null ? rt.toLocalTime() : null)
+                .rescheduleReason(rs.getString("reschedule_reason"))
+                .rescheduleStatus(rst != null ? RescheduleStatus.valueOf(rst) : null)
+                .createdAt(ca != null ? ca.toLocalDateTime() : null)
+                .build();
+        };
+    }
+
+    private String columns(String table) {
+        List<String> cols = jdbc.getJdbcTemplate().queryForList("""
+            SELECT column_name FROM information_schema.columns
+            WHERE table_schema = DATABASE() AND table_name = ?
+            ORDER BY ordinal_position
+            """, String.class, table);
+        return String.join(", ", cols.stream().map(c -> "`" + c + "`").toList());
+    }
+}
@@ -0,0 +1,38 @@
+package com.trimly.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Batched writes to booking_items. JPA can't batch IDENTITY inserts,
+ * so line items go through a single JDBC batch instead of one INSERT each.
+ */
+@Repository @RequiredArgsConstructor
+public class BookingItemJdbcRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO booking_items (booking_id, shop_id, service_id, service_name, price, duration_minutes)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    public record Row(Long bookingId, Long shopId, Long serviceId,
+                      String serviceName, BigDecimal price, int durationMinutes) {}
+
+    public void insertAll(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.bookingId());
+            ps.setLong(2, r.shopId());
+            ps.setLong(3, r.serviceId());
+            ps.setString(4, r.serviceName());
+            ps.setBigDecimal(5, r.price());
+            ps.setInt(6, r.durationMinutes());
+        });
+    }
+}
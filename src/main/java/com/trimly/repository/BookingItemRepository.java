@@ -0,0 +1,48 @@
+package com.trimly.repository;
+
+import com.trimly.dto.ServiceSalesResponse;
+import com.trimly.entity.BookingItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BookingItemRepository extends JpaRepository<BookingItem, Long> {
+
+    /** Completed sales per service for a shop — GROUP BY on idx_bi_shop_svc */
+    @Query("""
+        SELECT new com.trimly.dto.ServiceSalesResponse(
+                   i.serviceId, MAX(i.serviceName), COUNT(i), SUM(i.price))
+        FROM BookingItem i JOIN i.booking b
+        WHERE i.shop.id = :shopId
+          AND b.status = 'COMPLETED'
+          AND b.bookingDate BETWEEN :from AND :to
+        GROUP BY i.serviceId
+        ORDER BY COUNT(i) DESC
+        """)
+    List<ServiceSalesResponse> salesByService(
+        @Param("shopId") Long shopId,
+        @Param("from")   LocalDate from,
+        @Param("to")     LocalDate to
+    );
+
+    /** Daily completed sales of one service — for the per-service trend chart */
+    @Query("""
+        SELECT b.bookingDate, COUNT(i), SUM(i.price)
+        FROM BookingItem i JOIN i.booking b
+        WHERE i.shop.id = :shopId
+          AND i.serviceId = :serviceId
+          AND b.status = 'COMPLETED'
+          AND b.bookingDate BETWEEN :from AND :to
+        GROUP BY b.bookingDate
+        ORDER BY b.bookingDate
+        """)
+    List<Object[]> dailySalesOfService(
+        @Param("shopId")    Long shopId,
+        @Param("serviceId") Long serviceId,
+        @Param("from")      LocalDate from,
+        @Param("to")        LocalDate to
+    );
+}
@@ -2,13 +2,19 @@ package com.trimly.repository;
 
 import com.trimly.entity.Booking;
 import com.trimly.enums.BookingStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
@@ -31,7 +37,7 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
         WHERE b.shop.id  = :shopId
           AND b.bookingDate = :date
           AND b.slotTime   = :time
-          AND b.status NOT IN ('REJECTED', 'CANCELLED')
+          AND b.status NOT IN ('REJECTED', 'CANCELLED', 'EXPIRED')
         """)
     int countSeatsUsedAtSlot(
         @Param("shopId") Long shopId,
@@ -46,6 +52,9 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("SELECT COALESCE(SUM(b.platformFee),0) FROM Booking b WHERE b.status='COMPLETED'")
     BigDecimal totalPlatformCommission();
 
+    @Query("SELECT COALESCE(SUM(b.totalAmount),0) FROM Booking b WHERE b.status='COMPLETED'")
+    BigDecimal totalRevenue();
+
     /** Count helpers */
     long countByShop_Id(Long shopId);
     long countByShop_IdAndStatus(Long shopId, BookingStatus status);
@@ -53,4 +62,114 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     /** Bookings with a pending reschedule for a given customer */
     List<Booking> findByCustomer_IdAndStatus(Long customerId, BookingStatus status);
+
+    // ── Delta sync — keyset on (updatedAt, id) along idx_bk_*_updated ─────
+
+    @Query("""
+        SELECT b FROM Booking b JOIN FETCH b.shop JOIN FETCH b.customer
+        WHERE b.shop.id = :shopId AND b.updatedAt < :until
+          AND (b.updatedAt > :since OR (b.updatedAt = :since AND b.id > :afterId))
+        ORDER BY b.updatedAt, b.id
+        """)
+    List<Booking> findShopChanges(
+        @Param("shopId")  Long shopId,
+        @Param("since")   LocalDateTime since,
+        @Param("afterId") long afterId,
+        @Param("until")   LocalDateTime until,
+        Pageable page
+    );
+
+    @Query("""
+        SELECT b FROM Booking b JOIN FETCH b.shop JOIN FETCH b.customer
+        WHERE b.customer.id = :customerId AND b.updatedAt < :until
+          AND (b.updatedAt > :since OR (b.updatedAt = :since AND b.id > :afterId))
+        ORDER BY b.updatedAt, b.id
+        """)
+    List<Booking> findCustomerChanges(
+        @Param("customerId") Long customerId,
+        @Param("since")      LocalDateTime since,
+        @Param("afterId")    long afterId,
+        @Param("until")      LocalDateTime until,
+        Pageable page
+    );
+
+    // ── Bulk barber actions ───────────────────────────────────────────────
+
+    /** Row-lock a set of bookings so a bulk transition sees a stable status */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids")
+    List<Booking> lockAllById(@Param("ids") Collection<Long> ids);
+
+    /** One UPDATE for the whole set — bypasses auditing, so updatedAt is set explicitly */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :to, b.updatedAt = :now WHERE b.id IN :ids")
+    int bulkUpdateStatus(
+        @Param("ids") Collection<Long> ids,
+        @Param("to")  BookingStatus to,
+        @Param("now") LocalDateTime now
+    );
+
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :to, b.cancelReason = :reason, b.updatedAt = :now WHERE b.id IN :ids")
+    int bulkUpdateStatusWithReason(
+        @Param("ids")    Collection<Long> ids,
+        @Param("to")     BookingStatus to,
+        @Param("reason") String reason,
+        @Param("now")    LocalDateTime now
+    );
+
+    // ── Scheduled auto-transitions ────────────────────────────────────────
+
+    /** Just enough of a booking to notify about it — no entity loading */
+    interface TransitionRow {
+        Long getId();
+        Long getShopId();
+        Long getCustomerId();
+        String getShopName();
+        String getCustomerPhone();
+        String getCustomerName();
+        String getServicesSnapshot();
+        LocalDate getBookingDate();
+        LocalTime getSlotTime();
+        BigDecimal getTotalAmount();
+    }
+
+    /**
+     * Next chunk of bookings in a status whose slot started at or before the cutoff.
+     * Walks idx_bk_status_slot (status, booking_date, slot_time) in order.
+     */
+    @Query("""
+        SELECT b.id AS id, s.id AS shopId, c.id AS customerId, s.shopName AS shopName,
+               c.phone AS customerPhone, c.fullName AS customerName,
+               b.servicesSnapshot AS servicesSnapshot,
+               b.bookingDate AS bookingDate, b.slotTime AS slotTime, b.totalAmount AS totalAmount
+        FROM Booking b JOIN b.shop s JOIN b.customer c
+        WHERE b.status = :status
+          AND (b.bookingDate < :date OR (b.bookingDate = :date AND b.slotTime <= :time))
+        ORDER BY b.bookingDate, b.slotTime, b.id
+        """)
+    List<TransitionRow> findDueForTransition(
+        @Param("status") BookingStatus status,
+        @Param("date")   LocalDate cutoffDate,
+        @Param("time")   LocalTime cutoffTime,
+        Pageable page
+    );
+
+    /**
+     * Lock those of {@code ids} still in {@code status}; rows another node or
+     * request holds are skipped and come round again on a later run.
+     */
+    @Query(value = "SELECT id FROM bookings WHERE id IN (:ids) AND status = :status FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockInStatus(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    /** Guarded transition — rows that changed status meanwhile are left alone */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :to, b.updatedAt = :now WHERE b.id IN :ids AND b.status = :from")
+    int transitionIfStatus(
+        @Param("ids")  Collection<Long> ids,
+        @Param("from") BookingStatus from,
+        @Param("to")   BookingStatus to,
+        @Param("now")  LocalDateTime now
+    );
 }
@@ -0,0 +1,115 @@
+package com.trimly.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched writes for the recurring-series generator: one JDBC batch for all
+ * bookings of a chunk (generated keys returned in order), one for the
+ * occurrence outcomes and one moving each series' cursor. Auditing does not
+ * run here, so timestamps are explicit.
+ */
+@Repository @RequiredArgsConstructor
+public class BookingSeriesJdbcRepository {
+
+    private static final String INSERT_BOOKING_SQL = """
+        INSERT INTO bookings (shop_id, customer_id, series_id, services_snapshot, booking_date, slot_time,
+                              duration_minutes, seats, total_amount, platform_fee, barber_earning, status,
+                              created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'PENDING', ?, ?)
+        """;
+
+    private static final String INSERT_OCCURRENCE_SQL = """
+        INSERT INTO booking_series_occurrences (series_id, occurrence_date, booking_id, conflict_reason, created_at)
+        VALUES (?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    public record NewBooking(Long shopId, Long customerId, Long seriesId, String servicesSnapshot,
+                             LocalDate date, LocalTime time, int durationMinutes, int seats,
+                             BigDecimal total, BigDecimal fee, BigDecimal earning) {}
+
+    public record Occurrence(Long seriesId, LocalDate date, Long bookingId, String conflictReason) {}
+
+    /** ended = the series ran past its end date */
+    public record Cursor(Long seriesId, LocalDate nextDate, boolean ended) {}
+
+    /** Returns the new booking ids in input order */
+    public List<Long> insertBookings(List<NewBooking> rows, LocalDateTime now) {
+        if (rows.isEmpty()) return List.of();
+        Timestamp ts = Timestamp.valueOf(now);
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate(con -> con.prepareStatement(INSERT_BOOKING_SQL, Statement.RETURN_GENERATED_KEYS),
+            new BatchPreparedStatementSetter() {
+                @Override public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    NewBooking r = rows.get(i);
+                    ps.setLong(1, r.shopId());
+                    ps.setLong(2, r.customerId());
+                    ps.setLong(3, r.seriesId());
+                    ps.setString(4, r.servicesSnapshot());
+                    ps.setDate(5, Date.valueOf(r.date()));
+                    ps.setTime(6, Time.valueOf(r.time()));
+                    ps.setInt(7, r.durationMinutes());
+                    ps.setInt(8, r.seats());
+                    ps.setBigDecimal(9, r.total());
+                    ps.setBigDecimal(10, r.fee());
+                    ps.setBigDecimal(11, r.earning());
+                    ps.setTimestamp(12, ts);
+                    ps.setTimestamp(13, ts);
+                }
+                @Override public int getBatchSize() { return rows.size(); }
+            },
+            keys);
+        return keys.getKeyList().stream()
+            .map(Map::values)
+            .map(v -> ((Number) v.iterator().next()).longValue())
+            .toList();
+    }
+
+    public void insertOccurrences(List<Occurrence> rows, LocalDateTime now) {
+        if (rows.isEmpty()) return;
+        Timestamp ts = Timestamp.valueOf(now);
+        jdbc.batchUpdate(INSERT_OCCURRENCE_SQL, rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.seriesId());
+            ps.setDate(2, Date.valueOf(r.date()));
+            ps.setObject(3, r.bookingId());
+            ps.setString(4, r.conflictReason());
+            ps.setTimestamp(5, ts);
+        });
+    }
+
+    /**
+     * Only next_date and, for a finished series, active are written — never
+     * active = true, so a stop() committed meanwhile is kept.
+     */
+    public void advance(List<Cursor> rows, LocalDateTime now) {
+        if (rows.isEmpty()) return;
+        Timestamp ts = Timestamp.valueOf(now);
+        jdbc.batchUpdate("""
+            UPDATE booking_series SET next_date = ?, active = active AND NOT ?, updated_at = ?
+            WHERE id = ?
+            """, rows, rows.size(), (ps, r) -> {
+            ps.setDate(1, Date.valueOf(r.nextDate()));
+            ps.setBoolean(2, r.ended());
+            ps.setTimestamp(3, ts);
+            ps.setLong(4, r.seriesId());
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.trimly.repository;
+
+import com.trimly.entity.BookingSeries;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface BookingSeriesRepository extends JpaRepository<BookingSeries, Long> {
+
+    /**
+     * Lock the next chunk of series with occurrences inside the horizon — walks
+     * idx_series_due. Series another node is generating are skipped, not waited on.
+     */
+    @Query(value = """
+        SELECT * FROM booking_series
+        WHERE active = true AND next_date <= :horizon
+        ORDER BY next_date, id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<BookingSeries> findDue(@Param("horizon") LocalDate horizon, @Param("limit") int limit);
+
+    /** Lock one series — the generator may be materialising it at the same moment */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BookingSeries s WHERE s.id = :id")
+    Optional<BookingSeries> lockById(@Param("id") Long id);
+
+    /** Targeted, so it cannot rewind a cursor the generator moved meanwhile */
+    @Modifying
+    @Query("UPDATE BookingSeries s SET s.active = false, s.updatedAt = :now WHERE s.id = :id")
+    int deactivate(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    List<BookingSeries> findByCustomerIdOrderByCreatedAtDesc(Long customerId);
+
+    long countByCustomerIdAndActiveTrue(Long customerId);
+}
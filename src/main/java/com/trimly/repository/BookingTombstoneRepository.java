@@ -0,0 +1,29 @@
+package com.trimly.repository;
+
+import com.trimly.entity.BookingTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingTombstoneRepository extends JpaRepository<BookingTombstone, Long> {
+
+    @Query("SELECT COALESCE(MAX(t.id), 0) FROM BookingTombstone t")
+    long maxId();
+
+    @Query("SELECT t FROM BookingTombstone t WHERE t.shopId = :shopId AND t.id > :afterId ORDER BY t.id")
+    List<BookingTombstone> findByShopAfter(@Param("shopId") Long shopId, @Param("afterId") long afterId,
+                                           Pageable page);
+
+    @Query("SELECT t FROM BookingTombstone t WHERE t.customerId = :customerId AND t.id > :afterId ORDER BY t.id")
+    List<BookingTombstone> findByCustomerAfter(@Param("customerId") Long customerId, @Param("afterId") long afterId,
+                                               Pageable page);
+
+    @Modifying
+    @Query("DELETE FROM BookingTombstone t WHERE t.removedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,51 @@
+package com.trimly.repository;
+
+import com.trimly.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndIdemKey(Long userId, String idemKey);
+
+    /**
+     * Claim the key. Returns 0 if another request already holds it; while that
+     * request's transaction is open this blocks on idx_idem_user_key until it
+     * commits (its response is then readable) or rolls back (the claim succeeds).
+     */
+    @Modifying
+    @Query(value = """
+        INSERT IGNORE INTO idempotency_keys (user_id, idem_key, scope, request_hash, status_code, created_at, expires_at)
+        VALUES (:userId, :key, :scope, :hash, 0, :now, :expiresAt)
+        """, nativeQuery = true)
+    int reserve(@Param("userId") Long userId, @Param("key") String key, @Param("scope") String scope,
+                @Param("hash") String hash, @Param("now") LocalDateTime now,
+                @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("""
+        UPDATE IdempotencyRecord r SET r.statusCode = :status, r.responseBody = :body
+        WHERE r.userId = :userId AND r.idemKey = :key
+        """)
+    int complete(@Param("userId") Long userId, @Param("key") String key,
+                 @Param("status") int status, @Param("body") String body);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idemKey = :key")
+    int release(@Param("userId") Long userId, @Param("key") String key);
+
+    /** An expired key may be used again — clear it before reserving */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idemKey = :key AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("userId") Long userId, @Param("key") String key, @Param("now") LocalDateTime now);
+
+    /** Cleanup scheduled job — remove expired keys */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpiredBefore(@Param("now") LocalDateTime now);
+}
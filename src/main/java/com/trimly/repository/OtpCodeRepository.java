@@ -0,0 +1,41 @@
+package com.trimly.repository;
+
+import com.trimly.entity.OtpCode;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface OtpCodeRepository extends JpaRepository<OtpCode, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OtpCode o WHERE o.phone = :phone")
+    Optional<OtpCode> lockByPhone(@Param("phone") String phone);
+
+    /** First code for a phone — 0 when a concurrent request inserted it first */
+    @Modifying
+    @Query(value = """
+        INSERT IGNORE INTO otp_codes (phone, code_hash, issued_at, expires_at, attempts)
+        VALUES (:phone, :hash, :issuedAt, :expiresAt, 0)
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("phone") String phone, @Param("hash") String hash,
+                       @Param("issuedAt") LocalDateTime issuedAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE OtpCode o SET o.attempts = o.attempts + 1 WHERE o.phone = :phone")
+    int incrementAttempts(@Param("phone") String phone);
+
+    /** Delete only the code that was checked — a resend in between keeps its new code */
+    @Modifying
+    @Query("DELETE FROM OtpCode o WHERE o.phone = :phone AND o.issuedAt = :issuedAt")
+    int consume(@Param("phone") String phone, @Param("issuedAt") LocalDateTime issuedAt);
+
+    @Modifying
+    @Query("DELETE FROM OtpCode o WHERE o.expiresAt < :before")
+    int deleteExpiredBefore(@Param("before") LocalDateTime before);
+}
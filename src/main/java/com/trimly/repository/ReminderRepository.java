@@ -0,0 +1,156 @@
+package com.trimly.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JDBC access for ReminderScheduler. Upcoming slots are read along
+ * idx_bk_status_slot; sends are claimed by locking the bookings (or shops)
+ * first and then checking booking_reminders / barber_digests, so two nodes
+ * firing the same reminder serialise and the second one finds the marker.
+ */
+@Repository @RequiredArgsConstructor
+public class ReminderRepository {
+
+    public record Slot(long bookingId, LocalDateTime slotAt) {}
+
+    public record DueReminder(long bookingId, LocalDate bookingDate, LocalTime slotTime, String services,
+                              String customerPhone, String customerName, String shopName) {
+        public LocalDateTime slotAt() { return bookingDate.atTime(slotTime); }
+    }
+
+    public record DigestRow(long shopId, String shopName, String ownerPhone, int bookings, String schedule) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    // ── Reminders ─────────────────────────────────────────────────────────
+
+    /** CONFIRMED bookings with a slot in [from, to) and no reminder for that slot yet */
+    public List<Slot> findUnremindedSlots(LocalDateTime from, LocalDateTime to) {
+        return jdbc.query("""
+            SELECT b.id, b.booking_date, b.slot_time FROM bookings b
+            LEFT JOIN booking_reminders r
+              ON r.booking_id = b.id AND r.booking_date = b.booking_date AND r.slot_time = b.slot_time
+            WHERE b.status = 'CONFIRMED'
+              AND b.booking_date BETWEEN :fromDate AND :toDate
+              AND (b.booking_date > :fromDate OR b.slot_time >= :fromTime)
+              AND (b.booking_date < :toDate   OR b.slot_time <  :toTime)
+              AND r.id IS NULL
+            """,
+            new MapSqlParameterSource()
+                .addValue("fromDate", from.toLocalDate()).addValue("fromTime", from.toLocalTime())
+                .addValue("toDate", to.toLocalDate()).addValue("toTime", to.toLocalTime()),
+            (rs, n) -> new Slot(rs.getLong("id"),
+                rs.getDate("booking_date").toLocalDate().atTime(rs.getTime("slot_time").toLocalTime())));
+    }
+
+    /** The booking's slot if it is CONFIRMED and not yet reminded, else null */
+    public Slot findUnremindedSlot(Long bookingId) {
+        List<Slot> r = jdbc.query("""
+            SELECT b.id, b.booking_date, b.slot_time FROM bookings b
+            WHERE b.id = :id AND b.status = 'CONFIRMED'
+              AND NOT EXISTS (SELECT 1 FROM booking_reminders r WHERE r.booking_id = b.id
+                              AND r.booking_date = b.booking_date AND r.slot_time = b.slot_time)
+            """, Map.of("id", bookingId),
+            (rs, n) -> new Slot(rs.getLong("id"),
+                rs.getDate("booking_date").toLocalDate().atTime(rs.getTime("slot_time").toLocalTime())));
+        return r.isEmpty() ? null : r.get(0);
+    }
+
+    /**
+     * Lock the given bookings and return those still CONFIRMED and unreminded
+     * at their current slot. Call inside a transaction.
+     */
+    public List<DueReminder> lockUnreminded(Collection<Long> ids) {
+        return jdbc.query("""
+            SELECT b.id, b.booking_date, b.slot_time, b.services_snapshot,
+                   c.phone AS customer_phone, c.full_name AS customer_name, s.shop_name
+            FROM bookings b
+            JOIN users c ON c.id = b.customer_id
+            JOIN shops s ON s.id = b.shop_id
+            WHERE b.id IN (:ids) AND b.status = 'CONFIRMED'
+              AND NOT EXISTS (SELECT 1 FROM booking_reminders r WHERE r.booking_id = b.id
+                              AND r.booking_date = b.booking_date AND r.slot_time = b.slot_time)
+            ORDER BY b.id
+            FOR UPDATE OF b
+            """, Map.of("ids", ids),
+            (rs, n) -> new DueReminder(rs.getLong("id"), rs.getDate("booking_date").toLocalDate(),
+                rs.getTime("slot_time").toLocalTime(), rs.getString("services_snapshot"),
+                rs.getString("customer_phone"), rs.getString("customer_name"), rs.getString("shop_name")));
+    }
+
+    public void markReminded(List<DueReminder> sent, LocalDateTime at) {
+        if (sent.isEmpty()) return;
+        MapSqlParameterSource[] batch = sent.stream()
+            .map(r -> new MapSqlParameterSource()
+                .addValue("id", r.bookingId())
+                .addValue("date", r.bookingDate())
+                .addValue("time", r.slotTime())
+                .addValue("at", at))
+            .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+            INSERT INTO booking_reminders (booking_id, booking_date, slot_time, sent_at)
+            VALUES (:id, :date, :time, :at)
+            """, batch);
+    }
+
+    // ── Daily digests ─────────────────────────────────────────────────────
+
+    /**
+     * Next chunk of shops, by id, with PENDING or CONFIRMED bookings on
+     * {@code date} and no digest for it yet. The schedule reads
+     * "9:30 AM Ravi, 10:00 AM Amit, …".
+     */
+    public List<DigestRow> findDigestChunk(LocalDate date, long afterShopId, int limit) {
+        return jdbc.query("""
+            SELECT s.id, s.shop_name, o.phone AS owner_phone, COUNT(*) AS n,
+                   GROUP_CONCAT(CONCAT(TIME_FORMAT(b.slot_time, '%l:%i %p'), ' ', c.full_name)
+                                ORDER BY b.slot_time SEPARATOR ', ') AS schedule
+            FROM bookings b
+            JOIN shops s ON s.id = b.shop_id
+            JOIN users o ON o.id = s.owner_id
+            JOIN users c ON c.id = b.customer_id
+            WHERE b.booking_date = :date AND b.status IN ('PENDING', 'CONFIRMED') AND s.id > :after
+              AND NOT EXISTS (SELECT 1 FROM barber_digests d WHERE d.shop_id = s.id AND d.digest_date = :date)
+            GROUP BY s.id, s.shop_name, o.phone
+            ORDER BY s.id
+            LIMIT :limit
+            """,
+            new MapSqlParameterSource().addValue("date", date).addValue("after", afterShopId).addValue("limit", limit),
+            (rs, n) -> new DigestRow(rs.getLong("id"), rs.getString("shop_name"), rs.getString("owner_phone"),
+                rs.getInt("n"), rs.getString("schedule")));
+    }
+
+    /**
+     * Lock the shops and return those still without a digest for {@code date}.
+     * Call inside a transaction, then {@link #markDigested} the ones sent.
+     */
+    public Set<Long> lockUndigested(Collection<Long> shopIds, LocalDate date) {
+        jdbc.queryForList("SELECT id FROM shops WHERE id IN (:ids) FOR UPDATE", Map.of("ids", shopIds), Long.class);
+        Set<Long> open = new HashSet<>(shopIds);
+        open.removeAll(jdbc.queryForList(
+            "SELECT shop_id FROM barber_digests WHERE digest_date = :date AND shop_id IN (:ids)",
+            new MapSqlParameterSource().addValue("date", date).addValue("ids", shopIds), Long.class));
+        return open;
+    }
+
+    public void markDigested(Collection<Long> shopIds, LocalDate date, LocalDateTime at) {
+        if (shopIds.isEmpty()) return;
+        MapSqlParameterSource[] batch = shopIds.stream()
+            .map(id -> new MapSqlParameterSource().addValue("id", id).addValue("date", date).addValue("at", at))
+            .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate(
+            "INSERT INTO barber_digests (shop_id, digest_date, sent_at) VALUES (:id, :date, :at)", batch);
+    }
+}
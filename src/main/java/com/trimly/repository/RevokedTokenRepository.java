@@ -0,0 +1,32 @@
+package com.trimly.repository;
+
+import com.trimly.entity.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    boolean existsByJti(String jti);
+
+    interface JtiView {
+        Long getId();
+        String getJti();
+    }
+
+    /** Filter (re)build and cross-node catch-up, in id order */
+    @Query("SELECT r.id AS id, r.jti AS jti FROM RevokedToken r WHERE r.id > :afterId AND r.expiresAt > :now ORDER BY r.id")
+    List<JtiView> findLiveAfter(@Param("afterId") Long afterId, @Param("now") LocalDateTime now, Pageable page);
+
+    @Query("SELECT COUNT(r) FROM RevokedToken r WHERE r.expiresAt > :now")
+    long countLive(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpiredBefore(@Param("now") LocalDateTime now);
+}
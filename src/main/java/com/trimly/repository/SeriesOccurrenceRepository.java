@@ -0,0 +1,14 @@
+package com.trimly.repository;
+
+import com.trimly.entity.SeriesOccurrence;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface SeriesOccurrenceRepository extends JpaRepository<SeriesOccurrence, Long> {
+
+    List<SeriesOccurrence> findBySeriesIdInAndOccurrenceDateGreaterThanEqualOrderByOccurrenceDateAsc(
+        Collection<Long> seriesIds, LocalDate from);
+}
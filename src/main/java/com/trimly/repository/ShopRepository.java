@@ -3,9 +3,11 @@ package com.trimly.repository;
 import com.trimly.entity.Shop;
 import com.trimly.enums.ShopStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +16,17 @@ public interface ShopRepository extends JpaRepository<Shop, Long> {
     Optional<Shop> findBySlug(String slug);
     Optional<Shop> findByOwner_Id(Long ownerId);
 
+    interface HeaderView {
+        Long getId();
+        String getShopName();
+        ShopStatus getStatus();
+        BigDecimal getCommissionPercent();
+    }
+
+    /** Just enough to authorise a barber call — no services, no owner */
+    @Query("SELECT s.id AS id, s.shopName AS shopName, s.status AS status, s.commissionPercent AS commissionPercent FROM Shop s WHERE s.owner.id = :ownerId")
+    Optional<HeaderView> findHeaderByOwnerId(@Param("ownerId") Long ownerId);
+
     boolean existsBySlug(String slug);
     long countByStatus(ShopStatus status);
 
@@ -44,4 +57,9 @@ public interface ShopRepository extends JpaRepository<Shop, Long> {
     List<String> findActiveAreasInCity(@Param("city") String city);
 
     List<Shop> findAllByOrderByCreatedAtDesc();
+
+    /** Aggregated counter bump after completing several bookings at once */
+    @Modifying
+    @Query("UPDATE Shop s SET s.totalBookings = s.totalBookings + :n, s.monthlyRevenue = s.monthlyRevenue + :amount WHERE s.id = :id")
+    void addCompletedTotals(@Param("id") Long id, @Param("n") int n, @Param("amount") BigDecimal amount);
 }
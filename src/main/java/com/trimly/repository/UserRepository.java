@@ -6,7 +6,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -20,7 +23,38 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     long countByRole(Role role);
 
+    /** Just the fields authentication and token refresh need — see UserStateCache */
+    interface StateView {
+        boolean isEnabled();
+        Role getRole();
+        LocalDateTime getTokensValidAfter();
+        String getFullName();
+        String getEmail();
+        String getPhone();
+    }
+
+    @Query("""
+        SELECT u.enabled AS enabled, u.role AS role, u.tokensValidAfter AS tokensValidAfter,
+               u.fullName AS fullName, u.email AS email, u.phone AS phone
+        FROM User u WHERE u.id = :id
+        """)
+    Optional<StateView> findStateById(@Param("id") Long id);
+
+    /** Customers sign in by phone, barbers/admin by email */
+    @Query("SELECT u.id FROM User u WHERE u.phone = :username OR u.email = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    /** Rehash-on-login — only the password column, no read-modify-write of the row */
+    @Transactional
     @Modifying
-    @Query("UPDATE User u SET u.otpCode = null, u.otpExpiresAt = null, u.otpAttempts = 0 WHERE u.id = :id")
-    void clearOtp(@Param("id") Long id);
+    @Query("UPDATE User u SET u.password = :hash WHERE u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("hash") String hash);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokensValidAfter = :at WHERE u.id = :id")
+    int setTokensValidAfter(@Param("id") Long id, @Param("at") LocalDateTime at);
+
+    /** Users whose watermark moved since {@code since} — range scan on idx_user_tokens_valid_after */
+    @Query("SELECT u.id FROM User u WHERE u.tokensValidAfter > :since")
+    List<Long> findIdsWithTokensValidAfterSince(@Param("since") LocalDateTime since);
 }
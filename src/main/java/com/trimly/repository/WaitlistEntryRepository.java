@@ -0,0 +1,13 @@
+package com.trimly.repository;
+
+import com.trimly.entity.WaitlistEntry;
+import com.trimly.enums.WaitlistStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, String> {
+
+    /** Startup reload of the in-memory queues, in arrival order */
+    List<WaitlistEntry> findByStatusOrderByCreatedAtAsc(WaitlistStatus status);
+}
@@ -0,0 +1,195 @@
+package com.trimly.repository;
+
+import com.trimly.dto.MessageDeliveryResponse;
+import com.trimly.enums.DeliveryStatus;
+import com.trimly.enums.OutboxStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to wa_outbox. Inserts join the caller's transaction; claims use
+ * {@code FOR UPDATE SKIP LOCKED} so several nodes can dispatch side by side
+ * without taking each other's rows.
+ *
+ * Delivery receipts only move forward (SENT → DELIVERED → READ, or FAILED),
+ * so a webhook that is replayed or arrives out of order never rewinds a row.
+ */
+@Repository @RequiredArgsConstructor
+public class WhatsAppOutboxRepository {
+
+    public record NewMessage(Long bookingId, String phone, String template, String paramsJson) {}
+
+    public record Claimed(long id, String phone, String template, String paramsJson,
+                          int attempts, LocalDateTime createdAt) {}
+
+    public record StatusUpdate(String waMsgId, DeliveryStatus status, LocalDateTime at, String error) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public void insert(List<NewMessage> messages, LocalDateTime now) {
+        if (messages.isEmpty()) return;
+        Timestamp ts = Timestamp.valueOf(now);
+        MapSqlParameterSource[] batch = messages.stream()
+            .map(m -> new MapSqlParameterSource()
+                .addValue("bookingId", m.bookingId())
+                .addValue("phone", m.phone())
+                .addValue("template", m.template())
+                .addValue("params", m.paramsJson())
+                .addValue("now", ts))
+            .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+            INSERT INTO wa_outbox (booking_id, phone, template, params, status, attempts, next_attempt_at, created_at)
+            VALUES (:bookingId, :phone, :template, :params, 'PENDING', 0, :now, :now)
+            """, batch);
+    }
+
+    /**
+     * Claim up to {@code limit} due rows — pending ones, and SENDING ones whose
+     * lease ran out (a dispatcher died mid-batch). Call inside a transaction.
+     */
+    public List<Claimed> claim(LocalDateTime now, LocalDateTime leaseUntil, int limit) {
+        List<Long> ids = jdbc.queryForList("""
+            SELECT id FROM wa_outbox
+            WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now
+            ORDER BY next_attempt_at, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, new MapSqlParameterSource().addValue("now", now).addValue("limit", limit), Long.class);
+        if (ids.isEmpty()) return List.of();
+
+        jdbc.update("UPDATE wa_outbox SET status = 'SENDING', next_attempt_at = :lease WHERE id IN (:ids)",
+            new MapSqlParameterSource().addValue("lease", leaseUntil).addValue("ids", ids));
+        return jdbc.query(
+            "SELECT id, phone, template, params, attempts, created_at FROM wa_outbox WHERE id IN (:ids) ORDER BY id",
+            Map.of("ids", ids),
+            (rs, n) -> new Claimed(rs.getLong("id"), rs.getString("phone"), rs.getString("template"),
+                rs.getString("params"), rs.getInt("attempts"), rs.getTimestamp("created_at").toLocalDateTime()));
+    }
+
+    public void markSent(List<Long> ids, List<String> waMsgIds, LocalDateTime at) {
+        if (ids.isEmpty()) return;
+        MapSqlParameterSource[] batch = new MapSqlParameterSource[ids.size()];
+        for (int i = 0; i < ids.size(); i++)
+            batch[i] = new MapSqlParameterSource()
+                .addValue("id", ids.get(i)).addValue("wamid", waMsgIds.get(i)).addValue("at", at);
+        jdbc.batchUpdate("""
+            UPDATE wa_outbox SET status = 'SENT', attempts = attempts + 1, sent_at = :at, wa_msg_id = :wamid, last_error = NULL
+            WHERE id = :id
+            """, batch);
+        // The booking keeps the id of its latest message, for support lookups
+        jdbc.update("""
+            UPDATE bookings b JOIN wa_outbox o ON o.booking_id = b.id
+            SET b.wa_msg_id = o.wa_msg_id
+            WHERE o.id IN (:ids) AND o.wa_msg_id IS NOT NULL
+            """, Map.of("ids", ids));
+    }
+
+    /** nextAttemptAt null = give up (FAILED) */
+    public void markFailed(List<Long> ids, List<LocalDateTime> nextAttemptAt, List<String> errors) {
+        if (ids.isEmpty()) return;
+        MapSqlParameterSource[] batch = new MapSqlParameterSource[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            LocalDateTime next = nextAttemptAt.get(i);
+            batch[i] = new MapSqlParameterSource()
+                .addValue("id", ids.get(i))
+                .addValue("status", next != null ? "PENDING" : "FAILED")
+                .addValue("next", next != null ? next : LocalDateTime.now())
+                .addValue("err", truncate(errors.get(i)));
+        }
+        jdbc.batchUpdate("""
+            UPDATE wa_outbox SET status = :status, attempts = attempts + 1, next_attempt_at = :next, last_error = :err
+            WHERE id = :id
+            """, batch);
+    }
+
+    /** Hand claimed rows back unsent — no attempt is counted */
+    public void release(List<Long> ids, LocalDateTime nextAttemptAt) {
+        if (ids.isEmpty()) return;
+        jdbc.update("UPDATE wa_outbox SET status = 'PENDING', next_attempt_at = :next WHERE id IN (:ids)",
+            new MapSqlParameterSource().addValue("next", nextAttemptAt).addValue("ids", ids));
+    }
+
+    public long countUndelivered() {
+        Long n = jdbc.getJdbcTemplate().queryForObject(
+            "SELECT COUNT(*) FROM wa_outbox WHERE status IN ('PENDING', 'SENDING')", Long.class);
+        return n != null ? n : 0;
+    }
+
+    // ── Delivery receipts ─────────────────────────────────────────────────
+
+    /**
+     * Apply receipts as one batch. Returns the per-row update counts: 0 when
+     * the message is unknown or already further along.
+     */
+    public int[] applyStatuses(List<StatusUpdate> updates) {
+        MapSqlParameterSource[] batch = updates.stream()
+            .map(u -> new MapSqlParameterSource()
+                .addValue("wamid", u.waMsgId())
+                .addValue("status", u.status().name())
+                .addValue("at", u.at())
+                .addValue("err", truncate(u.error())))
+            .toArray(MapSqlParameterSource[]::new);
+        return jdbc.batchUpdate("""
+            UPDATE wa_outbox SET
+                delivery_status = :status,
+                delivered_at = CASE WHEN :status IN ('DELIVERED', 'READ') THEN COALESCE(delivered_at, :at) ELSE delivered_at END,
+                read_at      = CASE WHEN :status = 'READ' THEN COALESCE(read_at, :at) ELSE read_at END,
+                last_error   = CASE WHEN :status = 'FAILED' THEN :err ELSE last_error END
+            WHERE wa_msg_id = :wamid
+              AND (delivery_status IS NULL
+                   OR FIELD(delivery_status, 'SENT', 'DELIVERED', 'READ', 'FAILED')
+                    < FIELD(:status, 'SENT', 'DELIVERED', 'READ', 'FAILED'))
+            """, batch);
+    }
+
+    /** Which of these message ids have been recorded by the dispatcher */
+    public List<String> findKnownMsgIds(Collection<String> waMsgIds) {
+        if (waMsgIds.isEmpty()) return List.of();
+        return jdbc.queryForList("SELECT wa_msg_id FROM wa_outbox WHERE wa_msg_id IN (:ids)",
+            Map.of("ids", waMsgIds), String.class);
+    }
+
+    /** Messages about one booking, oldest first; phone null = every recipient */
+    public List<MessageDeliveryResponse> findByBooking(Long bookingId, String phone) {
+        MapSqlParameterSource p = new MapSqlParameterSource("id", bookingId);
+        String where = " WHERE booking_id = :id";
+        if (phone != null) {
+            where += " AND phone = :phone";
+            p.addValue("phone", phone);
+        }
+        return jdbc.query(SELECT_DELIVERY + where + " ORDER BY id", p, (rs, n) -> {
+            String ds = rs.getString("delivery_status");
+            return MessageDeliveryResponse.builder()
+                .messageId(rs.getLong("id"))
+                .template(rs.getString("template"))
+                .outboxStatus(OutboxStatus.valueOf(rs.getString("status")))
+                .deliveryStatus(ds != null ? DeliveryStatus.valueOf(ds) : null)
+                .queuedAt(toLocal(rs.getTimestamp("created_at")))
+                .sentAt(toLocal(rs.getTimestamp("sent_at")))
+                .deliveredAt(toLocal(rs.getTimestamp("delivered_at")))
+                .readAt(toLocal(rs.getTimestamp("read_at")))
+                .error(rs.getString("last_error"))
+                .build();
+        });
+    }
+
+    private static final String SELECT_DELIVERY = """
+        SELECT id, template, status, delivery_status, created_at, sent_at, delivered_at, read_at, last_error
+        FROM wa_outbox""";
+
+    private static LocalDateTime toLocal(Timestamp ts) {
+        return ts != null ? ts.toLocalDateTime() : null;
+    }
+
+    private static String truncate(String s) {
+        return s == null || s.length() <= 500 ? s : s.substring(0, 500);
+    }
+}
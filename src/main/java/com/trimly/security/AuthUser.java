@@ -0,0 +1,22 @@
+package com.trimly.security;
+
+import com.trimly.enums.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Authenticated caller, built by JwtAuthFilter from access-token claims —
+ * no User entity is loaded per request. Controllers receive it through
+ * {@code @AuthenticationPrincipal}. shopId is set for barbers (null for
+ * tokens issued before the shop existed); tokenId/tokenExpiresAt identify
+ * the access token itself so logout can revoke it.
+ */
+public record AuthUser(Long id, Role role, Long shopId, String tokenId, Instant tokenExpiresAt) {
+
+    public List<GrantedAuthority> authorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
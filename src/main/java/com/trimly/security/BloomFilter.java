@@ -0,0 +1,72 @@
+package com.trimly.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Add-only Bloom filter over strings, safe for concurrent add/mightContain.
+ * Never gives a false negative; false positives occur at roughly the
+ * configured rate while it holds no more than its expected number of keys.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int  numHashes;
+
+    BloomFilter(long expected, double fpp) {
+        long n = Math.max(expected, 1);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + 63) >>> 6);
+        this.bits      = new AtomicLongArray(words);
+        this.numBits   = (long) words << 6;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+    }
+
+    void add(String key) {
+        long[] h = hash(key);
+        for (int i = 0; i < numHashes; i++) {
+            long bit  = index(h, i);
+            int  word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur;
+            do {
+                cur = bits.get(word);
+                if ((cur & mask) != 0) break;
+            } while (!bits.compareAndSet(word, cur, cur | mask));
+        }
+    }
+
+    boolean mightContain(String key) {
+        long[] h = hash(key);
+        for (int i = 0; i < numHashes; i++) {
+            long bit = index(h, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Kirsch–Mitzenmacher: k indexes from two base hashes */
+    private long index(long[] h, int i) {
+        return Math.floorMod(h[0] + i * h[1], numBits);
+    }
+
+    private static long[] hash(String key) {
+        byte[] b = key.getBytes(StandardCharsets.UTF_8);
+        long h1 = 0x9E3779B97F4A7C15L, h2 = 0xC2B2AE3D27D4EB4FL;
+        for (byte x : b) {
+            h1 = (h1 ^ x) * 0x100000001B3L;
+            h2 = Long.rotateLeft(h2 ^ x, 31) * 0x9E3779B97F4A7C15L;
+        }
+        return new long[]{ mix(h1), mix(h2) | 1 };
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,111 @@
+package com.trimly.security;
+
+import com.trimly.exception.TrimlyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt on a small dedicated pool instead of Tomcat workers.
+ *
+ * At most {@code threads} hashes run at once and {@code queueCapacity} wait;
+ * anything beyond that is refused straight away with 503, so a login burst
+ * cannot occupy every request thread and starve cheap endpoints. Callers
+ * still block for their own result, but only while work is actually queued
+ * for them.
+ *
+ * upgradeEncoding reports any hash whose cost differs from the configured
+ * strength, which DaoAuthenticationProvider uses to rehash on login.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abyx]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final int  strength;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor pool;
+    private final Timer   encodeTimer;
+    private final Timer   matchTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, long timeoutMs, MeterRegistry meters) {
+        this.bcrypt    = new BCryptPasswordEncoder(strength);
+        this.strength  = strength;
+        this.timeoutMs = timeoutMs;
+
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(r, "bcrypt-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meters, pool, "bcrypt");
+
+        this.encodeTimer = Timer.builder("trimly.password.hash").tag("op", "encode").register(meters);
+        this.matchTimer  = Timer.builder("trimly.password.hash").tag("op", "matches").register(meters);
+        this.rejected    = Counter.builder("trimly.password.rejected")
+            .description("Password operations refused because the BCrypt queue was full")
+            .register(meters);
+    }
+
+    @Override
+    public String encode(CharSequence raw) {
+        return run(() -> encodeTimer.record(() -> bcrypt.encode(raw)));
+    }
+
+    @Override
+    public boolean matches(CharSequence raw, String encoded) {
+        return run(() -> matchTimer.record(() -> bcrypt.matches(raw, encoded)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encoded) {
+        if (encoded == null) return false;
+        Matcher m = BCRYPT_COST.matcher(encoded);
+        return m.find() && Integer.parseInt(m.group(1)) != strength;
+    }
+
+    private <T> T run(Callable<T> work) {
+        Future<T> f;
+        try {
+            f = pool.submit(work);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw TrimlyException.unavailable("Server busy. Please try again in a moment.");
+        }
+        try {
+            return f.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            rejected.increment();
+            throw TrimlyException.unavailable("Server busy. Please try again in a moment.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            f.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+}
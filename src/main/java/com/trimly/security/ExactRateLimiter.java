@@ -0,0 +1,45 @@
+package com.trimly.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets kept per exact key, for limits too tight to share a stripe —
+ * with a capacity of 3, one colliding phone or email would use up someone
+ * else's allowance. Same GCRA arithmetic as {@link StripedRateLimiter}, one
+ * AtomicLong per key in a bounded Caffeine cache. An entry idle for a full
+ * period holds a full bucket anyway, so expiring it loses nothing.
+ */
+final class ExactRateLimiter implements KeyedRateLimiter {
+
+    private static final long ORIGIN = System.nanoTime();
+
+    private final Cache<String, AtomicLong> tat;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    ExactRateLimiter(long maxKeys, int capacity, long periodNanos) {
+        this.tat = Caffeine.newBuilder()
+            .maximumSize(maxKeys)
+            .expireAfterAccess(Duration.ofNanos(periodNanos))
+            .build();
+        this.intervalNanos = Math.max(1, periodNanos / Math.max(capacity, 1));
+        this.burstNanos    = intervalNanos * (Math.max(capacity, 1) - 1);
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        AtomicLong t = tat.get(key, k -> new AtomicLong());
+        long now = System.nanoTime() - ORIGIN;
+        while (true) {
+            long cur  = t.get();
+            long base = Math.max(cur, now);
+            long wait = base - burstNanos - now;
+            if (wait > 0) return wait;
+            if (t.compareAndSet(cur, base + intervalNanos)) return 0;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.trimly.security;
 
-import com.trimly.repository.UserRepository;
+import com.trimly.enums.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,18 +12,25 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Date;
 
+/**
+ * Authenticates Bearer requests from the token's claims (user id, role, shop id).
+ * The only lookup is UserStateCache, which rejects disabled or deleted accounts
+ * and tokens whose role no longer matches; TokenRevocationService then drops
+ * tokens revoked by logout or password reset.
+ */
 @Component @RequiredArgsConstructor @Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;
-    private final UserRepository userRepository;
+    private final JwtService     jwtService;
+    private final UserStateCache userStates;
+    private final TokenRevocationService revocations;
 
     @Override
     protected void doFilterInternal(
@@ -37,23 +46,37 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         final String token = header.substring(7);
         try {
-            final String identifier = jwtService.extractUsername(token);
-            if (identifier != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Customers log in by phone, barbers/admin by email
-                UserDetails user = userRepository.findByPhone(identifier)
-                    .or(() -> userRepository.findByEmail(identifier))
-                    .orElse(null);
-
-                if (user != null && jwtService.isValid(token, user)) {
-                    var auth = new UsernamePasswordAuthenticationToken(
-                        user, null, user.getAuthorities());
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                AuthUser user = principal(jwtService.parse(token));
+                if (user != null) {
+                    var auth = new UsernamePasswordAuthenticationToken(user, null, user.authorities());
                     auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(auth);
                 }
             }
-        } catch (Exception e) {
+        } catch (JwtException | IllegalArgumentException e) {
             log.debug("JWT filter: {}", e.getMessage());
         }
         chain.doFilter(request, response);
     }
+
+    private AuthUser principal(Claims claims) {
+        Long userId = claims.get(JwtService.CLAIM_USER_ID, Long.class);
+        if (userId == null && claims.getSubject() != null)   // token issued before the uid claim
+            userId = userStates.idForUsername(claims.getSubject()).orElse(null);
+        if (userId == null) return null;
+
+        UserStateCache.UserState state = userStates.get(userId).orElse(null);
+        if (state == null || !state.enabled()) return null;
+
+        Role role = state.role();
+        String claimedRole = claims.get(JwtService.CLAIM_ROLE, String.class);
+        if (claimedRole != null && !claimedRole.equals("ROLE_" + role.name())) return null;
+
+        if (revocations.isRevoked(claims, state.tokensValidAfter())) return null;
+
+        Date exp = claims.getExpiration();
+        return new AuthUser(userId, role, claims.get(JwtService.CLAIM_SHOP_ID, Long.class),
+            claims.getId(), exp != null ? exp.toInstant() : null);
+    }
 }
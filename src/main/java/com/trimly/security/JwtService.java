@@ -1,71 +1,126 @@
 package com.trimly.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.trimly.entity.User;
+import com.trimly.enums.Role;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles short-lived JWT access tokens (default 24h).
  * Refresh tokens are opaque UUIDs stored in the refresh_tokens table —
  * they are not JWTs and never expire server-side until logout or 30 days.
+ *
+ * The signing key and parser are built once. Each request costs at most one
+ * signature check: verified claims are kept in a small LRU keyed by the
+ * token's SHA-256, and an entry never outlives the token's own exp.
  */
-@Service @Slf4j
+@Service @RequiredArgsConstructor @Slf4j
 public class JwtService {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE    = "role";
+    public static final String CLAIM_SHOP_ID = "sid";
+
+    private final MeterRegistry meters;
+
     @Value("${app.jwt.secret}")
     private String secret;
 
     @Value("${app.jwt.access-expiration-ms:31536000000}")
     private long accessExpirationMs;
 
-    public String generateAccessToken(UserDetails user) {
-        return Jwts.builder()
-            .subject(user.getUsername())           // phone for customers, email for barbers/admin
-            .claim("role", user.getAuthorities().iterator().next().getAuthority())
-            .issuedAt(new Date())
-            .expiration(new Date(System.currentTimeMillis() + accessExpirationMs))
-            .signWith(getKey())
-            .compact();
-    }
+    @Value("${app.jwt.verified-cache.max-size:10000}")   private long verifiedCacheSize;
+    @Value("${app.jwt.verified-cache.max-ttl-seconds:300}") private long verifiedCacheTtlSeconds;
 
-    public boolean isValid(String token, UserDetails user) {
-        try {
-            return extractUsername(token).equals(user.getUsername()) && !isExpired(token);
-        } catch (Exception e) {
-            log.debug("JWT invalid: {}", e.getMessage());
-            return false;
-        }
-    }
+    private SecretKey key;
+    private JwtParser parser;
+    private Cache<String, Claims> verified;   // null when disabled (max-size 0)
+
+    @PostConstruct
+    void init() {
+        key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(key).build();
+        if (verifiedCacheSize <= 0) return;
 
-    public String extractUsername(String token) {
-        return claim(token, Claims::getSubject);
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(verifiedCacheTtlSeconds);
+        verified = Caffeine.newBuilder()
+            .maximumSize(verifiedCacheSize)
+            .expireAfter(new Expiry<String, Claims>() {
+                @Override public long expireAfterCreate(String k, Claims c, long now) {
+                    Date exp = c.getExpiration();
+                    if (exp == null) return maxTtlNanos;
+                    long left = TimeUnit.MILLISECONDS.toNanos(exp.getTime() - System.currentTimeMillis());
+                    return Math.max(0, Math.min(left, maxTtlNanos));
+                }
+                @Override public long expireAfterUpdate(String k, Claims c, long now, long current) { return current; }
+                @Override public long expireAfterRead(String k, Claims c, long now, long current)   { return current; }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meters, verified, "jwt_verified");
     }
 
-    public boolean isExpired(String token) {
-        try {
-            return claim(token, Claims::getExpiration).before(new Date());
-        } catch (Exception e) {
-            return true;
-        }
+    /** Claims carry everything JwtAuthFilter needs, so requests skip the user lookup */
+    public String generateAccessToken(User user, Long shopId) {
+        return generateAccessToken(user.getId(), user.getUsername(), user.getRole(), shopId);
     }
 
-    private <T> T claim(String token, Function<Claims, T> fn) {
-        return fn.apply(Jwts.parser()
-            .verifyWith(getKey()).build()
-            .parseSignedClaims(token).getPayload());
+    /** For callers holding only UserStateCache's view of the user (token refresh) */
+    public String generateAccessToken(Long userId, String username, Role role, Long shopId) {
+        JwtBuilder b = Jwts.builder()
+            .subject(username)                     // phone for customers, email for barbers/admin
+            .claim(CLAIM_USER_ID, userId)
+            .claim(CLAIM_ROLE, "ROLE_" + role.name())
+            .id(UUID.randomUUID().toString());     // jti — lets one token be revoked on logout
+        if (shopId != null) b.claim(CLAIM_SHOP_ID, shopId);
+        return b
+            .issuedAt(new Date())
+            .expiration(new Date(System.currentTimeMillis() + accessExpirationMs))
+            .signWith(key)
+            .compact();
     }
 
-    private SecretKey getKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    /**
+     * Verify signature and expiry — once per distinct token — and return the claims.
+     * @throws JwtException if the token is invalid or expired
+     */
+    public Claims parse(String token) {
+        if (verified == null) return parser.parseSignedClaims(token).getPayload();
+        String h = sha256(token);
+        Claims c = verified.getIfPresent(h);
+        if (c != null) return c;
+        c = parser.parseSignedClaims(token).getPayload();   // throws before anything is cached
+        verified.put(h, c);
+        return c;
     }
 
     public long getAccessExpirationMs() { return accessExpirationMs; }
-}
 
+    private static String sha256(String token) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(d);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);   // SHA-256 is always available
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.trimly.security;
+
+/** A token bucket per key, as checked by RateLimitAspect */
+interface KeyedRateLimiter {
+
+    /** 0 when admitted, otherwise nanos until a token is available */
+    long tryAcquire(String key);
+}
@@ -0,0 +1,115 @@
+package com.trimly.security;
+
+import com.trimly.exception.TrimlyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces {@link RateLimited} on controller methods. Runs before the method
+ * body, so a throttled caller never reaches a service, the database or BCrypt.
+ *
+ * Limits up to {@code exact-max-capacity} keep a bucket per exact key; larger
+ * ones share striped buckets. IP keys use the servlet's remote address, which
+ * server.forward-headers-strategy resolves from X-Forwarded-For when the hop
+ * in front is a trusted proxy.
+ */
+@Aspect @Component @RequiredArgsConstructor
+public class RateLimitAspect {
+
+    private final Environment   env;
+    private final MeterRegistry meters;
+
+    @Value("${app.rate-limit.enabled:true}") private boolean enabled;
+    @Value("${app.rate-limit.stripes:16384}") private int     stripes;
+    @Value("${app.rate-limit.exact-max-capacity:5}") private int  exactMaxCapacity;
+    @Value("${app.rate-limit.exact-max-keys:100000}") private long exactMaxKeys;
+
+    private final SpelExpressionParser    spel  = new SpelExpressionParser();
+    private final ParameterNameDiscoverer names = new DefaultParameterNameDiscoverer();
+
+    private final Map<String, Limit>      limits      = new ConcurrentHashMap<>();
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    private record Limit(KeyedRateLimiter buckets, Counter rejected) {}
+
+    @Before("@annotation(com.trimly.security.RateLimited) || @annotation(com.trimly.security.RateLimited.List)")
+    public void check(JoinPoint jp) {
+        if (!enabled) return;
+        Method m = ((MethodSignature) jp.getSignature()).getMethod();
+        Set<RateLimited> rules = AnnotatedElementUtils.findMergedRepeatableAnnotations(m, RateLimited.class);
+        for (RateLimited r : rules) {
+            Limit limit = limits.computeIfAbsent(r.name(), n -> create(r));
+            long waitNanos = limit.buckets().tryAcquire(key(r, jp, m));
+            if (waitNanos > 0) {
+                limit.rejected().increment();
+                long secs = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+                throw TrimlyException.rateLimit("Too many requests. Try again in " + secs + " seconds.");
+            }
+        }
+    }
+
+    private Limit create(RateLimited r) {
+        String p = "app.rate-limit.limits." + r.name() + ".";
+        int  capacity = env.getProperty(p + "capacity", Integer.class, r.capacity());
+        long period   = env.getProperty(p + "period-seconds", Long.class, r.periodSeconds());
+        long periodNanos = TimeUnit.SECONDS.toNanos(period);
+        return new Limit(
+            capacity <= exactMaxCapacity
+                ? new ExactRateLimiter(exactMaxKeys, capacity, periodNanos)
+                : new StripedRateLimiter(stripes, capacity, periodNanos),
+            Counter.builder("trimly.ratelimit.rejected")
+                .description("Requests rejected by a rate limit")
+                .tag("limit", r.name())
+                .register(meters));
+    }
+
+    private String key(RateLimited r, JoinPoint jp, Method m) {
+        switch (r.by()) {
+            case USER -> {
+                Authentication a = SecurityContextHolder.getContext().getAuthentication();
+                if (a != null && a.getPrincipal() instanceof AuthUser u) return "u:" + u.id();
+            }
+            case ARG -> {
+                Expression e = expressions.computeIfAbsent(r.key(), spel::parseExpression);
+                Object v = e.getValue(new MethodBasedEvaluationContext(null, m, jp.getArgs(), names));
+                if (v != null) return "a:" + v.toString().trim().toLowerCase();
+            }
+            case IP -> { }
+        }
+        return "ip:" + clientIp();   // also the fallback when a user/arg key is missing
+    }
+
+    /** Already the client's address behind a trusted proxy — see server.forward-headers-strategy */
+    private static String clientIp() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes a) {
+            HttpServletRequest req = a.getRequest();
+            return req.getRemoteAddr();
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,39 @@
+package com.trimly.security;
+
+import java.lang.annotation.*;
+
+/**
+ * Token-bucket limit on a controller method, checked by RateLimitAspect before
+ * the method body runs. Repeat the annotation to limit one endpoint by several
+ * keys (e.g. per phone and per IP); every limit must admit the call.
+ *
+ * capacity/periodSeconds are defaults — override them with
+ * {@code app.rate-limit.limits.<name>.capacity} / {@code .period-seconds}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(RateLimited.List.class)
+@Documented
+public @interface RateLimited {
+
+    enum By { IP, USER, ARG }
+
+    /** Limit name — config key and metric tag */
+    String name();
+
+    By by() default By.IP;
+
+    /** SpEL over the method arguments when {@code by = ARG}, e.g. {@code "#req.phone"} */
+    String key() default "";
+
+    /** Burst size */
+    int capacity();
+
+    /** Time to refill a full bucket */
+    long periodSeconds();
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Documented
+    @interface List { RateLimited[] value(); }
+}
@@ -0,0 +1,60 @@
+package com.trimly.security;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free token bucket table for one limit.
+ *
+ * Each stripe is a single long holding the GCRA "theoretical arrival time"
+ * — the token-bucket state folded into one number — updated with CAS, so
+ * there are no locks and no per-key objects: memory is 8 bytes × stripes no
+ * matter how many phones or IPs show up. Keys that hash to the same stripe
+ * share a bucket; the hash is seeded per instance so callers cannot pick a
+ * key that collides with someone else's. Limits with a small capacity use
+ * {@link ExactRateLimiter} instead, where a shared stripe would hurt.
+ */
+final class StripedRateLimiter implements KeyedRateLimiter {
+
+    private static final long ORIGIN = System.nanoTime();
+
+    private final AtomicLongArray tat;
+    private final int  mask;
+    private final long seed = new SecureRandom().nextLong();
+    private final long intervalNanos;   // time to earn one token
+    private final long burstNanos;      // how far tat may run ahead of now
+
+    StripedRateLimiter(int stripes, int capacity, long periodNanos) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        this.tat  = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalNanos = Math.max(1, periodNanos / Math.max(capacity, 1));
+        this.burstNanos    = intervalNanos * (Math.max(capacity, 1) - 1);
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        int  i   = (int) hash(key) & mask;
+        long now = System.nanoTime() - ORIGIN;
+        while (true) {
+            long cur  = tat.get(i);
+            long base = Math.max(cur, now);
+            long wait = base - burstNanos - now;
+            if (wait > 0) return wait;
+            if (tat.compareAndSet(i, cur, base + intervalNanos)) return 0;
+        }
+    }
+
+    /** Seeded FNV-1a with a 64-bit finaliser */
+    private long hash(String key) {
+        long h = seed ^ 0xcbf29ce484222325L;
+        for (int j = 0; j < key.length(); j++) {
+            h ^= key.charAt(j);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
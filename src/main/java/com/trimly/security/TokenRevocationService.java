@@ -0,0 +1,177 @@
+package com.trimly.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trimly.entity.RevokedToken;
+import com.trimly.repository.RevokedTokenRepository;
+import com.trimly.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Revocation for long-lived access tokens, checked by JwtAuthFilter without
+ * touching the database on the normal path.
+ *
+ *  - Watermark: users.tokens_valid_after. Tokens issued before it are dead.
+ *    Set on logout-all and password reset; it travels in UserStateCache, so
+ *    the check is free. Other nodes drop their cached state for users whose
+ *    watermark moved on the same sync poll as single tokens.
+ *  - Single tokens (logout from one device): the jti goes into revoked_tokens
+ *    and an in-memory Bloom filter. A miss — almost every request — is final;
+ *    a hit is confirmed once against the table and the answer cached.
+ *
+ * The filter is rebuilt at startup and every rebuild-cron from rows not yet
+ * expired, which is also how expired entries leave it. Other nodes pick up
+ * new rows by polling the table by id.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository    revokedRepo;
+    private final UserRepository            userRepo;
+    private final ApplicationEventPublisher events;
+    private final MeterRegistry             meters;
+
+    @Value("${app.security.revocation.expected-entries:100000}") private long   expectedEntries;
+    @Value("${app.security.revocation.false-positive-rate:0.001}") private double fpp;
+    @Value("${app.security.revocation.load-page-size:5000}")     private int    loadPageSize;
+    @Value("${app.security.revocation.watermark-overlap-seconds:60}") private long watermarkOverlapSeconds;
+
+    private volatile BloomFilter filter;   // null until the first build — only the watermark applies then
+    private volatile long        lastSeenId;
+    private volatile LocalDateTime watermarksSince = LocalDateTime.now();
+    private final Cache<String, Boolean> confirmed = Caffeine.newBuilder()
+        .maximumSize(10_000).expireAfterWrite(Duration.ofHours(1)).build();
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        rejected = Counter.builder("trimly.jwt.revoked.rejected")
+            .description("Requests carrying a revoked access token")
+            .register(meters);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+    }
+
+    // ── Checks (per request) ──────────────────────────────────────────────
+
+    /** tokensValidAfter is the watermark from UserStateCache (null when never set) */
+    public boolean isRevoked(Claims claims, LocalDateTime tokensValidAfter) {
+        if (tokensValidAfter != null) {
+            Date iat = claims.getIssuedAt();
+            if (iat == null || toLocal(iat.toInstant()).isBefore(tokensValidAfter)) return reject();
+        }
+        String jti = claims.getId();
+        BloomFilter f = filter;
+        if (jti == null || f == null || !f.mightContain(jti)) return false;
+        return confirmed.get(jti, revokedRepo::existsByJti) && reject();
+    }
+
+    // ── Revoking ──────────────────────────────────────────────────────────
+
+    /** This one token only — logout from the current device */
+    @Transactional
+    public void revoke(String jti, Long userId, Instant expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.isBefore(Instant.now())) return;
+        if (revokedRepo.existsByJti(jti)) return;
+        revokedRepo.save(RevokedToken.builder()
+            .jti(jti).userId(userId).expiresAt(toLocal(expiresAt)).build());
+        BloomFilter f = filter;
+        if (f != null) f.add(jti);
+        confirmed.invalidate(jti);
+    }
+
+    /**
+     * Every access token the user holds right now. iat has whole-second
+     * precision, so the watermark is rounded up: a token issued earlier in the
+     * same second is dead too (as is one issued later in it, a harmless re-login).
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime second = now.truncatedTo(ChronoUnit.SECONDS);
+        userRepo.setTokensValidAfter(userId, second.equals(now) ? second : second.plusSeconds(1));
+        events.publishEvent(new UserStateChangedEvent(userId));   // bulk UPDATE skips the entity listener
+    }
+
+    // ── Filter maintenance ────────────────────────────────────────────────
+
+    /** Fresh filter from live rows — drops everything that has expired since the last build */
+    @Scheduled(cron = "${app.security.revocation.rebuild-cron:0 30 3 * * *}")
+    @Transactional
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedRepo.deleteExpiredBefore(now);
+        long live = revokedRepo.countLive(now);
+        BloomFilter next = new BloomFilter(Math.max(expectedEntries, live * 2), fpp);
+        long last = load(next, 0L, now);
+        filter = next;
+        lastSeenId = last;
+        confirmed.invalidateAll();
+        log.info("Revocation filter rebuilt with {} live tokens", live);
+    }
+
+    /**
+     * Pick up tokens revoked and watermarks moved on other nodes. The
+     * watermark scan overlaps the previous one, since a watermark can commit a
+     * while after it was stamped; re-invalidating a user is harmless.
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.sync-ms:10000}")
+    @Transactional(readOnly = true)
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        userRepo.findIdsWithTokensValidAfterSince(watermarksSince)
+            .forEach(id -> events.publishEvent(new UserStateChangedEvent(id)));   // UserStateCache drops it after this commits
+        watermarksSince = now.minusSeconds(watermarkOverlapSeconds);
+
+        BloomFilter f = filter;
+        if (f == null) return;
+        lastSeenId = load(f, lastSeenId, now);
+    }
+
+    private long load(BloomFilter f, long afterId, LocalDateTime now) {
+        long last = afterId;
+        List<RevokedTokenRepository.JtiView> page;
+        do {
+            page = revokedRepo.findLiveAfter(last, now, Pageable.ofSize(loadPageSize));
+            for (RevokedTokenRepository.JtiView v : page) {
+                f.add(v.getJti());
+                confirmed.invalidate(v.getJti());
+                last = v.getId();
+            }
+        } while (page.size() == loadPageSize);
+        return last;
+    }
+
+    private boolean reject() {
+        rejected.increment();
+        return true;
+    }
+
+    private static LocalDateTime toLocal(Instant i) {
+        return LocalDateTime.ofInstant(i, ZoneId.systemDefault());
+    }
+}
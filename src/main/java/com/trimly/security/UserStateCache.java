@@ -0,0 +1,77 @@
+package com.trimly.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trimly.enums.Role;
+import com.trimly.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * The only per-request user lookup left in authentication: whether the
+ * account still exists, is enabled, has the role the token claims, and its
+ * token watermark (tokensValidAfter). The few profile fields a token refresh
+ * returns ride along, so a refresh never loads the User either.
+ *
+ * Bounded Caffeine cache, invalidated after commit whenever a User row changes
+ * (UserStateChangedEvent). The TTL is only a safety net for changes made
+ * outside JPA. Unknown ids are cached too, so a stale token cannot hammer
+ * the database.
+ */
+@Component @RequiredArgsConstructor
+public class UserStateCache {
+
+    public record UserState(boolean enabled, Role role, LocalDateTime tokensValidAfter,
+                            String fullName, String email, String phone) {
+        /** Same as User.getUsername(): email for barbers/admin, phone for customers */
+        public String username() { return email != null ? email : phone; }
+    }
+
+    private final UserRepository userRepo;
+    private final MeterRegistry  meters;
+
+    @Value("${app.security.user-state.max-size:10000}")  private long maxSize;
+    @Value("${app.security.user-state.ttl-seconds:300}") private long ttlSeconds;
+
+    private Cache<Long, Optional<UserState>> states;
+    private Cache<String, Optional<Long>>    legacyIds;
+
+    @PostConstruct
+    void init() {
+        states = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        legacyIds = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .build();
+        CaffeineCacheMetrics.monitor(meters, states, "user_state");
+    }
+
+    public Optional<UserState> get(Long userId) {
+        return states.get(userId, id -> userRepo.findStateById(id)
+            .map(v -> new UserState(v.isEnabled(), v.getRole(), v.getTokensValidAfter(),
+                v.getFullName(), v.getEmail(), v.getPhone())));
+    }
+
+    /** Tokens issued before the uid claim carry only the phone/email subject */
+    public Optional<Long> idForUsername(String username) {
+        return legacyIds.get(username, userRepo::findIdByUsername);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(UserStateChangedEvent e) {
+        states.invalidate(e.userId());
+    }
+}
@@ -0,0 +1,4 @@
+package com.trimly.security;
+
+/** A user row changed — cached auth state for it must be reloaded */
+public record UserStateChangedEvent(Long userId) {}
@@ -0,0 +1,25 @@
+package com.trimly.security;
+
+import com.trimly.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on User: any update or delete publishes a UserStateChangedEvent,
+ * so disabling an account or changing a role reaches UserStateCache without
+ * every caller having to remember to invalidate it.
+ */
+@Component @RequiredArgsConstructor
+public class UserStateListener {
+
+    private final ApplicationEventPublisher events;
+
+    @PostUpdate
+    @PostRemove
+    void changed(User user) {
+        events.publishEvent(new UserStateChangedEvent(user.getId()));
+    }
+}
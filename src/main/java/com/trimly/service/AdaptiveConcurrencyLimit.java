@@ -0,0 +1,48 @@
+package com.trimly.service;
+
+/**
+ * Gradient-style concurrency limit driven by observed latency.
+ *
+ * Tracks the best recent round-trip (the no-load RTT) and each sample's RTT.
+ * While samples stay near the best, the limit grows by about √limit; as
+ * latency rises the gradient (best / current) shrinks it proportionally, and
+ * a dropped call (timeout, 429, 5xx) cuts it by 10%. The best RTT is
+ * forgotten every {@code probeEvery} samples so a lasting change in the
+ * remote's speed is eventually accepted as the new normal.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;   // latency slack before the limit shrinks
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int probeEvery;
+
+    private double limit;
+    private long   bestRttNanos = Long.MAX_VALUE;
+    private int    samples;
+
+    AdaptiveConcurrencyLimit(int initial, int minLimit, int maxLimit, int probeEvery) {
+        this.minLimit   = minLimit;
+        this.maxLimit   = maxLimit;
+        this.probeEvery = probeEvery;
+        this.limit      = Math.max(minLimit, Math.min(maxLimit, initial));
+    }
+
+    synchronized int current() {
+        return (int) limit;
+    }
+
+    synchronized void onSample(long rttNanos, boolean dropped) {
+        if (++samples % probeEvery == 0) bestRttNanos = Long.MAX_VALUE;
+        if (dropped) {
+            limit = Math.max(minLimit, limit * 0.9);
+            return;
+        }
+        bestRttNanos = Math.min(bestRttNanos, rttNanos);
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * bestRttNanos / (double) rttNanos));
+        double target   = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+}
@@ -1,29 +1,29 @@
 package com.trimly.service;
 
 import com.trimly.dto.*;
-import com.trimly.entity.RefreshToken;
 import com.trimly.entity.Shop;
 import com.trimly.entity.User;
 import com.trimly.enums.Role;
 import com.trimly.enums.ShopStatus;
 import com.trimly.exception.TrimlyException;
-import com.trimly.repository.RefreshTokenRepository;
 import com.trimly.repository.ShopRepository;
 import com.trimly.repository.UserRepository;
 import com.trimly.security.JwtService;
+import com.trimly.security.TokenRevocationService;
+import com.trimly.security.UserStateCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.UUID;
 
 /**
@@ -38,14 +38,17 @@ public class AuthService {
 
     private final UserRepository         userRepo;
     private final ShopRepository         shopRepo;
-    private final RefreshTokenRepository rtRepo;
+    private final RefreshTokenStore      refreshTokens;
+    private final ShopDirectory          shops;
+    private final TokenRevocationService revocations;
+    private final UserStateCache         userStates;
     private final PasswordEncoder        encoder;
     private final JwtService             jwt;
     private final AuthenticationManager  authManager;
     private final WhatsAppService        whatsApp;
+    private final OtpService             otps;
 
     @Value("${app.platform.otp-expiry-minutes:10}")      private int  otpExpiryMinutes;
-    @Value("${app.platform.max-otp-attempts:3}")          private int  maxOtpAttempts;
     @Value("${app.platform.commission-pct:10}")           private int  defaultCommissionPct;
     @Value("${app.jwt.refresh-expiration-ms:315360000000}") private long refreshExpirationMs;
 
@@ -53,28 +56,9 @@ public class AuthService {
 
     // ── Customer OTP ──────────────────────────────────────────────────────
 
-    @Transactional
     public void sendCustomerOtp(String phone) {
-        User user = userRepo.findByPhone(phone).orElse(null);
-
-        // Rate-limit: block if OTP sent in last 60 seconds
-        if (user != null && user.getOtpExpiresAt() != null
-                && user.getOtpExpiresAt().isAfter(
-                    LocalDateTime.now().plusMinutes(otpExpiryMinutes - 1))) {
-            throw TrimlyException.rateLimit("Please wait 60 seconds before requesting another OTP.");
-        }
-
-        if (user == null) {
-            // First-time user — create stub, name set on first verify
-            user = userRepo.save(User.builder()
-                .fullName("").phone(phone).role(Role.CUSTOMER).build());
-        }
-
         String code = "123456"; //generateOtp();
-        user.setOtpCode(encoder.encode(code));
-        user.setOtpExpiresAt(LocalDateTime.now().plusMinutes(otpExpiryMinutes));
-        user.setOtpAttempts(0);
-        userRepo.save(user);
+        otps.issue(phone, code);   // enforces the resend cooldown
 
 //        whatsApp.sendOtp(phone, code, String.valueOf(otpExpiryMinutes));
         log.info("OTP sent to +91{} , otp:{}", phone,code);
@@ -82,22 +66,11 @@ public class AuthService {
 
     @Transactional
     public AuthResponse verifyCustomerOtp(VerifyOtpRequest req, String deviceInfo) {
-        User user = userRepo.findByPhone(req.getPhone())
-            .orElseThrow(() -> TrimlyException.notFound("Phone not found. Request OTP first."));
-
-        if (user.getOtpAttempts() >= maxOtpAttempts)
-            throw TrimlyException.rateLimit("Too many attempts. Request a new OTP.");
-
-        if (user.getOtpExpiresAt() == null || user.getOtpExpiresAt().isBefore(LocalDateTime.now()))
-            throw TrimlyException.badRequest("OTP expired. Request a new one.");
-
-        if (!encoder.matches(req.getOtp(), user.getOtpCode())) {
-            user.setOtpAttempts(user.getOtpAttempts() + 1);
-            userRepo.save(user);
-            int left = maxOtpAttempts - user.getOtpAttempts();
-            throw TrimlyException.badRequest("Wrong OTP. " + left + " attempt(s) left.");
-        }
+        otps.verify(req.getPhone(), req.getOtp());
 
+        // First-time user — account created once the phone is proven
+        User user = userRepo.findByPhone(req.getPhone())
+            .orElseGet(() -> User.builder().fullName("").phone(req.getPhone()).role(Role.CUSTOMER).build());
         boolean isNew = user.getFullName().isBlank();
 
         if (req.getFullName() != null && !req.getFullName().isBlank())
@@ -105,8 +78,7 @@ public class AuthService {
         else if (isNew)
             user.setFullName("User");
 
-        userRepo.clearOtp(user.getId());
-        userRepo.save(user);
+        user = userRepo.save(user);
 
         log.info("OTP verified for +91{} (new={})", req.getPhone(), isNew);
         return issueTokens(user, null, deviceInfo, isNew);
@@ -119,7 +91,8 @@ public class AuthService {
         try {
             authManager.authenticate(
                 new UsernamePasswordAuthenticationToken(email, req.getPassword()));
-        } catch (Exception e) {
+        } catch (AuthenticationException e) {
+            // Only a failed check — BoundedPasswordEncoder's 503 when hashing is saturated passes through
             throw TrimlyException.unauth("Invalid email or password.");
         }
 
@@ -142,51 +115,62 @@ public class AuthService {
 
     // ── Refresh — silent token renewal without OTP/password ───────────────
 
-    @Transactional
     public AuthResponse refresh(String rawToken, String deviceInfo) {
-        RefreshToken rt = rtRepo.findByToken(rawToken)
+        RefreshTokenStore.Session rt = refreshTokens.find(rawToken)
             .orElseThrow(() -> TrimlyException.unauth("Session not found. Please login again."));
 
         if (rt.isExpired()) {
-            rtRepo.delete(rt);
+            refreshTokens.delete(rawToken, rt);
             throw TrimlyException.unauth("Session expired. Please login again.");
         }
 
-        User user = rt.getUser();
-        if (!user.isEnabled())
+        // Cached and kept fresh across nodes; the only database read left is stillActive's primary-key check
+        UserStateCache.UserState user = userStates.get(rt.userId())
+            .orElseThrow(() -> TrimlyException.unauth("Session not found. Please login again."));
+        if (!user.enabled())
             throw TrimlyException.forbidden("Account disabled.");
+        // A cached copy on this node can outlive a logout or reset handled by another one
+        if (rt.predates(user.tokensValidAfter())) {
+            refreshTokens.delete(rawToken, rt);
+            throw TrimlyException.unauth("Session ended. Please login again.");
+        }
+        if (!refreshTokens.stillActive(rawToken, rt))
+            throw TrimlyException.unauth("Session ended. Please login again.");
 
-        rt.setLastUsedAt(LocalDateTime.now());
-        rtRepo.save(rt);
+        refreshTokens.touch(rawToken, rt);
 
-        Shop shop = user.getRole() == Role.BARBER
-            ? shopRepo.findByOwner_Id(user.getId()).orElse(null) : null;
+        ShopDirectory.ShopHeader shop = user.role() == Role.BARBER
+            ? shops.find(rt.userId()).orElse(null) : null;
 
         // New access token, same refresh token — stays alive until logout
         return AuthResponse.builder()
-            .accessToken(jwt.generateAccessToken(user))
+            .accessToken(jwt.generateAccessToken(rt.userId(), user.username(), user.role(),
+                shop != null ? shop.id() : null))
             .refreshToken(rawToken)
             .accessTokenExpiresIn(jwt.getAccessExpirationMs())
             .refreshTokenExpiresIn(
-                java.time.Duration.between(LocalDateTime.now(), rt.getExpiresAt()).toMillis())
+                java.time.Duration.between(LocalDateTime.now(), rt.expiresAt()).toMillis())
             .isNewUser(false)
-            .user(buildUserInfo(user, shop))
+            .user(buildUserInfo(rt.userId(), user, shop))
             .build();
     }
 
     // ── Logout — the ONLY way a session ends ──────────────────────────────
 
     @Transactional
-    public void logout(Long userId, LogoutRequest req) {
+    public void logout(Long userId, String accessTokenId, Instant accessExpiresAt, LogoutRequest req) {
         if (req != null && req.isAllDevices()) {
-            rtRepo.deleteAllByUserId(userId);
+            refreshTokens.revokeAll(userId);
+            revocations.revokeAll(userId);
             log.info("User {} logged out from all devices", userId);
         } else if (req != null && req.getRefreshToken() != null) {
-            rtRepo.deleteByToken(req.getRefreshToken());
+            refreshTokens.revoke(req.getRefreshToken());
+            revocations.revoke(accessTokenId, userId, accessExpiresAt);
             log.info("User {} logged out from current device", userId);
         } else {
             // Fallback — logout all
-            rtRepo.deleteAllByUserId(userId);
+            refreshTokens.revokeAll(userId);
+            revocations.revokeAll(userId);
         }
     }
 
@@ -258,34 +242,30 @@ public class AuthService {
         user.setResetToken(null);
         user.setResetTokenExpiresAt(null);
         // Invalidate all sessions on password change for security
-        rtRepo.deleteAllByUserId(user.getId());
+        refreshTokens.revokeAll(user.getId());
+        revocations.revokeAll(user.getId());
         userRepo.save(user);
         log.info("Password reset for {}", user.getEmail());
     }
 
-    // ── Scheduled cleanup (runs 3 AM daily) ───────────────────────────────
+    // ── Current user ──────────────────────────────────────────────────────
 
-    @Scheduled(cron = "0 0 3 * * *")
-    @Transactional
-    public void cleanupExpiredTokens() {
-        rtRepo.deleteExpiredBefore(LocalDateTime.now());
-        log.info("Refresh token cleanup complete");
+    @Transactional(readOnly = true)
+    public UserInfo me(Long userId) {
+        User user = userRepo.findById(userId)
+            .orElseThrow(() -> TrimlyException.notFound("User not found"));
+        Shop shop = user.getRole() == Role.BARBER
+            ? shopRepo.findByOwner_Id(userId).orElse(null) : null;
+        return buildUserInfo(user, shop);
     }
 
     // ── Helpers ────────────────────────────────────────────────────────────
 
     private AuthResponse issueTokens(User user, Shop shop, String deviceInfo, boolean isNew) {
-        String rawRefresh = generateRefreshToken();
-        rtRepo.save(RefreshToken.builder()
-            .user(user)
-            .token(rawRefresh)
-            .deviceInfo(deviceInfo)
-            .expiresAt(LocalDateTime.now().plusSeconds(refreshExpirationMs / 1000))
-            .lastUsedAt(LocalDateTime.now())
-            .build());
+        String rawRefresh = refreshTokens.issue(user, deviceInfo);
 
         return AuthResponse.builder()
-            .accessToken(jwt.generateAccessToken(user))
+            .accessToken(jwt.generateAccessToken(user, shop != null ? shop.getId() : null))
             .refreshToken(rawRefresh)
             .accessTokenExpiresIn(jwt.getAccessExpirationMs())
             .refreshTokenExpiresIn(refreshExpirationMs)
@@ -307,14 +287,34 @@ public class AuthService {
             .build();
     }
 
-    private String generateOtp() {
-        return String.format("%06d", rng.nextInt(1_000_000));
+    private UserInfo buildUserInfo(User user, ShopDirectory.ShopHeader shop) {
+        return UserInfo.builder()
+            .id(user.getId())
+            .fullName(user.getFullName())
+            .email(user.getEmail())
+            .phone(user.getPhone())
+            .role(user.getRole())
+            .shopId(shop != null ? shop.id() : null)
+            .shopName(shop != null ? shop.shopName() : null)
+            .shopStatus(shop != null ? shop.status() : null)
+            .build();
+    }
+
+    private UserInfo buildUserInfo(Long userId, UserStateCache.UserState user, ShopDirectory.ShopHeader shop) {
+        return UserInfo.builder()
+            .id(userId)
+            .fullName(user.fullName())
+            .email(user.email())
+            .phone(user.phone())
+            .role(user.role())
+            .shopId(shop != null ? shop.id() : null)
+            .shopName(shop != null ? shop.shopName() : null)
+            .shopStatus(shop != null ? shop.status() : null)
+            .build();
     }
 
-    private String generateRefreshToken() {
-        byte[] b = new byte[48];
-        rng.nextBytes(b);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+    private String generateOtp() {
+        return String.format("%06d", rng.nextInt(1_000_000));
     }
 
     private String makeSlug(String name) {
@@ -0,0 +1,98 @@
+package com.trimly.service;
+
+import com.trimly.enums.BookingStatus;
+import com.trimly.repository.BookingArchiveRepository;
+import com.trimly.repository.BookingTombstoneRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the hot bookings table small: closed bookings (completed, cancelled,
+ * rejected, expired) older than the retention horizon are moved — with their
+ * line items — into bookings_archive / booking_items_archive.
+ *
+ * Runs nightly in primary-key chunks, one short transaction per chunk, with a
+ * pause between chunks and a wall-clock budget per run so replicas keep up.
+ * Customer and barber history views read the archive on request.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class BookingArchivalJob {
+
+    private static final Set<BookingStatus> CLOSED = EnumSet.of(
+        BookingStatus.COMPLETED, BookingStatus.CANCELLED, BookingStatus.REJECTED, BookingStatus.EXPIRED);
+
+    private final BookingArchiveRepository   archiveRepo;
+    private final BookingTombstoneRepository tombstoneRepo;
+    private final PlatformTransactionManager txManager;
+    private final MeterRegistry              meters;
+
+    @Value("${app.booking.archive.enabled:true}")        private boolean enabled;
+    @Value("${app.booking.archive.horizon-days:365}")    private int     horizonDays;
+    @Value("${app.booking.archive.chunk-size:500}")      private int     chunkSize;
+    @Value("${app.booking.archive.pause-ms:500}")        private long    pauseMs;
+    @Value("${app.booking.archive.max-run-minutes:30}")  private int     maxRunMinutes;
+    @Value("${app.sync.tombstone-retention-days:90}")    private int     tombstoneRetentionDays;
+
+    private TransactionTemplate tx;
+    private Counter archivedRows;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(txManager);
+        archivedRows = Counter.builder("trimly.bookings.archived.rows").register(meters);
+    }
+
+    /**
+     * After Hibernate has created/updated the hot tables the archive copies.
+     * Created even with archiving off — dashboard totals read them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createArchiveTables() {
+        archiveRepo.ensureTables();
+    }
+
+    @Scheduled(cron = "${app.booking.archive.cron:0 0 4 * * *}")
+    public void run() {
+        if (!enabled) return;
+        LocalDate before = LocalDate.now().minusDays(horizonDays);
+        long deadline = System.currentTimeMillis() + maxRunMinutes * 60_000L;
+        int total = 0;
+
+        while (System.currentTimeMillis() < deadline) {
+            List<Long> ids = archiveRepo.findIdsToArchive(CLOSED, before, chunkSize);
+            if (ids.isEmpty()) break;
+            Integer moved = tx.execute(s -> archiveRepo.moveToArchive(ids));
+            total += moved != null ? moved : 0;
+            archivedRows.increment(ids.size());
+            if (ids.size() < chunkSize) break;
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) log.info("Archived {} closed booking(s) older than {}", total, before);
+
+        // Clients with an older sync cursor are sent a full resync instead
+        Integer pruned = tx.execute(s -> tombstoneRepo.deleteOlderThan(
+            LocalDateTime.now().minusDays(tombstoneRetentionDays)));
+        if (pruned != null && pruned > 0) log.info("Pruned {} booking tombstone(s)", pruned);
+    }
+}
@@ -0,0 +1,29 @@
+package com.trimly.service;
+
+import com.trimly.entity.Booking;
+import com.trimly.enums.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by BookingService (and BookingExpiryJob) whenever a booking changes state.
+ * Listeners use @TransactionalEventListener, so they only see committed changes.
+ */
+public record BookingEvent(Type type, Long bookingId, Long shopId, Long customerId,
+                           BookingStatus status, LocalDateTime at) {
+
+    public enum Type {
+        CREATED, ACCEPTED, REJECTED, CANCELLED, COMPLETED, EXPIRED,
+        RESCHEDULE_REQUESTED, RESCHEDULE_RESPONDED
+    }
+
+    public static BookingEvent of(Type type, Booking b) {
+        return of(type, b, b.getStatus());
+    }
+
+    /** For bulk updates, where the loaded entity still carries the old status */
+    public static BookingEvent of(Type type, Booking b, BookingStatus status) {
+        return new BookingEvent(type, b.getId(), b.getShop().getId(), b.getCustomer().getId(),
+            status, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,229 @@
+package com.trimly.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process pub/sub for live dashboards over Server-Sent Events.
+ *
+ * Topics are {@code shop:<id>} (one per barber) and {@code admin}. Each
+ * subscriber gets a bounded queue drained by a small sender pool, so a slow
+ * client never blocks the publisher; when its queue overflows the client is
+ * disconnected and expected to reconnect with Last-Event-ID.
+ *
+ * Each topic keeps a short ring buffer of recent events for that replay.
+ * Event ids are seeded from the clock, so they keep increasing across
+ * restarts. They are shared by all topics, so ids within one topic have gaps;
+ * each topic therefore remembers the newest id it has evicted, and only a
+ * client whose Last-Event-ID is older than that (or than this process) gets
+ * a single {@code resync} event and should reload its list.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class BookingEventHub {
+
+    public static final String ADMIN_TOPIC = "admin";
+
+    private final MeterRegistry meters;
+
+    @Value("${app.sse.subscriber-buffer:64}")     private int  subscriberBuffer;
+    @Value("${app.sse.replay-size:256}")          private int  replaySize;
+    @Value("${app.sse.emitter-timeout-minutes:30}") private long emitterTimeoutMinutes;
+    @Value("${app.sse.sender-threads:2}")         private int  senderThreads;
+
+    private final long          startSeq    = System.currentTimeMillis() * 1000;
+    private final AtomicLong    seq         = new AtomicLong(startSeq);
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    private ExecutorService sender;
+    private Counter dropped;
+
+    private record Stored(long id, BookingEvent event) {}
+
+    @PostConstruct
+    void init() {
+        AtomicInteger n = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "sse-sender-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("trimly.sse.subscribers", subscribers, AtomicInteger::get).register(meters);
+        dropped = Counter.builder("trimly.sse.subscribers.dropped")
+            .description("Subscribers disconnected because their buffer overflowed")
+            .register(meters);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        topics.values().forEach(t -> t.subs.forEach(Subscriber::close));
+        sender.shutdownNow();
+    }
+
+    public static String shopTopic(Long shopId) { return "shop:" + shopId; }
+
+    // ── Subscribe ─────────────────────────────────────────────────────────
+
+    public SseEmitter subscribe(String topicName, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(emitterTimeoutMinutes).toMillis());
+        Topic topic = topics.computeIfAbsent(topicName, k -> new Topic(startSeq));
+        Subscriber sub = new Subscriber(emitter, topic);
+        emitter.onCompletion(sub::detach);
+        emitter.onTimeout(sub::close);
+        emitter.onError(e -> sub.close());
+
+        Long after = parseId(lastEventId);
+        synchronized (topic) {
+            // Register and replay under the publish lock — no gap, no duplicates
+            topic.subs.add(sub);
+            subscribers.incrementAndGet();
+            if (after != null) replay(topic, sub, after);
+        }
+        sub.offer(SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    private void replay(Topic topic, Subscriber sub, long after) {
+        if (after < topic.evictedUpTo) {   // missed events are gone (or predate this process)
+            sub.offer(SseEmitter.event().name("resync").data("{}", MediaType.APPLICATION_JSON));
+            return;
+        }
+        for (Stored s : topic.ring)
+            if (s.id() > after && !sub.offer(toSse(s))) return;
+    }
+
+    // ── Publish ───────────────────────────────────────────────────────────
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookingEvent e) {
+        publish(shopTopic(e.shopId()), e);
+        publish(ADMIN_TOPIC, e);
+    }
+
+    private void publish(String topicName, BookingEvent e) {
+        Topic topic = topics.computeIfAbsent(topicName, k -> new Topic(startSeq));
+        synchronized (topic) {
+            Stored s = new Stored(seq.incrementAndGet(), e);
+            if (topic.ring.size() == replaySize) topic.evictedUpTo = topic.ring.pollFirst().id();
+            topic.ring.addLast(s);
+            for (Subscriber sub : topic.subs) sub.offer(toSse(s));
+        }
+    }
+
+    // ── Heartbeat — keeps proxies from closing idle connections ───────────
+
+    @Scheduled(fixedRateString = "${app.sse.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Topic t : topics.values())
+            for (Subscriber sub : t.subs) sub.offer(SseEmitter.event().comment("ping"));
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────
+
+    private static SseEventBuilder toSse(Stored s) {
+        return SseEmitter.event()
+            .id(Long.toString(s.id()))
+            .name(s.event().type().name())
+            .data(s.event(), MediaType.APPLICATION_JSON);
+    }
+
+    private static Long parseId(String id) {
+        if (id == null || id.isBlank()) return null;
+        try {
+            return Long.parseLong(id.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class Topic {
+        final ArrayDeque<Stored> ring = new ArrayDeque<>();
+        final Set<Subscriber>    subs = ConcurrentHashMap.newKeySet();
+        /** Newest id no longer in the ring; guarded by the topic lock */
+        long evictedUpTo;
+
+        Topic(long evictedUpTo) {
+            this.evictedUpTo = evictedUpTo;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Topic      topic;
+        final BlockingQueue<SseEventBuilder> queue = new ArrayBlockingQueue<>(subscriberBuffer);
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed   = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Topic topic) {
+            this.emitter = emitter;
+            this.topic = topic;
+        }
+
+        /** Non-blocking; a full buffer disconnects the client */
+        boolean offer(SseEventBuilder ev) {
+            if (closed.get()) return false;
+            if (!queue.offer(ev)) {
+                dropped.increment();
+                close();
+                return false;
+            }
+            if (draining.compareAndSet(false, true)) sender.execute(this::drain);
+            return true;
+        }
+
+        private void drain() {
+            do {
+                SseEventBuilder ev;
+                while ((ev = queue.poll()) != null) {
+                    try {
+                        emitter.send(ev);
+                    } catch (IOException | IllegalStateException e) {
+                        close();
+                        return;
+                    }
+                }
+                draining.set(false);
+                // Re-check: an offer may have landed after the last poll
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        void close() {
+            if (detach()) emitter.complete();
+        }
+
+        /** Remove from the topic once; true for the caller that did it */
+        boolean detach() {
+            if (!closed.compareAndSet(false, true)) return false;
+            topic.subs.remove(this);
+            subscribers.decrementAndGet();
+            queue.clear();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.trimly.service;
+
+import com.trimly.enums.BookingStatus;
+import com.trimly.repository.BookingRepository;
+import com.trimly.repository.BookingRepository.TransitionRow;
+import com.trimly.repository.ShopRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Scheduled clean-up of bookings nobody closed:
+ *  - PENDING bookings whose slot has passed (plus a grace period) → EXPIRED,
+ *    so they stop holding seats in countSeatsUsedAtSlot
+ *  - CONFIRMED bookings well past their slot → configurable terminal status
+ *    (COMPLETED by default, so revenue counters stay right)
+ *
+ * Works in chunks along idx_bk_status_slot: each chunk is one projection query,
+ * a SKIP LOCKED lock on the rows still in the source status, and one bulk
+ * UPDATE in its own short transaction. Only the locked rows are notified,
+ * counted and published as BookingEvent / SlotFreedEvent — a booking accepted
+ * or cancelled by hand while the chunk was read is left to that path.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class BookingExpiryJob {
+
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+
+    private final BookingRepository          bookingRepo;
+    private final ShopRepository             shopRepo;
+    private final WhatsAppService            wa;
+    private final PlatformTransactionManager txManager;
+    private final MeterRegistry              meters;
+    private final ApplicationEventPublisher  events;
+
+    @Value("${app.booking.expiry.pending-grace-minutes:15}")      private int pendingGraceMinutes;
+    @Value("${app.booking.expiry.confirmed-close-after-minutes:240}") private int confirmedCloseAfterMinutes;
+    @Value("${app.booking.expiry.confirmed-terminal-status:COMPLETED}") private BookingStatus confirmedTerminal;
+    @Value("${app.booking.expiry.chunk-size:500}")                 private int chunkSize;
+    @Value("${app.booking.expiry.max-chunks-per-run:100}")         private int maxChunksPerRun;
+
+    private TransactionTemplate tx;
+    private Counter expiredRows;
+    private Counter closedRows;
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (confirmedTerminal != BookingStatus.COMPLETED && confirmedTerminal != BookingStatus.CANCELLED)
+            throw new IllegalStateException(
+                "app.booking.expiry.confirmed-terminal-status must be COMPLETED or CANCELLED");
+        tx = new TransactionTemplate(txManager);
+        expiredRows = Counter.builder("trimly.bookings.auto_transition.rows")
+            .tag("transition", "pending_expired").register(meters);
+        closedRows = Counter.builder("trimly.bookings.auto_transition.rows")
+            .tag("transition", "confirmed_closed").register(meters);
+        // Age of the oldest overdue slot handled by the last run — grows if the job falls behind
+        Gauge.builder("trimly.bookings.auto_transition.lag.seconds", lagSeconds, AtomicLong::get)
+            .register(meters);
+    }
+
+    @Scheduled(cron = "${app.booking.expiry.cron:0 */5 * * * *}")
+    public void run() {
+        LocalDateTime now = LocalDateTime.now();
+        long pendingLag = drain(BookingStatus.PENDING, BookingStatus.EXPIRED,
+            now.minusMinutes(pendingGraceMinutes), expiredRows);
+        long confirmedLag = drain(BookingStatus.CONFIRMED, confirmedTerminal,
+            now.minusMinutes(confirmedCloseAfterMinutes), closedRows);
+        lagSeconds.set(Math.max(pendingLag, confirmedLag));
+    }
+
+    /** Process chunks until none are left or the per-run cap is hit; returns max lag in seconds. */
+    private long drain(BookingStatus from, BookingStatus to, LocalDateTime cutoff, Counter counter) {
+        long lag = 0;
+        int total = 0;
+        for (int i = 0; i < maxChunksPerRun; i++) {
+            Chunk c = tx.execute(s -> transitionChunk(from, to, cutoff));
+            if (c == null || c.read() == 0) break;
+
+            if (!c.moved().isEmpty()) {
+                TransitionRow oldest = c.moved().get(0);
+                lag = Math.max(lag, Duration.between(
+                    oldest.getBookingDate().atTime(oldest.getSlotTime()), cutoff).toSeconds());
+            }
+            total += c.moved().size();
+            counter.increment(c.moved().size());
+            // A chunk that was wholly locked elsewhere would be read again unchanged
+            if (c.read() < chunkSize || c.moved().isEmpty()) break;
+        }
+        if (total > 0) log.info("Auto-transition {} → {}: {} booking(s)", from, to, total);
+        return lag;
+    }
+
+    /** read = candidates seen, moved = those this transaction actually transitioned */
+    private record Chunk(int read, List<TransitionRow> moved) {}
+
+    /**
+     * updatedAt is stamped inside the chunk's own transaction, moments before
+     * it commits — delta sync relies on it being within settle-seconds of commit.
+     */
+    private Chunk transitionChunk(BookingStatus from, BookingStatus to, LocalDateTime cutoff) {
+        List<TransitionRow> candidates = bookingRepo.findDueForTransition(
+            from, cutoff.toLocalDate(), cutoff.toLocalTime(), Pageable.ofSize(chunkSize));
+        if (candidates.isEmpty()) return new Chunk(0, List.of());
+
+        // Locked rows cannot leave `from` before commit, so every one of them transitions
+        Set<Long> locked = Set.copyOf(bookingRepo.lockInStatus(
+            candidates.stream().map(TransitionRow::getId).toList(), from.name()));
+        List<TransitionRow> rows = candidates.stream().filter(r -> locked.contains(r.getId())).toList();
+        if (rows.isEmpty()) return new Chunk(candidates.size(), rows);
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepo.transitionIfStatus(locked, from, to, now);
+
+        if (to == BookingStatus.COMPLETED) {
+            // One counter update per shop for the whole chunk
+            Map<Long, List<TransitionRow>> byShop = rows.stream()
+                .collect(Collectors.groupingBy(TransitionRow::getShopId));
+            byShop.forEach((shopId, list) -> shopRepo.addCompletedTotals(shopId, list.size(),
+                list.stream().map(TransitionRow::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add)));
+        }
+        sendNotices(to, rows);   // outbox rows commit with the transition
+        publish(to, rows, now);  // listeners run after commit
+        return new Chunk(candidates.size(), rows);
+    }
+
+    private void publish(BookingStatus to, List<TransitionRow> rows, LocalDateTime now) {
+        BookingEvent.Type type = switch (to) {
+            case EXPIRED   -> BookingEvent.Type.EXPIRED;
+            case COMPLETED -> BookingEvent.Type.COMPLETED;
+            default        -> BookingEvent.Type.CANCELLED;
+        };
+        rows.forEach(r -> events.publishEvent(new BookingEvent(type, r.getId(), r.getShopId(),
+            r.getCustomerId(), to, now)));
+        if (to == BookingStatus.COMPLETED) return;   // a finished visit frees nothing
+        rows.stream().map(r -> new SlotFreedEvent(r.getShopId(), r.getBookingDate(), r.getSlotTime()))
+            .distinct().forEach(events::publishEvent);
+    }
+
+    private void sendNotices(BookingStatus to, List<TransitionRow> rows) {
+        List<WhatsAppService.Message> msgs = switch (to) {
+            case EXPIRED -> rows.stream().map(r -> wa.bookingRejectedMessage(r.getId(),
+                r.getCustomerPhone(), r.getCustomerName(), r.getShopName(), r.getServicesSnapshot(),
+                "Request expired — the shop did not respond before " + r.getBookingDate().format(DATE_FMT)))
+                .toList();
+            case COMPLETED -> rows.stream().map(r -> wa.bookingCompletedMessage(r.getId(),
+                r.getCustomerPhone(), r.getCustomerName(), r.getShopName(), "₹" + r.getTotalAmount()))
+                .toList();
+            default -> List.of();   // silent close of long-past visits
+        };
+        if (!msgs.isEmpty()) wa.sendBatch(msgs);
+    }
+}
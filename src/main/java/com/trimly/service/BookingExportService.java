@@ -0,0 +1,177 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimly.enums.BookingStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Booking exports for accountants (CSV or NDJSON).
+ *
+ * Rows are read from a forward-only, read-only MySQL streaming cursor
+ * (fetchSize = Integer.MIN_VALUE) and written straight to the response,
+ * so memory use is constant no matter how many bookings match.
+ *
+ * CSV cells that a spreadsheet would read as a formula (leading = + - @,
+ * tab or carriage return) are prefixed with a single quote — names, services
+ * and cancel reasons are customer-typed text.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class BookingExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] COLUMNS = {
+        "id", "shop_id", "shop_name", "customer_name", "customer_phone", "services",
+        "booking_date", "slot_time", "duration_minutes", "seats",
+        "total_amount", "platform_fee", "barber_earning", "status", "created_at"
+    };
+
+    private final JdbcTemplate   jdbc;
+    private final ShopDirectory  shops;
+    private final ObjectMapper   mapper;
+
+    /** Barber export — always limited to the caller's own shop */
+    public StreamingResponseBody exportForBarber(Long ownerId, LocalDate from, LocalDate to,
+                                                 BookingStatus status, Format format) {
+        return export(shops.shopIdOf(ownerId), from, to, status, format);
+    }
+
+    /** Admin export — optional shop filter */
+    public StreamingResponseBody export(Long shopId, LocalDate from, LocalDate to,
+                                        BookingStatus status, Format format) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT b.id, b.shop_id, s.shop_name, c.full_name, c.phone, b.services_snapshot,
+                   b.booking_date, b.slot_time, b.duration_minutes, b.seats,
+                   b.total_amount, b.platform_fee, b.barber_earning, b.status, b.created_at
+            FROM bookings b
+            JOIN shops s ON s.id = b.shop_id
+            JOIN users c ON c.id = b.customer_id
+            WHERE 1 = 1
+            """);
+        List<Object> args = new ArrayList<>();
+        if (shopId != null) { sql.append(" AND b.shop_id = ?");       args.add(shopId); }
+        if (from != null)   { sql.append(" AND b.booking_date >= ?");  args.add(from); }
+        if (to != null)     { sql.append(" AND b.booking_date <= ?");  args.add(to); }
+        if (status != null) { sql.append(" AND b.status = ?");         args.add(status.name()); }
+        sql.append(" ORDER BY b.id");
+
+        PreparedStatementCreator psc = con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);   // MySQL: stream rows one at a time
+            for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+            return ps;
+        };
+
+        return out -> {
+            Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(w) : new NdjsonRowWriter(w);
+            rowWriter.header();
+            try {
+                jdbc.query(psc, (RowCallbackHandler) rs -> {
+                    try {
+                        rowWriter.row(rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);   // client went away — abort the cursor
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            rowWriter.finish();
+        };
+    }
+
+    // ── Row writers ───────────────────────────────────────────────────────
+
+    private interface RowWriter {
+        void header() throws IOException;
+        void row(ResultSet rs) throws SQLException, IOException;
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer w;
+        CsvRowWriter(Writer w) { this.w = w; }
+
+        @Override public void header() throws IOException {
+            w.write(String.join(",", COLUMNS));
+            w.write('\n');
+        }
+
+        @Override public void row(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1) w.write(',');
+                String v = rs.getString(i);
+                if (v != null) writeCsv(v);
+            }
+            w.write('\n');
+        }
+
+        @Override public void finish() throws IOException { w.flush(); }
+
+        private void writeCsv(String v) throws IOException {
+            if (isFormula(v)) v = "'" + v;
+            boolean quote = v.indexOf(',') >= 0 || v.indexOf('"') >= 0
+                || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0;
+            if (!quote) { w.write(v); return; }
+            w.write('"');
+            for (int i = 0; i < v.length(); i++) {
+                char c = v.charAt(i);
+                if (c == '"') w.write('"');
+                w.write(c);
+            }
+            w.write('"');
+        }
+
+        private static boolean isFormula(String v) {
+            if (v.isEmpty()) return false;
+            char c = v.charAt(0);
+            return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator gen;
+
+        NdjsonRowWriter(Writer w) throws IOException {
+            this.gen = mapper.getFactory().createGenerator(w);
+            gen.setRootValueSeparator(null);
+        }
+
+        @Override public void header() { /* NDJSON has no header line */ }
+
+        @Override public void row(ResultSet rs) throws SQLException, IOException {
+            gen.writeStartObject();
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                String v = rs.getString(i);
+                if (v == null) gen.writeNullField(COLUMNS[i - 1]);
+                else           gen.writeStringField(COLUMNS[i - 1], v);
+            }
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        }
+
+        @Override public void finish() throws IOException { gen.flush(); }
+    }
+}
@@ -0,0 +1,315 @@
+package com.trimly.service;
+
+import com.trimly.dto.BookingSeriesRequest;
+import com.trimly.dto.BookingSeriesResponse;
+import com.trimly.entity.BarberService;
+import com.trimly.entity.BookingSeries;
+import com.trimly.entity.SeriesOccurrence;
+import com.trimly.entity.Shop;
+import com.trimly.entity.User;
+import com.trimly.enums.BookingStatus;
+import com.trimly.enums.ShopStatus;
+import com.trimly.exception.TrimlyException;
+import com.trimly.repository.*;
+import com.trimly.repository.BookingSeriesJdbcRepository.Cursor;
+import com.trimly.repository.BookingSeriesJdbcRepository.NewBooking;
+import com.trimly.repository.BookingSeriesJdbcRepository.Occurrence;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Recurring booking series ("every other Saturday at 10:00").
+ *
+ * A scheduled generator materialises occurrences up to a rolling horizon.
+ * It reads only series whose nextDate is inside the horizon, in chunks along
+ * idx_series_due, and advances nextDate past the horizon — so a run never
+ * rescans the series table. Each chunk is one transaction that locks its
+ * series (SKIP LOCKED, so nodes split the work) and writes one JDBC batch of
+ * bookings, one of line items, one of occurrence outcomes and one moving the
+ * cursors. Entities are never saved back, so a concurrent stop() survives.
+ *
+ * Admission follows BookingService.create: shop must be active, services
+ * enabled, and booked + held seats (plus seats claimed earlier in the same
+ * chunk) must leave room. A date that fails is recorded as a conflict on
+ * its occurrence instead of failing the series.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class BookingSeriesService {
+
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("h:mm a");
+
+    private final BookingSeriesRepository     seriesRepo;
+    private final SeriesOccurrenceRepository  occurrenceRepo;
+    private final BookingSeriesJdbcRepository seriesJdbc;
+    private final BookingItemJdbcRepository   itemJdbc;
+    private final BookingRepository           bookingRepo;
+    private final ShopRepository              shopRepo;
+    private final BarberServiceRepository     svcRepo;
+    private final UserRepository              userRepo;
+    private final SeatHoldService             seatHolds;
+    private final WhatsAppService             wa;
+    private final ApplicationEventPublisher   events;
+    private final PlatformTransactionManager  txManager;
+    private final MeterRegistry               meters;
+
+    @Value("${app.booking.series.horizon-days:28}")       private int horizonDays;
+    @Value("${app.booking.series.chunk-size:100}")        private int chunkSize;
+    @Value("${app.booking.series.max-chunks-per-run:50}") private int maxChunksPerRun;
+    @Value("${app.booking.series.max-per-customer:5}")    private int maxPerCustomer;
+
+    private TransactionTemplate tx;
+    private Counter generated;
+    private Counter conflicts;
+
+    private record SlotKey(Long shopId, LocalDate date, LocalTime time) {}
+
+    /** What a chunk produced — notifications go out after its transaction commits */
+    private record ChunkResult(int series, int booked, int conflicts, List<WhatsAppService.Message> notices) {}
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(txManager);
+        generated = Counter.builder("trimly.series.occurrences").tag("outcome", "booked").register(meters);
+        conflicts = Counter.builder("trimly.series.occurrences").tag("outcome", "conflict").register(meters);
+    }
+
+    // ── Customer ──────────────────────────────────────────────────────────
+
+    /** Create a series and materialise its first occurrences straight away */
+    public BookingSeriesResponse create(Long customerId, BookingSeriesRequest req) {
+        Shop shop = shopRepo.findById(req.getShopId())
+            .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+        if (shop.getStatus() != ShopStatus.ACTIVE)
+            throw TrimlyException.badRequest("Shop is not currently accepting bookings");
+        List<BarberService> svcs = svcRepo.findAllById(req.getServiceIds());
+        if (svcs.size() != req.getServiceIds().size())
+            throw TrimlyException.badRequest("One or more selected services not found");
+        if (svcs.stream().anyMatch(s -> !s.getShop().getId().equals(shop.getId()) || !s.isEnabled()))
+            throw TrimlyException.badRequest("Selected services are not available at this shop");
+        if (req.getEndDate() != null && req.getEndDate().isBefore(req.getStartDate()))
+            throw TrimlyException.badRequest("End date must be on or after the start date");
+        if (seriesRepo.countByCustomerIdAndActiveTrue(customerId) >= maxPerCustomer)
+            throw TrimlyException.badRequest("You can have at most " + maxPerCustomer + " active recurring bookings");
+
+        BookingSeries s = seriesRepo.save(BookingSeries.builder()
+            .customerId(customerId).shopId(shop.getId())
+            .serviceIds(req.getServiceIds().stream().map(String::valueOf).collect(Collectors.joining(",")))
+            .slotTime(req.getSlotTime()).seats(req.getSeats()).intervalWeeks(req.getIntervalWeeks())
+            .startDate(req.getStartDate()).endDate(req.getEndDate()).nextDate(req.getStartDate())
+            .build());
+
+        LocalDate horizon = LocalDate.now().plusDays(horizonDays);
+        runChunk(() -> List.of(seriesRepo.lockById(s.getId()).orElseThrow()), horizon);
+        return toResp(seriesRepo.findById(s.getId()).orElseThrow(), upcoming(List.of(s.getId())));
+    }
+
+    public List<BookingSeriesResponse> getMine(Long customerId) {
+        List<BookingSeries> list = seriesRepo.findByCustomerIdOrderByCreatedAtDesc(customerId);
+        Map<Long, List<BookingSeriesResponse.Occurrence>> occ =
+            upcoming(list.stream().map(BookingSeries::getId).toList());
+        return list.stream().map(s -> toResp(s, occ)).toList();
+    }
+
+    /** Stop generating; bookings already created are left as they are */
+    public BookingSeriesResponse stop(Long customerId, Long id) {
+        BookingSeries s = seriesRepo.findById(id)
+            .orElseThrow(() -> TrimlyException.notFound("Recurring booking not found"));
+        if (!s.getCustomerId().equals(customerId))
+            throw TrimlyException.forbidden("Not your recurring booking");
+        seriesRepo.deactivate(id, LocalDateTime.now());
+        s.setActive(false);   // the response only — the entity is not saved back
+        return toResp(s, upcoming(List.of(id)));
+    }
+
+    // ── Generator ─────────────────────────────────────────────────────────
+
+    @Scheduled(cron = "${app.booking.series.cron:0 15 * * * *}")
+    public void generate() {
+        LocalDate horizon = LocalDate.now().plusDays(horizonDays);
+        int series = 0, booked = 0, failed = 0;
+        for (int i = 0; i < maxChunksPerRun; i++) {
+            ChunkResult r = runChunk(() -> seriesRepo.findDue(horizon, chunkSize), horizon);
+            series += r.series();
+            booked += r.booked();
+            failed += r.conflicts();
+            if (r.series() < chunkSize) break;
+        }
+        if (series > 0)
+            log.info("Series generator: {} series, {} booking(s), {} conflict(s)", series, booked, failed);
+    }
+
+    private ChunkResult runChunk(Supplier<List<BookingSeries>> load, LocalDate horizon) {
+        ChunkResult r = tx.execute(st -> {
+            ChunkResult c = materialise(load.get(), horizon);
+            if (!c.notices().isEmpty()) wa.sendBatch(c.notices());   // outbox rows commit with the bookings
+            return c;
+        });
+        if (r == null) return new ChunkResult(0, 0, 0, List.of());
+        generated.increment(r.booked());
+        conflicts.increment(r.conflicts());
+        return r;
+    }
+
+    private ChunkResult materialise(List<BookingSeries> due, LocalDate horizon) {
+        if (due.isEmpty()) return new ChunkResult(0, 0, 0, List.of());
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<Long, Shop> shops = shopRepo.findAllById(due.stream().map(BookingSeries::getShopId).distinct().toList())
+            .stream().collect(Collectors.toMap(Shop::getId, Function.identity()));
+        Map<Long, User> customers = userRepo.findAllById(due.stream().map(BookingSeries::getCustomerId).distinct().toList())
+            .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, List<Long>> svcIdsBySeries = new HashMap<>();
+        for (BookingSeries s : due) svcIdsBySeries.put(s.getId(), parseIds(s.getServiceIds()));
+        Map<Long, BarberService> svcs = svcRepo.findAllById(
+                svcIdsBySeries.values().stream().flatMap(List::stream).distinct().toList())
+            .stream().collect(Collectors.toMap(BarberService::getId, Function.identity()));
+
+        List<NewBooking> bookings = new ArrayList<>();
+        List<BookingSeries> bookingSeries = new ArrayList<>();   // parallel to bookings
+        List<List<BarberService>> bookingSvcs = new ArrayList<>();
+        List<Occurrence> outcomes = new ArrayList<>();
+        List<Integer> outcomeBooking = new ArrayList<>();        // index into bookings, or -1
+        List<Cursor> cursors = new ArrayList<>(due.size());
+        Map<SlotKey, Integer> claimed = new HashMap<>();
+        int conflictCount = 0;
+
+        for (BookingSeries s : due) {
+            Shop shop = shops.get(s.getShopId());
+            List<BarberService> sv = svcIdsBySeries.get(s.getId()).stream().map(svcs::get).toList();
+            String invalid = seriesProblem(shop, customers.get(s.getCustomerId()), sv);
+
+            LocalDate d = s.getNextDate();
+            while (!d.isAfter(horizon) && (s.getEndDate() == null || !d.isAfter(s.getEndDate()))) {
+                if (d.atTime(s.getSlotTime()).isAfter(now)) {   // dates missed while the job was down are skipped
+                    String conflict = invalid;
+                    SlotKey key = new SlotKey(s.getShopId(), d, s.getSlotTime());
+                    if (conflict == null) {
+                        int used = bookingRepo.countSeatsUsedAtSlot(key.shopId(), d, key.time())
+                            + seatHolds.heldSeats(key.shopId(), d, key.time())
+                            + claimed.getOrDefault(key, 0);
+                        if (used + s.getSeats() > shop.getSeats()) conflict = "Not enough seats at this time slot";
+                    }
+                    if (conflict != null) {
+                        outcomes.add(new Occurrence(s.getId(), d, null, conflict));
+                        outcomeBooking.add(-1);
+                        conflictCount++;
+                    } else {
+                        claimed.merge(key, s.getSeats(), Integer::sum);
+                        bookings.add(newBooking(s, shop, sv, d));
+                        bookingSeries.add(s);
+                        bookingSvcs.add(sv);
+                        outcomes.add(new Occurrence(s.getId(), d, null, null));
+                        outcomeBooking.add(bookings.size() - 1);
+                    }
+                }
+                d = d.plusWeeks(s.getIntervalWeeks());
+            }
+            cursors.add(new Cursor(s.getId(), d, s.getEndDate() != null && d.isAfter(s.getEndDate())));
+        }
+
+        List<Long> ids = seriesJdbc.insertBookings(bookings, now);
+
+        List<BookingItemJdbcRepository.Row> items = new ArrayList<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            Long bookingId = ids.get(i);
+            Long shopId = bookings.get(i).shopId();
+            for (BarberService sv : bookingSvcs.get(i))
+                items.add(new BookingItemJdbcRepository.Row(bookingId, shopId, sv.getId(),
+                    sv.getServiceName(), sv.getPrice(), sv.getDurationMinutes()));
+        }
+        itemJdbc.insertAll(items);
+
+        List<Occurrence> resolved = new ArrayList<>(outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            Occurrence o = outcomes.get(i);
+            int b = outcomeBooking.get(i);
+            resolved.add(b < 0 ? o : new Occurrence(o.seriesId(), o.date(), ids.get(b), null));
+        }
+        seriesJdbc.insertOccurrences(resolved, now);
+        seriesJdbc.advance(cursors, now);
+
+        List<WhatsAppService.Message> notices = new ArrayList<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            NewBooking nb = bookings.get(i);
+            Shop shop = shops.get(nb.shopId());
+            User c = customers.get(nb.customerId());
+            events.publishEvent(new BookingEvent(BookingEvent.Type.CREATED, ids.get(i), nb.shopId(),
+                nb.customerId(), BookingStatus.PENDING, now));
+            notices.add(wa.bookingRequestMessage(ids.get(i), shop.getOwner().getPhone(), c.getFullName(),
+                nb.servicesSnapshot(), nb.date().format(DATE_FMT), nb.time().format(TIME_FMT),
+                "#TRM" + ids.get(i)));
+        }
+        return new ChunkResult(due.size(), bookings.size(), conflictCount, notices);
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    /** Reason every date of the series would fail right now, or null */
+    private static String seriesProblem(Shop shop, User customer, List<BarberService> svcs) {
+        if (shop == null || shop.getStatus() != ShopStatus.ACTIVE) return "Shop is not currently accepting bookings";
+        if (customer == null) return "Customer account not found";
+        if (svcs.isEmpty() || svcs.stream().anyMatch(s -> s == null || !s.isEnabled()
+                || !s.getShop().getId().equals(shop.getId())))
+            return "Selected services are no longer available";
+        return null;
+    }
+
+    /** Same pricing as BookingService.create */
+    private static NewBooking newBooking(BookingSeries s, Shop shop, List<BarberService> svcs, LocalDate date) {
+        int duration = svcs.stream().mapToInt(BarberService::getDurationMinutes).sum();
+        BigDecimal total = svcs.stream().map(BarberService::getPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal fee   = total.multiply(shop.getCommissionPercent())
+            .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        String snapshot  = svcs.stream().map(BarberService::getServiceName).collect(Collectors.joining(", "));
+        return new NewBooking(shop.getId(), s.getCustomerId(), s.getId(), snapshot, date, s.getSlotTime(),
+            duration, s.getSeats(), total, fee, total.subtract(fee));
+    }
+
+    private static List<Long> parseIds(String csv) {
+        return Arrays.stream(csv.split(","))
+            .map(String::trim).filter(t -> t.matches("\\d+")).map(Long::valueOf).toList();
+    }
+
+    private Map<Long, List<BookingSeriesResponse.Occurrence>> upcoming(List<Long> seriesIds) {
+        if (seriesIds.isEmpty()) return Map.of();
+        return occurrenceRepo.findBySeriesIdInAndOccurrenceDateGreaterThanEqualOrderByOccurrenceDateAsc(
+                seriesIds, LocalDate.now()).stream()
+            .collect(Collectors.groupingBy(SeriesOccurrence::getSeriesId, Collectors.mapping(
+                o -> BookingSeriesResponse.Occurrence.builder()
+                    .date(o.getOccurrenceDate()).bookingId(o.getBookingId())
+                    .conflictReason(o.getConflictReason()).build(),
+                Collectors.toList())));
+    }
+
+    private static BookingSeriesResponse toResp(BookingSeries s,
+                                                Map<Long, List<BookingSeriesResponse.Occurrence>> occ) {
+        return BookingSeriesResponse.builder()
+            .id(s.getId()).shopId(s.getShopId()).serviceIds(parseIds(s.getServiceIds()))
+            .slotTime(s.getSlotTime()).seats(s.getSeats()).intervalWeeks(s.getIntervalWeeks())
+            .startDate(s.getStartDate()).endDate(s.getEndDate()).nextDate(s.getNextDate())
+            .active(s.isActive())
+            .upcoming(occ.getOrDefault(s.getId(), List.of()))
+            .build();
+    }
+}
@@ -8,13 +8,20 @@ import com.trimly.enums.ShopStatus;
 import com.trimly.exception.TrimlyException;
 import com.trimly.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service @RequiredArgsConstructor
@@ -26,6 +33,18 @@ public class BookingService {
     private final BarberServiceRepository svcRepo;
     private final UserRepository      userRepo;
     private final WhatsAppService     wa;
+    private final SeatHoldService     seatHolds;
+    private final BookingItemRepository     itemRepo;
+    private final BookingItemJdbcRepository itemJdbc;
+    private final BookingArchiveRepository  archiveRepo;
+    private final ApplicationEventPublisher events;
+    private final BookingTombstoneRepository tombstoneRepo;
+    private final ShopDirectory             shops;
+    private final WhatsAppOutboxRepository  waOutbox;
+
+    @Value("${app.sync.page-size:200}")                private int syncPageSize;
+    @Value("${app.sync.settle-seconds:2}")             private int syncSettleSeconds;
+    @Value("${app.sync.tombstone-retention-days:90}")  private int tombstoneRetentionDays;
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy");
     private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("h:mm a");
@@ -51,9 +70,11 @@ public class BookingService {
         if (svcs.stream().anyMatch(s -> !s.getShop().getId().equals(shop.getId()) || !s.isEnabled()))
             throw TrimlyException.badRequest("Selected services are not available at this shop");
 
-        // Seat-aware availability check
+        // Seat-aware availability check — other customers' checkout holds count as used
         int seatsUsed = bookingRepo.countSeatsUsedAtSlot(shop.getId(), req.getBookingDate(), req.getSlotTime());
-        if (seatsUsed + req.getSeats() > shop.getSeats())
+        int seatsHeld = seatHolds.heldSeatsExcluding(shop.getId(), req.getBookingDate(), req.getSlotTime(),
+            customerId, req.getHoldId());
+        if (seatsUsed + seatsHeld + req.getSeats() > shop.getSeats())
             throw TrimlyException.conflict("Not enough seats at this time slot. Please pick another.");
 
         // Calculate financials
@@ -63,46 +84,55 @@ public class BookingService {
             .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
 
         String snapshot = svcs.stream().map(BarberService::getServiceName).collect(Collectors.joining(", "));
-        String ids      = req.getServiceIds().stream().map(String::valueOf).collect(Collectors.joining(","));
 
         Booking b = bookingRepo.save(Booking.builder()
             .shop(shop).customer(customer)
-            .servicesSnapshot(snapshot).serviceIds(ids)
+            .servicesSnapshot(snapshot)
             .bookingDate(req.getBookingDate()).slotTime(req.getSlotTime())
             .durationMinutes(duration).seats(req.getSeats())
             .totalAmount(total).platformFee(fee).barberEarning(total.subtract(fee))
             .build());
+        itemJdbc.insertAll(svcs.stream()
+            .map(sv -> new BookingItemJdbcRepository.Row(b.getId(), shop.getId(), sv.getId(),
+                sv.getServiceName(), sv.getPrice(), sv.getDurationMinutes()))
+            .toList());
+        seatHolds.consumeAfterCommit(customerId, req.getHoldId());
 
         // Notify barber via WhatsApp
         String barberPhone = shop.getOwner().getPhone();
         String date = req.getBookingDate().format(DATE_FMT);
         String time = req.getSlotTime().format(TIME_FMT);
         String ref  = "#TRM" + b.getId();
-        wa.sendBookingRequestToBarber(barberPhone, customer.getFullName(), snapshot, date, time, ref);
+        wa.sendBookingRequestToBarber(b.getId(), barberPhone, customer.getFullName(), snapshot, date, time, ref);
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.CREATED, b));
 
         return toResp(b, false);
     }
 
     // ── Barber — List & Stats ─────────────────────────────────────────────
 
-    public List<BookingResponse> getBarberBookings(Long ownerId, BookingStatus status) {
-        Shop shop = shopRepo.findByOwner_Id(ownerId)
-            .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+    /** archived=true appends closed bookings moved out by the archival job (always older) */
+    public List<BookingResponse> getBarberBookings(Long ownerId, BookingStatus status, boolean archived) {
+        Long shopId = shops.shopIdOf(ownerId);
         List<Booking> list = status != null
-            ? bookingRepo.findByShop_IdAndStatusOrderByCreatedAtDesc(shop.getId(), status)
-            : bookingRepo.findByShop_IdOrderByCreatedAtDesc(shop.getId());
-        return list.stream().map(b -> toResp(b, true)).collect(Collectors.toList());
+            ? bookingRepo.findByShop_IdAndStatusOrderByCreatedAtDesc(shopId, status)
+            : bookingRepo.findByShop_IdOrderByCreatedAtDesc(shopId);
+        List<BookingResponse> out = list.stream().map(b -> toResp(b, true)).collect(Collectors.toList());
+        if (archived) out.addAll(archiveRepo.findByShop(shopId, status));
+        return out;
     }
 
     public DashboardStats getBarberStats(Long ownerId) {
-        Shop shop = shopRepo.findByOwner_Id(ownerId)
-            .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
-        long total     = bookingRepo.countByShop_Id(shop.getId());
-        long pending   = bookingRepo.countByShop_IdAndStatus(shop.getId(), BookingStatus.PENDING);
-        long confirmed = bookingRepo.countByShop_IdAndStatus(shop.getId(), BookingStatus.CONFIRMED);
-        long completed = bookingRepo.countByShop_IdAndStatus(shop.getId(), BookingStatus.COMPLETED);
-        BigDecimal rev = bookingRepo.totalRevenueByShop(shop.getId());
-        BigDecimal comm = rev.multiply(shop.getCommissionPercent())
+        ShopDirectory.ShopHeader shop = shops.require(ownerId);
+        // Lifetime figures — bookings moved to the archive still count
+        BookingArchiveRepository.Totals archived = archiveRepo.totalsByShop(shop.id());
+        long total     = bookingRepo.countByShop_Id(shop.id()) + archived.bookings();
+        long pending   = bookingRepo.countByShop_IdAndStatus(shop.id(), BookingStatus.PENDING);
+        long confirmed = bookingRepo.countByShop_IdAndStatus(shop.id(), BookingStatus.CONFIRMED);
+        long completed = bookingRepo.countByShop_IdAndStatus(shop.id(), BookingStatus.COMPLETED)
+            + archived.completed();
+        BigDecimal rev = bookingRepo.totalRevenueByShop(shop.id()).add(archived.revenue());
+        BigDecimal comm = rev.multiply(shop.commissionPercent())
             .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
 
         return DashboardStats.builder()
@@ -112,6 +142,21 @@ public class BookingService {
             .barberEarnings(rev.subtract(comm)).build();
     }
 
+    // ── Barber — Per-service sales (booking_items aggregates) ──────────────
+
+    @Transactional(readOnly = true)
+    public List<ServiceSalesResponse> getServiceSales(Long ownerId, LocalDate from, LocalDate to) {
+        return itemRepo.salesByService(shops.shopIdOf(ownerId), from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DailySalesPoint> getServiceDailySales(Long ownerId, Long serviceId, LocalDate from, LocalDate to) {
+        return itemRepo.dailySalesOfService(shops.shopIdOf(ownerId), serviceId, from, to).stream()
+            .map(r -> DailySalesPoint.builder()
+                .date((LocalDate) r[0]).quantity((Long) r[1]).revenue((BigDecimal) r[2]).build())
+            .toList();
+    }
+
     // ── Barber — Accept ───────────────────────────────────────────────────
 
     @Transactional
@@ -124,10 +169,11 @@ public class BookingService {
 
         String date = b.getBookingDate().format(DATE_FMT);
         String time = b.getSlotTime().format(TIME_FMT);
-        wa.sendBookingConfirmedToCustomer(
+        wa.sendBookingConfirmedToCustomer(b.getId(),
             b.getCustomer().getPhone(), b.getCustomer().getFullName(),
             b.getShop().getShopName(), b.getServicesSnapshot(), date, time);
 
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.ACCEPTED, b));
         return toResp(b, true);
     }
 
@@ -142,11 +188,13 @@ public class BookingService {
         b.setCancelReason(req.getCancelReason());
         bookingRepo.save(b);
 
-        wa.sendBookingRejectedToCustomer(
+        wa.sendBookingRejectedToCustomer(b.getId(),
             b.getCustomer().getPhone(), b.getCustomer().getFullName(),
             b.getShop().getShopName(), b.getServicesSnapshot(),
             req.getCancelReason());
 
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.REJECTED, b));
+        events.publishEvent(slotFreed(b));
         return toResp(b, true);
     }
 
@@ -163,9 +211,11 @@ public class BookingService {
 
         String date = b.getBookingDate().format(DATE_FMT);
         String time = b.getSlotTime().format(TIME_FMT);
-        wa.sendCancellationNotice(b.getCustomer().getPhone(),
+        wa.sendCancellationNotice(b.getId(), b.getCustomer().getPhone(),
             b.getCustomer().getFullName(), b.getShop().getShopName(), date, time);
 
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.CANCELLED, b));
+        events.publishEvent(slotFreed(b));
         return toResp(b, true);
     }
 
@@ -184,10 +234,11 @@ public class BookingService {
         shopRepo.save(shop);
         bookingRepo.save(b);
 
-        wa.sendBookingCompleted(b.getCustomer().getPhone(),
+        wa.sendBookingCompleted(b.getId(), b.getCustomer().getPhone(),
             b.getCustomer().getFullName(), shop.getShopName(),
             "₹" + b.getTotalAmount());
 
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.COMPLETED, b));
         return toResp(b, true);
     }
 
@@ -216,13 +267,69 @@ public class BookingService {
 
         String newDate = req.getNewDate().format(DATE_FMT);
         String newTime = req.getNewTime().format(TIME_FMT);
-        wa.sendRescheduleRequestToCustomer(
+        wa.sendRescheduleRequestToCustomer(b.getId(),
             b.getCustomer().getPhone(), b.getCustomer().getFullName(),
             b.getShop().getShopName(), oldTime, newDate, newTime, req.getReason());
 
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.RESCHEDULE_REQUESTED, b));
         return toResp(b, true);
     }
 
+    // ── Barber — Bulk actions ─────────────────────────────────────────────
+    // One lock query, one batched UPDATE and one notification batch per call.
+    // Ineligible items are reported per booking instead of failing the whole call.
+
+    @Transactional
+    public BulkActionResult bulkAccept(Long ownerId, BulkBookingActionRequest req) {
+        List<Booking> ok = new ArrayList<>();
+        List<BulkItemResult> results = lockEligible(ownerId, req.getBookingIds(),
+            BookingStatus.PENDING, BookingStatus.CONFIRMED, "Only pending bookings can be accepted", ok);
+        if (ok.isEmpty()) return BulkActionResult.of(results);
+
+        bookingRepo.bulkUpdateStatus(ids(ok), BookingStatus.CONFIRMED, LocalDateTime.now());
+        wa.sendBatch(ok.stream().map(b -> wa.bookingConfirmedMessage(b.getId(),
+            b.getCustomer().getPhone(), b.getCustomer().getFullName(),
+            b.getShop().getShopName(), b.getServicesSnapshot(),
+            b.getBookingDate().format(DATE_FMT), b.getSlotTime().format(TIME_FMT))).toList());
+        ok.forEach(b -> events.publishEvent(BookingEvent.of(BookingEvent.Type.ACCEPTED, b, BookingStatus.CONFIRMED)));
+        return BulkActionResult.of(results);
+    }
+
+    @Transactional
+    public BulkActionResult bulkReject(Long ownerId, BulkBookingActionRequest req) {
+        List<Booking> ok = new ArrayList<>();
+        List<BulkItemResult> results = lockEligible(ownerId, req.getBookingIds(),
+            BookingStatus.PENDING, BookingStatus.REJECTED, "Only pending bookings can be rejected", ok);
+        if (ok.isEmpty()) return BulkActionResult.of(results);
+
+        bookingRepo.bulkUpdateStatusWithReason(ids(ok), BookingStatus.REJECTED,
+            req.getCancelReason(), LocalDateTime.now());
+        wa.sendBatch(ok.stream().map(b -> wa.bookingRejectedMessage(b.getId(),
+            b.getCustomer().getPhone(), b.getCustomer().getFullName(),
+            b.getShop().getShopName(), b.getServicesSnapshot(), req.getCancelReason())).toList());
+        ok.forEach(b -> events.publishEvent(BookingEvent.of(BookingEvent.Type.REJECTED, b, BookingStatus.REJECTED)));
+        ok.stream().map(this::slotFreed).distinct().forEach(events::publishEvent);
+        return BulkActionResult.of(results);
+    }
+
+    @Transactional
+    public BulkActionResult bulkComplete(Long ownerId, BulkBookingActionRequest req) {
+        List<Booking> ok = new ArrayList<>();
+        List<BulkItemResult> results = lockEligible(ownerId, req.getBookingIds(),
+            BookingStatus.CONFIRMED, BookingStatus.COMPLETED, "Only confirmed bookings can be completed", ok);
+        if (ok.isEmpty()) return BulkActionResult.of(results);
+
+        bookingRepo.bulkUpdateStatus(ids(ok), BookingStatus.COMPLETED, LocalDateTime.now());
+        BigDecimal revenue = ok.stream().map(Booking::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        shopRepo.addCompletedTotals(ok.get(0).getShop().getId(), ok.size(), revenue);
+
+        wa.sendBatch(ok.stream().map(b -> wa.bookingCompletedMessage(b.getId(),
+            b.getCustomer().getPhone(), b.getCustomer().getFullName(),
+            b.getShop().getShopName(), "₹" + b.getTotalAmount())).toList());
+        ok.forEach(b -> events.publishEvent(BookingEvent.of(BookingEvent.Type.COMPLETED, b, BookingStatus.COMPLETED)));
+        return BulkActionResult.of(results);
+    }
+
     // ── Customer — Respond to Reschedule ──────────────────────────────────
 
     @Transactional
@@ -237,17 +344,19 @@ public class BookingService {
         String barberPhone = b.getShop().getOwner().getPhone();
         String newTime = b.getRescheduleTime().format(TIME_FMT);
 
+        SlotFreedEvent freed = null;
         if (req.isAccept()) {
+            freed = slotFreed(b);   // the booking moves away from its original slot
             b.setBookingDate(b.getRescheduleDate());
             b.setSlotTime(b.getRescheduleTime());
             b.setRescheduleStatus(RescheduleStatus.ACCEPTED);
             b.setStatus(BookingStatus.CONFIRMED);
-            wa.sendRescheduleResponseToBarber(barberPhone, b.getShop().getShopName(),
+            wa.sendRescheduleResponseToBarber(b.getId(), barberPhone, b.getShop().getShopName(),
                 b.getCustomer().getFullName(), newTime, "Accepted ✅");
         } else {
             b.setRescheduleStatus(RescheduleStatus.DECLINED);
             b.setStatus(BookingStatus.CONFIRMED); // revert to original slot
-            wa.sendRescheduleResponseToBarber(barberPhone, b.getShop().getShopName(),
+            wa.sendRescheduleResponseToBarber(b.getId(), barberPhone, b.getShop().getShopName(),
                 b.getCustomer().getFullName(), newTime, "Declined ❌");
         }
 
@@ -257,6 +366,8 @@ public class BookingService {
         b.setRescheduleReason(null);
         bookingRepo.save(b);
 
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.RESCHEDULE_RESPONDED, b));
+        if (freed != null) events.publishEvent(freed);
         return toResp(b, false);
     }
 
@@ -277,9 +388,11 @@ public class BookingService {
 
         String date = b.getBookingDate().format(DATE_FMT);
         String time = b.getSlotTime().format(TIME_FMT);
-        wa.sendCancellationNotice(b.getShop().getOwner().getPhone(),
+        wa.sendCancellationNotice(b.getId(), b.getShop().getOwner().getPhone(),
             b.getShop().getShopName(), b.getCustomer().getFullName(), date, time);
 
+        events.publishEvent(BookingEvent.of(BookingEvent.Type.CANCELLED, b));
+        events.publishEvent(slotFreed(b));
         return toResp(b, false);
     }
 
@@ -300,24 +413,84 @@ public class BookingService {
         b.setReview(req.getReview());
         bookingRepo.save(b);
 
-        // Recalculate shop average
+        // Fold the new rating into the shop average — older ratings may already be archived
         Shop shop = b.getShop();
-        List<Booking> rated = bookingRepo.findByShop_IdOrderByCreatedAtDesc(shop.getId())
-            .stream().filter(bk -> bk.getRating() != null).toList();
-        if (!rated.isEmpty()) {
-            double avg = rated.stream().mapToInt(Booking::getRating).average().orElse(0);
-            shop.setAvgRating(BigDecimal.valueOf(avg).setScale(2, RoundingMode.HALF_UP));
-            shop.setTotalReviews(rated.size());
-            shopRepo.save(shop);
-        }
+        int n = shop.getTotalReviews();
+        BigDecimal sum = shop.getAvgRating().multiply(BigDecimal.valueOf(n)).add(BigDecimal.valueOf(req.getRating()));
+        shop.setAvgRating(sum.divide(BigDecimal.valueOf(n + 1), 2, RoundingMode.HALF_UP));
+        shop.setTotalReviews(n + 1);
+        shopRepo.save(shop);
         return toResp(b, false);
     }
 
     // ── Customer — List ───────────────────────────────────────────────────
 
-    public List<BookingResponse> getCustomerBookings(Long customerId) {
-        return bookingRepo.findByCustomer_IdOrderByCreatedAtDesc(customerId)
+    public List<BookingResponse> getCustomerBookings(Long customerId, boolean archived) {
+        List<BookingResponse> out = bookingRepo.findByCustomer_IdOrderByCreatedAtDesc(customerId)
             .stream().map(b -> toResp(b, false)).collect(Collectors.toList());
+        if (archived) out.addAll(archiveRepo.findByCustomer(customerId));
+        return out;
+    }
+
+    // ── Delta sync ────────────────────────────────────────────────────────
+
+    @Transactional(readOnly = true)
+    public BookingChangesResponse getBarberChanges(Long ownerId, String since) {
+        Long shopId = shops.shopIdOf(ownerId);
+        Pageable page = Pageable.ofSize(syncPageSize);
+        return changes(since, true,
+            (c, until) -> bookingRepo.findShopChanges(shopId, c.updatedAt(), c.bookingId(), until, page),
+            afterId -> tombstoneRepo.findByShopAfter(shopId, afterId, page));
+    }
+
+    @Transactional(readOnly = true)
+    public BookingChangesResponse getCustomerChanges(Long customerId, String since) {
+        Pageable page = Pageable.ofSize(syncPageSize);
+        return changes(since, false,
+            (c, until) -> bookingRepo.findCustomerChanges(customerId, c.updatedAt(), c.bookingId(), until, page),
+            afterId -> tombstoneRepo.findByCustomerAfter(customerId, afterId, page));
+    }
+
+    /**
+     * One page of changes after the cursor. Rows touched in the last few seconds
+     * are left for the next call, so a transaction still committing with an
+     * older updatedAt can never slip behind a cursor already handed out.
+     */
+    private BookingChangesResponse changes(String since, boolean showFee,
+            BiFunction<SyncCursor, LocalDateTime, List<Booking>> changedAfter,
+            Function<Long, List<BookingTombstone>> removedAfter) {
+        LocalDateTime now   = LocalDateTime.now();
+        LocalDateTime until = now.minusSeconds(syncSettleSeconds);
+
+        SyncCursor cur = since != null && !since.isBlank() ? SyncCursor.decode(since) : null;
+        // Tombstones older than the retention window are gone — start over
+        boolean full = cur == null || cur.issuedAt().isBefore(now.minusDays(tombstoneRetentionDays));
+        if (full) cur = new SyncCursor(SyncCursor.ORIGIN, 0, tombstoneRepo.maxId(), now);
+
+        List<Booking> changed = changedAfter.apply(cur, until);
+        List<BookingTombstone> removed = full ? List.of() : removedAfter.apply(cur.tombstoneId());
+        boolean moreChanged = changed.size() == syncPageSize;
+        boolean moreRemoved = removed.size() == syncPageSize;
+
+        LocalDateTime t = cur.updatedAt();
+        long lastId = cur.bookingId();
+        if (moreChanged) {
+            Booking last = changed.get(changed.size() - 1);
+            t = last.getUpdatedAt();
+            lastId = last.getId();
+        } else if (until.isAfter(t)) {
+            t = until;
+            lastId = 0;
+        }
+        long lastTomb = removed.isEmpty() ? cur.tombstoneId() : removed.get(removed.size() - 1).getId();
+
+        return BookingChangesResponse.builder()
+            .changed(changed.stream().map(b -> toResp(b, showFee)).toList())
+            .removed(removed.stream().map(BookingTombstone::getBookingId).toList())
+            .cursor(new SyncCursor(t, lastId, lastTomb, now).encode())
+            .hasMore(moreChanged || moreRemoved)
+            .fullResync(full)
+            .build();
     }
 
     // ── Admin ─────────────────────────────────────────────────────────────
@@ -330,33 +503,89 @@ public class BookingService {
     }
 
     public DashboardStats getAdminStats() {
+        BookingArchiveRepository.Totals archived = archiveRepo.totals();
         return DashboardStats.builder()
             .totalShops(shopRepo.count())
             .activeShops(shopRepo.countByStatus(ShopStatus.ACTIVE))
             .pendingShops(shopRepo.countByStatus(ShopStatus.PENDING))
-            .totalBookings(bookingRepo.count())
+            .totalBookings(bookingRepo.count() + archived.bookings())
             .pendingBookings(bookingRepo.countByStatus(BookingStatus.PENDING))
-            .totalCommission(bookingRepo.totalPlatformCommission())
-            .totalRevenue(bookingRepo.findAllByOrderByCreatedAtDesc().stream()
-                .filter(bk -> bk.getStatus() == BookingStatus.COMPLETED)
-                .map(Booking::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add))
+            .totalCommission(bookingRepo.totalPlatformCommission().add(archived.commission()))
+            .totalRevenue(bookingRepo.totalRevenue().add(archived.revenue()))
             .totalCustomers(userRepo.countByRole(com.trimly.enums.Role.CUSTOMER))
             .build();
     }
 
+    // ── WhatsApp delivery status ──────────────────────────────────────────
+
+    /** Messages sent to the customer about their booking */
+    @Transactional(readOnly = true)
+    public List<MessageDeliveryResponse> customerDeliveries(Long customerId, Long id) {
+        Booking b = bookingRepo.findById(id)
+            .orElseThrow(() -> TrimlyException.notFound("Booking not found"));
+        if (!b.getCustomer().getId().equals(customerId))
+            throw TrimlyException.forbidden("Not your booking");
+        return waOutbox.findByBooking(id, b.getCustomer().getPhone());
+    }
+
+    /** Every message about the booking, to either side */
+    @Transactional(readOnly = true)
+    public List<MessageDeliveryResponse> barberDeliveries(Long ownerId, Long id) {
+        barberBooking(ownerId, id);
+        return waOutbox.findByBooking(id, null);
+    }
+
     // ── Helpers ───────────────────────────────────────────────────────────
 
     private Booking barberBooking(Long ownerId, Long bookingId) {
-        Shop shop = shopRepo.findByOwner_Id(ownerId)
-            .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+        Long shopId = shops.shopIdOf(ownerId);
         Booking b = bookingRepo.findById(bookingId)
             .orElseThrow(() -> TrimlyException.notFound("Booking not found"));
-        if (!b.getShop().getId().equals(shop.getId()))
+        if (!b.getShop().getId().equals(shopId))
             throw TrimlyException.forbidden("This booking does not belong to your shop");
         return b;
     }
 
+    /**
+     * Row-locks the requested bookings and applies the same ownership and
+     * status rules as the single-booking actions. Eligible bookings are added
+     * to {@code eligible}; the returned list has one result per distinct id,
+     * in request order.
+     */
+    private List<BulkItemResult> lockEligible(Long ownerId, List<Long> bookingIds,
+            BookingStatus from, BookingStatus to, String wrongStatusMsg, List<Booking> eligible) {
+        Long shopId = shops.shopIdOf(ownerId);
+        Set<Long> ids = new LinkedHashSet<>(bookingIds);
+        Map<Long, Booking> byId = bookingRepo.lockAllById(ids).stream()
+            .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<BulkItemResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Booking b = byId.get(id);
+            BulkItemResult.BulkItemResultBuilder r = BulkItemResult.builder().bookingId(id);
+            if (b == null) {
+                r.message("Booking not found");
+            } else if (!b.getShop().getId().equals(shopId)) {
+                r.message("This booking does not belong to your shop");
+            } else if (b.getStatus() != from) {
+                r.message(wrongStatusMsg).status(b.getStatus());
+            } else {
+                eligible.add(b);
+                r.success(true).status(to);
+            }
+            results.add(r.build());
+        }
+        return results;
+    }
+
+    private static List<Long> ids(List<Booking> bookings) {
+        return bookings.stream().map(Booking::getId).toList();
+    }
+
+    private SlotFreedEvent slotFreed(Booking b) {
+        return new SlotFreedEvent(b.getShop().getId(), b.getBookingDate(), b.getSlotTime());
+    }
+
     BookingResponse toResp(Booking b, boolean showFee) {
         return BookingResponse.builder()
             .id(b.getId())
@@ -0,0 +1,93 @@
+package com.trimly.service;
+
+/**
+ * Count-based circuit breaker. CLOSED until at least {@code minCalls} of the
+ * last {@code window} calls were recorded and the failure rate reaches the
+ * threshold; then OPEN for {@code openMillis}, during which callers should
+ * defer work. After that HALF_OPEN lets {@code trialCalls} through: all
+ * succeeding closes it, any failure opens it again. Trials that never make a
+ * call are handed back with {@link #release}; if the trials still go quiet for
+ * another {@code openMillis}, the breaker opens again rather than stay stuck.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean[] ring;
+    private final int    minCalls;
+    private final double failureRate;
+    private final long   openMillis;
+    private final int    trialCalls;
+
+    private State state = State.CLOSED;
+    private int   pos, recorded, failures;
+    private long  openedAt, halfOpenedAt;
+    private int   trialsLeft, trialSuccesses;
+
+    CircuitBreaker(int window, int minCalls, double failureRate, long openMillis, int trialCalls) {
+        this.ring        = new boolean[window];
+        this.minCalls    = minCalls;
+        this.failureRate = failureRate;
+        this.openMillis  = openMillis;
+        this.trialCalls  = trialCalls;
+    }
+
+    /** How many calls may start now: unlimited (-1) when closed, 0 while open, the trial budget when half-open */
+    synchronized int permits() {
+        long now = System.currentTimeMillis();
+        if (state == State.HALF_OPEN && trialsLeft == 0 && now - halfOpenedAt >= openMillis)
+            open();   // trial results lost — start over
+        if (state == State.OPEN && now - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            halfOpenedAt = now;
+            trialsLeft = trialCalls;
+            trialSuccesses = 0;
+        }
+        return switch (state) {
+            case CLOSED    -> -1;
+            case OPEN      -> 0;
+            case HALF_OPEN -> trialsLeft;
+        };
+    }
+
+    /** Reserve half-open trial calls; a no-op otherwise */
+    synchronized void acquire(int n) {
+        if (state == State.HALF_OPEN) trialsLeft = Math.max(0, trialsLeft - n);
+    }
+
+    /** Hand back half-open trials that were acquired but ended without a call; a no-op otherwise */
+    synchronized void release(int n) {
+        if (state == State.HALF_OPEN) trialsLeft = Math.min(trialCalls - trialSuccesses, trialsLeft + n);
+    }
+
+    synchronized void record(boolean failure) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failure) open();
+                else if (++trialSuccesses >= trialCalls) close();
+            }
+            case CLOSED -> {
+                if (recorded == ring.length) { if (ring[pos]) failures--; } else recorded++;
+                ring[pos] = failure;
+                if (failure) failures++;
+                pos = (pos + 1) % ring.length;
+                if (recorded >= minCalls && failures >= failureRate * recorded) open();
+            }
+            case OPEN -> { }   // late results of calls started before opening
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        pos = recorded = failures = 0;
+    }
+}
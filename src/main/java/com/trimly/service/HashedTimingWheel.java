@@ -0,0 +1,79 @@
+package com.trimly.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel keyed by task. Time is cut into ticks; a task due at
+ * tick t sits in bucket {@code t & mask}, so scheduling, cancelling and
+ * rescheduling are O(1) and each tick only looks at one bucket. Tasks further
+ * out than one turn of the wheel share buckets with nearer ones and are
+ * skipped until their own turn comes round.
+ *
+ * Scheduling a key that is already present moves it. Not tied to a thread:
+ * the owner calls {@link #advance} from its own timer.
+ */
+final class HashedTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int  mask;
+    private final List<Map<K, Long>> buckets;          // key → deadline tick
+    private final Map<K, Long> deadlines = new HashMap<>();
+    private long currentTick;
+
+    HashedTimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (Integer.bitCount(wheelSize) != 1) throw new IllegalArgumentException("wheelSize must be a power of two");
+        this.tickMillis  = tickMillis;
+        this.mask        = wheelSize - 1;
+        this.buckets     = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) buckets.add(new HashMap<>());
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /** Due at or before the current tick → fires on the next {@link #advance} */
+    synchronized void schedule(K key, long dueMillis) {
+        cancel(key);
+        long tick = Math.max(dueMillis / tickMillis, currentTick + 1);
+        buckets.get((int) (tick & mask)).put(key, tick);
+        deadlines.put(key, tick);
+    }
+
+    synchronized boolean cancel(K key) {
+        Long tick = deadlines.remove(key);
+        if (tick == null) return false;
+        buckets.get((int) (tick & mask)).remove(key);
+        return true;
+    }
+
+    synchronized boolean contains(K key) {
+        return deadlines.containsKey(key);
+    }
+
+    synchronized int size() {
+        return deadlines.size();
+    }
+
+    /** Move the clock to {@code nowMillis} and remove and return every task now due */
+    synchronized List<K> advance(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        if (target <= currentTick) return List.of();
+        List<K> due = new ArrayList<>();
+        // After a long pause (GC, suspended VM) one pass over every bucket is enough
+        long from = target - currentTick > mask ? target - mask : currentTick + 1;
+        for (long t = from; t <= target; t++) {
+            Iterator<Map.Entry<K, Long>> it = buckets.get((int) (t & mask)).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, Long> e = it.next();
+                if (e.getValue() > target) continue;   // a later turn of the wheel
+                due.add(e.getKey());
+                deadlines.remove(e.getKey());
+                it.remove();
+            }
+        }
+        currentTick = target;
+        return due;
+    }
+}
@@ -0,0 +1,167 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trimly.dto.ApiResponse;
+import com.trimly.exception.TrimlyException;
+import com.trimly.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Replays the original response for requests retried with the same
+ * Idempotency-Key header, without running the action again.
+ *
+ * The key is reserved by inserting its idempotency_keys row in the same
+ * transaction as the action, and the response is written to that row before
+ * commit. The unique idx_idem_user_key makes a concurrent duplicate — on this
+ * node or another — wait for the first to finish and then replay its answer;
+ * if the first one fails, its reservation rolls back with it and the key may
+ * be retried. Only successful responses are stored.
+ *
+ * Each key also records a fingerprint of the operation and request body: the
+ * same key sent with a different payload is refused with 422. Completed
+ * responses are cached in a bounded Caffeine cache in front of the table.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private final IdempotencyRecordRepository repo;
+    private final ObjectMapper                mapper;
+    private final PlatformTransactionManager  txManager;
+
+    @Value("${app.idempotency.ttl-hours:24}")          private int  ttlHours;
+    @Value("${app.idempotency.cache-max-size:10000}")  private long cacheMaxSize;
+
+    private Cache<String, StoredResponse> cache;
+    private TransactionTemplate tx;
+
+    record StoredResponse(String scope, String requestHash, int status, String body) {}
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(txManager);
+        cache = Caffeine.newBuilder()
+            .maximumSize(cacheMaxSize)
+            .expireAfterWrite(Duration.ofHours(ttlHours))
+            .build();
+    }
+
+    /**
+     * Run {@code action} once per (user, key). A retry with the same key,
+     * scope and {@code request} body gets the stored response back; the same
+     * key on a different operation or payload is rejected. Without a key the
+     * action simply runs. The action joins the transaction opened here.
+     */
+    public <T> ResponseEntity<ApiResponse<T>> execute(Long userId, String key, String scope, Object request,
+            Class<T> dataType, Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        if (key == null || key.isBlank()) return action.get();
+        if (key.length() > 100)
+            throw TrimlyException.badRequest(HEADER + " must be at most 100 characters");
+
+        String cacheKey = userId + ":" + key;
+        String hash = fingerprint(scope, request);
+        StoredResponse hit = cache.getIfPresent(cacheKey);
+        if (hit != null) return replay(hit, scope, hash, dataType);
+
+        Outcome<T> out = tx.execute(s -> {
+            LocalDateTime now = LocalDateTime.now();
+            repo.deleteIfExpired(userId, key, now);
+            if (repo.reserve(userId, key, scope, hash, now, now.plusHours(ttlHours)) == 0) {
+                // Held by a request that has committed meanwhile
+                StoredResponse stored = repo.findByUserIdAndIdemKey(userId, key)
+                    .map(r -> new StoredResponse(r.getScope(), r.getRequestHash(), r.getStatusCode(), r.getResponseBody()))
+                    .orElseThrow(() -> TrimlyException.conflict(
+                        "A request with this " + HEADER + " is still being processed"));
+                return new Outcome<T>(null, stored);
+            }
+            ResponseEntity<ApiResponse<T>> resp = action.get();
+            if (!resp.getStatusCode().is2xxSuccessful()) {
+                repo.release(userId, key);
+                return new Outcome<>(resp, null);
+            }
+            StoredResponse stored = new StoredResponse(scope, hash, resp.getStatusCode().value(), toJson(resp));
+            repo.complete(userId, key, stored.status(), stored.body());
+            return new Outcome<>(resp, stored);
+        });
+
+        if (out.stored() != null) cache.put(cacheKey, out.stored());
+        return out.response() != null ? out.response() : replay(out.stored(), scope, hash, dataType);
+    }
+
+    /** response null = replay the stored one */
+    private record Outcome<T>(ResponseEntity<ApiResponse<T>> response, StoredResponse stored) {}
+
+    // ── Scheduled cleanup (runs 3:30 AM daily) ────────────────────────────
+
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void cleanupExpired() {
+        int n = repo.deleteExpiredBefore(LocalDateTime.now());
+        log.info("Idempotency key cleanup complete — {} removed", n);
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    /** SHA-256 over the scope and the JSON form of the request body */
+    private String fingerprint(String scope, Object request) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(scope.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(mapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (JsonProcessingException e) {
+            throw TrimlyException.badRequest("Request body cannot be fingerprinted");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);   // SHA-256 is always available
+        }
+    }
+
+    private String toJson(ResponseEntity<?> resp) {
+        try {
+            return mapper.writeValueAsString(resp.getBody());
+        } catch (JsonProcessingException e) {
+            // Rolls the action back too — better than a key that cannot be replayed
+            throw new IllegalStateException("Idempotent response is not serialisable", e);
+        }
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> replay(StoredResponse s, String scope, String hash,
+                                                      Class<T> dataType) {
+        if (!s.scope().equals(scope))
+            throw TrimlyException.badRequest(HEADER + " was already used for a different request");
+        if (s.requestHash() != null && !s.requestHash().equals(hash))
+            throw TrimlyException.unprocessable(HEADER + " was already used with a different request body");
+        try {
+            JavaType type = mapper.getTypeFactory().constructParametricType(ApiResponse.class, dataType);
+            ApiResponse<T> body = mapper.readValue(s.body(), type);
+            return ResponseEntity.status(s.status())
+                .header("Idempotent-Replayed", "true")
+                .body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt stored idempotent response", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.trimly.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-node OTP store. Entries leave the cache on their own expiresAt, and
+ * the size bound keeps a burst of sends from growing the heap without limit.
+ */
+@Component
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private final Cache<String, OtpEntry> codes;
+
+    public InMemoryOtpStore(@Value("${app.otp.max-entries:100000}") long maxEntries) {
+        codes = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, OtpEntry>() {
+                @Override public long expireAfterCreate(String k, OtpEntry e, long now) { return untilExpiry(e); }
+                @Override public long expireAfterUpdate(String k, OtpEntry e, long now, long current) { return untilExpiry(e); }
+                @Override public long expireAfterRead(String k, OtpEntry e, long now, long current) { return current; }
+            })
+            .build();
+    }
+
+    @Override
+    public boolean issue(String phone, String codeHash, LocalDateTime now, LocalDateTime expiresAt, Duration cooldown) {
+        boolean[] issued = {false};
+        codes.asMap().compute(phone, (k, cur) -> {
+            if (cur != null && cur.issuedAt().plus(cooldown).isAfter(now)) return cur;
+            issued[0] = true;
+            return new OtpEntry(codeHash, now, expiresAt, 0);
+        });
+        return issued[0];
+    }
+
+    @Override
+    public Optional<OtpEntry> claimAttempt(String phone) {
+        return Optional.ofNullable(codes.asMap().computeIfPresent(phone,
+            (k, e) -> new OtpEntry(e.codeHash(), e.issuedAt(), e.expiresAt(), e.attempts() + 1)));
+    }
+
+    @Override
+    public boolean consume(String phone, LocalDateTime issuedAt) {
+        boolean[] removed = {false};
+        codes.asMap().computeIfPresent(phone, (k, e) -> {
+            if (!e.issuedAt().equals(issuedAt)) return e;
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private static long untilExpiry(OtpEntry e) {
+        long ms = Duration.between(LocalDateTime.now(), e.expiresAt()).toMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, ms));
+    }
+}
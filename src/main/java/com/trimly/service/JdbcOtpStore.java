@@ -0,0 +1,62 @@
+package com.trimly.service;
+
+import com.trimly.entity.OtpCode;
+import com.trimly.repository.OtpCodeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * OTP store shared between nodes via the otp_codes table. Resends lock the
+ * phone's row so the cooldown holds under concurrent requests; attempts are
+ * counted with a single UPDATE.
+ */
+@Component @RequiredArgsConstructor @Slf4j
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "jdbc")
+public class JdbcOtpStore implements OtpStore {
+
+    private final OtpCodeRepository repo;
+
+    @Override
+    @Transactional
+    public boolean issue(String phone, String codeHash, LocalDateTime now, LocalDateTime expiresAt, Duration cooldown) {
+        Optional<OtpCode> cur = repo.lockByPhone(phone);
+        if (cur.isEmpty()) return repo.insertIfAbsent(phone, codeHash, now, expiresAt) == 1;
+
+        OtpCode c = cur.get();
+        if (c.getIssuedAt().plus(cooldown).isAfter(now)) return false;
+        c.setCodeHash(codeHash);
+        c.setIssuedAt(now);
+        c.setExpiresAt(expiresAt);
+        c.setAttempts(0);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public Optional<OtpEntry> claimAttempt(String phone) {
+        if (repo.incrementAttempts(phone) == 0) return Optional.empty();
+        return repo.findById(phone)
+            .map(c -> new OtpEntry(c.getCodeHash(), c.getIssuedAt(), c.getExpiresAt(), c.getAttempts()));
+    }
+
+    @Override
+    @Transactional
+    public boolean consume(String phone, LocalDateTime issuedAt) {
+        return repo.consume(phone, issuedAt) == 1;
+    }
+
+    @Scheduled(cron = "0 */15 * * * *")
+    @Transactional
+    public void purgeExpired() {
+        int n = repo.deleteExpiredBefore(LocalDateTime.now());
+        if (n > 0) log.debug("Purged {} expired OTP codes", n);
+    }
+}
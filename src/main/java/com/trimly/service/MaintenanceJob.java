@@ -0,0 +1,188 @@
+package com.trimly.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nightly housekeeping for auth and outbox tables, in the same shape as
+ * BookingArchivalJob: each task walks its table in primary-key chunks, one
+ * short transaction per chunk, pausing between chunks, and the whole run
+ * stops at a wall-clock budget — whatever is left is picked up next night.
+ * The run itself happens on the job's own thread, so the shared scheduler is
+ * free again as soon as it has been handed over; a trigger that finds the
+ * previous run still going is skipped.
+ *
+ * Tasks:
+ *  - refresh-tokens: sessions past expiresAt
+ *  - otp-stubs:      blank-name customers created by the old OTP send flow
+ *                    that never verified (and so never booked)
+ *  - reset-tokens:   expired password-reset tokens, cleared in place
+ *  - wa-outbox:      delivered or dead WhatsApp messages past retention
+ *  - reminder-marks / digest-marks: sent markers long after their slot or day
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class MaintenanceJob {
+
+    /** select takes :cutoff, :afterId and :limit and returns ids in order; apply takes :ids */
+    private record Task(String name, LocalDateTime cutoff, String select, String apply) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final PlatformTransactionManager txManager;
+    private final MeterRegistry              meters;
+
+    @Value("${app.maintenance.enabled:true}")           private boolean enabled;
+    @Value("${app.maintenance.chunk-size:1000}")        private int     chunkSize;
+    @Value("${app.maintenance.pause-ms:200}")           private long    pauseMs;
+    @Value("${app.maintenance.max-run-minutes:15}")     private int     maxRunMinutes;
+    @Value("${app.maintenance.otp-stub-max-age-hours:24}") private int  otpStubMaxAgeHours;
+    @Value("${app.whatsapp.outbox.retention-days:14}")     private int  outboxRetentionDays;
+    @Value("${app.reminders.retention-days:30}")           private int  reminderRetentionDays;
+
+    private TransactionTemplate tx;
+    private ExecutorService runner;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(txManager);
+        runner = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Interrupts a run in progress; it stops at the next chunk pause */
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private List<Task> tasks(LocalDateTime now) {
+        return List.of(
+            new Task("refresh-tokens", now, """
+                SELECT id FROM refresh_tokens
+                WHERE expires_at < :cutoff AND id > :afterId
+                ORDER BY id LIMIT :limit
+                """,
+                "DELETE FROM refresh_tokens WHERE id IN (:ids)"),
+            new Task("otp-stubs", now.minusHours(otpStubMaxAgeHours), """
+                SELECT u.id FROM users u
+                WHERE u.role = 'CUSTOMER' AND u.full_name = '' AND u.created_at < :cutoff AND u.id > :afterId
+                  AND NOT EXISTS (SELECT 1 FROM bookings b WHERE b.customer_id = u.id)
+                ORDER BY u.id LIMIT :limit
+                """,
+                // Re-checked here: a verify may have named the user since the select
+                "DELETE FROM users WHERE id IN (:ids) AND full_name = ''"),
+            new Task("reset-tokens", now, """
+                SELECT id FROM users
+                WHERE reset_token_expires_at < :cutoff AND id > :afterId
+                ORDER BY id LIMIT :limit
+                """,
+                "UPDATE users SET reset_token = NULL, reset_token_expires_at = NULL WHERE id IN (:ids)"),
+            new Task("wa-outbox", now.minusDays(outboxRetentionDays), """
+                SELECT id FROM wa_outbox
+                WHERE status IN ('SENT', 'FAILED') AND created_at < :cutoff AND id > :afterId
+                ORDER BY id LIMIT :limit
+                """,
+                "DELETE FROM wa_outbox WHERE id IN (:ids)"),
+            new Task("reminder-marks", now.minusDays(reminderRetentionDays), """
+                SELECT id FROM booking_reminders
+                WHERE sent_at < :cutoff AND id > :afterId
+                ORDER BY id LIMIT :limit
+                """,
+                "DELETE FROM booking_reminders WHERE id IN (:ids)"),
+            new Task("digest-marks", now.minusDays(reminderRetentionDays), """
+                SELECT id FROM barber_digests
+                WHERE sent_at < :cutoff AND id > :afterId
+                ORDER BY id LIMIT :limit
+                """,
+                "DELETE FROM barber_digests WHERE id IN (:ids)"));
+    }
+
+    @Scheduled(cron = "${app.maintenance.cron:0 0 3 * * *}")
+    public void run() {
+        if (!enabled) return;
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Maintenance run skipped — the previous one is still going");
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                runTasks();
+            } catch (RuntimeException e) {
+                log.error("Maintenance run failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void runTasks() {
+        long deadline = System.currentTimeMillis() + maxRunMinutes * 60_000L;
+        for (Task t : tasks(LocalDateTime.now())) {
+            if (System.currentTimeMillis() >= deadline) {
+                budgetExhausted(t.name()).increment();
+                continue;
+            }
+            Timer.builder("trimly.maintenance.run").tag("task", t.name()).register(meters)
+                .record(() -> runTask(t, deadline));
+        }
+    }
+
+    private void runTask(Task t, long deadline) {
+        Counter rows = Counter.builder("trimly.maintenance.rows").tag("task", t.name()).register(meters);
+        long afterId = 0;
+        int total = 0;
+
+        while (true) {
+            if (System.currentTimeMillis() >= deadline) {
+                budgetExhausted(t.name()).increment();
+                log.warn("Maintenance task {} stopped at its time budget after {} row(s)", t.name(), total);
+                break;
+            }
+            List<Long> ids = jdbc.queryForList(t.select(), new MapSqlParameterSource()
+                .addValue("cutoff", t.cutoff())
+                .addValue("afterId", afterId)
+                .addValue("limit", chunkSize), Long.class);
+            if (ids.isEmpty()) break;
+
+            Integer n = tx.execute(s -> jdbc.update(t.apply(), Map.of("ids", ids)));
+            int done = n != null ? n : 0;
+            total += done;
+            rows.increment(done);
+            afterId = ids.get(ids.size() - 1);
+            if (ids.size() < chunkSize) break;
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) log.info("Maintenance task {} processed {} row(s)", t.name(), total);
+    }
+
+    private Counter budgetExhausted(String task) {
+        return Counter.builder("trimly.maintenance.budget.exhausted").tag("task", task).register(meters);
+    }
+}
@@ -0,0 +1,29 @@
+package com.trimly.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Storage for pending customer OTPs, keyed by phone. Codes arrive already
+ * HMAC'd by OtpService; each operation is atomic per phone.
+ *
+ * InMemoryOtpStore is the default; JdbcOtpStore (app.otp.store=jdbc) shares
+ * codes between nodes.
+ */
+public interface OtpStore {
+
+    record OtpEntry(String codeHash, LocalDateTime issuedAt, LocalDateTime expiresAt, int attempts) {}
+
+    /**
+     * Replace the phone's code unless the current one was issued less than
+     * {@code cooldown} ago. False when the cooldown blocked it.
+     */
+    boolean issue(String phone, String codeHash, LocalDateTime now, LocalDateTime expiresAt, Duration cooldown);
+
+    /** Count one verification attempt and return the entry as it is afterwards */
+    Optional<OtpEntry> claimAttempt(String phone);
+
+    /** Remove the code issued at {@code issuedAt}; false if it was already used or replaced */
+    boolean consume(String phone, LocalDateTime issuedAt);
+}
@@ -0,0 +1,211 @@
+package com.trimly.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.trimly.entity.RefreshToken;
+import com.trimly.entity.User;
+import com.trimly.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Refresh-token sessions. The table holds only SHA-256 digests of the tokens;
+ * the raw value exists on the client alone.
+ *
+ * Lookups go through a bounded cache of digest → session, so an app resume
+ * costs no token query. lastUsedAt is advisory ("last seen"), so it is
+ * written at most once per touch-interval per token and in batches by a
+ * periodic flush rather than on every refresh.
+ *
+ * Logout and password reset evict immediately on this node. Other nodes may
+ * keep a revoked session cached for up to max-ttl-seconds, so before minting
+ * a token callers confirm the row with {@link #stillActive} and reject
+ * sessions created before the user's tokensValidAfter watermark.
+ */
+@Component @RequiredArgsConstructor @Slf4j
+public class RefreshTokenStore {
+
+    public record Session(Long id, Long userId, LocalDateTime createdAt, LocalDateTime expiresAt,
+                          LocalDateTime lastUsedAt) {
+        public boolean isExpired() { return expiresAt.isBefore(LocalDateTime.now()); }
+
+        /** Issued before a logout-all or password reset (tokensValidAfter may be null) */
+        public boolean predates(LocalDateTime tokensValidAfter) {
+            return tokensValidAfter != null && createdAt.isBefore(tokensValidAfter);
+        }
+    }
+
+    /** Tokens issued before digests were stored — never the shape of a 43-char digest */
+    private static final Pattern LEGACY_TOKEN =
+        Pattern.compile("^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$");
+
+    private final RefreshTokenRepository rtRepo;
+    private final JdbcTemplate           jdbc;
+    private final MeterRegistry          meters;
+
+    @Value("${app.jwt.refresh-expiration-ms:315360000000}")            private long refreshExpirationMs;
+    @Value("${app.jwt.refresh-cache.max-size:10000}")                  private long maxSize;
+    @Value("${app.jwt.refresh-cache.max-ttl-seconds:600}")             private long maxTtlSeconds;
+    @Value("${app.jwt.refresh-cache.touch-interval-minutes:60}")       private long touchIntervalMinutes;
+
+    private final SecureRandom rng = new SecureRandom();
+    private final Map<Long, LocalDateTime> pendingTouches = new ConcurrentHashMap<>();
+    private Cache<String, Session> sessions;
+
+    @PostConstruct
+    void init() {
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        sessions = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, Session>() {
+                @Override public long expireAfterCreate(String k, Session s, long now) {
+                    long left = TimeUnit.MILLISECONDS.toNanos(
+                        Duration.between(LocalDateTime.now(), s.expiresAt()).toMillis());
+                    return Math.max(0, Math.min(left, maxTtlNanos));
+                }
+                @Override public long expireAfterUpdate(String k, Session s, long now, long current) { return current; }
+                @Override public long expireAfterRead(String k, Session s, long now, long current)   { return current; }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meters, sessions, "refresh_sessions");
+    }
+
+    /** New session for the user; returns the raw token for the client */
+    public String issue(User user, String deviceInfo) {
+        byte[] b = new byte[48];
+        rng.nextBytes(b);
+        String raw = Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+        LocalDateTime now = LocalDateTime.now();
+        rtRepo.save(RefreshToken.builder()
+            .user(user)
+            .token(digest(raw))
+            .deviceInfo(deviceInfo)
+            .expiresAt(now.plusSeconds(refreshExpirationMs / 1000))
+            .lastUsedAt(now)
+            .build());
+        return raw;   // not cached yet — the caller's transaction may still roll back
+    }
+
+    /**
+     * A legacy UUID token not yet digested by RefreshTokenBackfill is still
+     * found by its raw value once, and rewritten as a digest on the spot.
+     * Nothing else is ever matched raw, so a digest read from the table is not
+     * a usable token.
+     */
+    @Transactional
+    public Optional<Session> find(String raw) {
+        String key = digest(raw);
+        Session cached = sessions.getIfPresent(key);
+        if (cached != null) return Optional.of(cached);
+
+        Optional<RefreshToken> rt = rtRepo.findByToken(key);
+        if (rt.isEmpty() && isLegacy(raw)) {
+            rt = rtRepo.findByToken(raw);
+            rt.ifPresent(legacy -> legacy.setToken(key));
+        }
+        return rt.map(t -> {
+            Session s = toSession(t);
+            sessions.put(key, s);
+            return s;
+        });
+    }
+
+    /** Primary-key check that the row was not revoked elsewhere; evicts it if it was */
+    public boolean stillActive(String raw, Session s) {
+        if (rtRepo.existsById(s.id())) return true;
+        sessions.invalidate(digest(raw));
+        pendingTouches.remove(s.id());
+        return false;
+    }
+
+    /** Record use; only queues a write when the stored lastUsedAt is older than the touch interval */
+    public void touch(String raw, Session s) {
+        LocalDateTime now = LocalDateTime.now();
+        if (s.lastUsedAt() != null && s.lastUsedAt().plusMinutes(touchIntervalMinutes).isAfter(now)) return;
+        pendingTouches.put(s.id(), now);
+        sessions.put(digest(raw), new Session(s.id(), s.userId(), s.createdAt(), s.expiresAt(), now));
+    }
+
+    @Transactional
+    public void revoke(String raw) {
+        String key = digest(raw);
+        sessions.invalidate(key);
+        rtRepo.deleteByToken(key);
+        if (isLegacy(raw)) rtRepo.deleteByToken(raw);   // not yet backfilled
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        sessions.asMap().values().removeIf(s -> s.userId().equals(userId));
+        rtRepo.deleteAllByUserId(userId);
+    }
+
+    @Transactional
+    public void delete(String raw, Session s) {
+        sessions.invalidate(digest(raw));
+        pendingTouches.remove(s.id());
+        rtRepo.deleteById(s.id());
+    }
+
+    // ── Coalesced lastUsedAt writes ───────────────────────────────────────
+
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-cache.flush-ms:60000}")
+    @PreDestroy
+    public void flushTouches() {
+        if (pendingTouches.isEmpty()) return;
+        List<Object[]> batch = new ArrayList<>(pendingTouches.size());
+        for (Long id : List.copyOf(pendingTouches.keySet())) {
+            LocalDateTime at = pendingTouches.remove(id);
+            if (at != null) batch.add(new Object[]{ Timestamp.valueOf(at), id });
+        }
+        // Rows revoked since the touch just match nothing
+        jdbc.batchUpdate("UPDATE refresh_tokens SET last_used_at = ? WHERE id = ?", batch);
+        log.debug("Flushed lastUsedAt for {} refresh tokens", batch.size());
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    private static Session toSession(RefreshToken rt) {
+        return new Session(rt.getId(), rt.getUser().getId(), rt.getCreatedAt(), rt.getExpiresAt(), rt.getLastUsedAt());
+    }
+
+    private static boolean isLegacy(String raw) {
+        return LEGACY_TOKEN.matcher(raw).matches();
+    }
+
+    public static String digest(String raw) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(d);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);   // SHA-256 is always available
+        }
+    }
+}
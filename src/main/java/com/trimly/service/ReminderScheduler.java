@@ -0,0 +1,236 @@
+package com.trimly.service;
+
+import com.trimly.enums.BookingStatus;
+import com.trimly.repository.ReminderRepository;
+import com.trimly.repository.ReminderRepository.DigestRow;
+import com.trimly.repository.ReminderRepository.DueReminder;
+import com.trimly.repository.ReminderRepository.Slot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Appointment reminders and the barbers' evening digest, driven by an
+ * in-memory {@link HashedTimingWheel}.
+ *
+ * Every load interval one range query along idx_bk_status_slot pulls the
+ * CONFIRMED bookings whose reminder falls due before the next load (plus a
+ * margin) into the wheel; slots already inside the lead time — missed while
+ * the app was down — fire on the next tick. Booking events move or drop
+ * entries as bookings are accepted, rescheduled or cancelled.
+ *
+ * Nothing is trusted from memory when a task fires: the bookings are locked
+ * and re-read, and only those still CONFIRMED, without a booking_reminders
+ * row for their current slot, get a message. The marker and the outbox row
+ * commit together, so a restart neither loses nor repeats a reminder. Digests
+ * work the same way per shop with barber_digests.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class ReminderScheduler {
+
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("h:mm a");
+    private static final int MAX_SCHEDULE_CHARS = 900;   // template parameters are capped at 1024
+
+    private enum Kind { REMINDER, DIGEST }
+
+    /** id is the booking id, or the digest day's epoch day */
+    private record Task(Kind kind, long id) {}
+
+    private final ReminderRepository         reminders;
+    private final WhatsAppService            wa;
+    private final PlatformTransactionManager txManager;
+    private final MeterRegistry              meters;
+
+    @Value("${app.reminders.enabled:true}")               private boolean   enabled;
+    @Value("${app.reminders.lead-minutes:120}")           private long      leadMinutes;
+    @Value("${app.reminders.horizon-minutes:30}")         private long      horizonMinutes;
+    @Value("${app.reminders.tick-ms:1000}")               private long      tickMs;
+    @Value("${app.reminders.wheel-size:512}")             private int       wheelSize;
+    @Value("${app.reminders.batch-size:200}")             private int       batchSize;
+    @Value("${app.reminders.retry-seconds:60}")           private long      retrySeconds;
+    @Value("${app.reminders.digest-time:20:00}")          private String    digestAt;
+    @Value("${app.reminders.digest-chunk-size:200}")      private int       digestChunkSize;
+
+    private LocalTime digestTime;
+    private HashedTimingWheel<Task> wheel;
+    private TransactionTemplate tx;
+    private Counter remindersSent;
+    private Counter digestsSent;
+    private volatile LocalDate digestScheduledFor;
+
+    @PostConstruct
+    void init() {
+        digestTime = LocalTime.parse(digestAt);
+        wheel = new HashedTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        tx = new TransactionTemplate(txManager);
+        Gauge.builder("trimly.reminders.scheduled", wheel, HashedTimingWheel::size)
+            .description("Reminders and digests waiting in the timing wheel").register(meters);
+        remindersSent = Counter.builder("trimly.reminders.sent").tag("kind", "reminder").register(meters);
+        digestsSent   = Counter.builder("trimly.reminders.sent").tag("kind", "digest").register(meters);
+    }
+
+    // ── Loading ───────────────────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        load();
+    }
+
+    /** Overlaps the previous window by the margin, so a slow run never leaves a gap */
+    @Scheduled(fixedDelayString = "${app.reminders.load-interval-ms:300000}",
+               initialDelayString = "${app.reminders.load-interval-ms:300000}")
+    public void load() {
+        if (!enabled) return;
+        LocalDateTime now = LocalDateTime.now();
+        List<Slot> slots = reminders.findUnremindedSlots(now, now.plusMinutes(leadMinutes + horizonMinutes));
+        slots.forEach(this::scheduleReminder);
+        scheduleDigest(now);
+        if (!slots.isEmpty()) log.debug("Reminder wheel: {} slot(s) loaded, {} task(s) pending", slots.size(), wheel.size());
+    }
+
+    private void scheduleReminder(Slot s) {
+        wheel.schedule(new Task(Kind.REMINDER, s.bookingId()), millis(s.slotAt().minusMinutes(leadMinutes)));
+    }
+
+    /** Tonight's digest covers tomorrow; started after digest time it goes out at once */
+    private void scheduleDigest(LocalDateTime now) {
+        LocalDate day = now.toLocalDate().plusDays(1);
+        if (day.equals(digestScheduledFor)) return;
+        LocalDateTime at = now.toLocalDate().atTime(digestTime);
+        wheel.schedule(new Task(Kind.DIGEST, day.toEpochDay()), millis(at.isAfter(now) ? at : now));
+        digestScheduledFor = day;
+    }
+
+    // ── Booking changes ───────────────────────────────────────────────────
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookingEvent e) {
+        if (!enabled) return;
+        Task key = new Task(Kind.REMINDER, e.bookingId());
+        if (e.status() != BookingStatus.CONFIRMED) {
+            wheel.cancel(key);   // cancelled, rejected, completed, or awaiting a reschedule answer
+            return;
+        }
+        // Accepted or rescheduled: the slot may have moved
+        Slot s = reminders.findUnremindedSlot(e.bookingId());
+        if (s != null && s.slotAt().isBefore(LocalDateTime.now().plusMinutes(leadMinutes + horizonMinutes)))
+            scheduleReminder(s);
+        else
+            wheel.cancel(key);   // beyond the window — a later load picks it up
+    }
+
+    // ── Firing ────────────────────────────────────────────────────────────
+
+    @Scheduled(fixedRateString = "${app.reminders.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) return;
+        List<Task> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) return;
+
+        List<Long> bookingIds = new ArrayList<>();
+        for (Task t : due) {
+            if (t.kind() == Kind.REMINDER) bookingIds.add(t.id());
+            else sendDigests(LocalDate.ofEpochDay(t.id()));
+        }
+        for (int i = 0; i < bookingIds.size(); i += batchSize)
+            sendReminders(bookingIds.subList(i, Math.min(i + batchSize, bookingIds.size())));
+    }
+
+    private void sendReminders(List<Long> ids) {
+        List<Slot> later;
+        try {
+            later = tx.execute(s -> reminderChunk(ids));
+        } catch (Exception e) {
+            log.warn("Sending {} reminder(s) failed, retrying in {}s: {}", ids.size(), retrySeconds, e.getMessage());
+            long retryAt = System.currentTimeMillis() + retrySeconds * 1000;
+            ids.forEach(id -> wheel.schedule(new Task(Kind.REMINDER, id), retryAt));
+            return;
+        }
+        if (later != null) later.forEach(this::scheduleReminder);
+    }
+
+    /** Sends what is due under the booking locks; returns bookings whose slot moved later */
+    private List<Slot> reminderChunk(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<DueReminder> send = new ArrayList<>();
+        List<Slot> later = new ArrayList<>();
+        for (DueReminder r : reminders.lockUnreminded(ids)) {
+            LocalDateTime slot = r.slotAt();
+            if (slot.minusMinutes(leadMinutes).isAfter(now.plusSeconds(1))) later.add(new Slot(r.bookingId(), slot));
+            else if (slot.isAfter(now)) send.add(r);
+            // else the visit has started — a reminder now would only confuse
+        }
+        if (send.isEmpty()) return later;
+
+        reminders.markReminded(send, now);
+        wa.sendBatch(send.stream().map(r -> wa.appointmentReminderMessage(r.bookingId(),
+            r.customerPhone(), r.customerName(), r.shopName(), r.services(),
+            r.slotTime().format(TIME_FMT))).toList());
+        remindersSent.increment(send.size());
+        return later;
+    }
+
+    private void sendDigests(LocalDate day) {
+        long after = 0;
+        int total = 0;
+        try {
+            while (true) {
+                long from = after;
+                List<DigestRow> rows = tx.execute(s -> digestChunk(day, from));
+                if (rows == null || rows.isEmpty()) break;
+                total += rows.size();
+                after = rows.get(rows.size() - 1).shopId();
+                if (rows.size() < digestChunkSize) break;
+            }
+        } catch (Exception e) {
+            log.warn("Daily digest for {} stopped after shop {}, retrying in {}s: {}", day, after, retrySeconds, e.getMessage());
+            wheel.schedule(new Task(Kind.DIGEST, day.toEpochDay()), System.currentTimeMillis() + retrySeconds * 1000);
+            return;
+        }
+        if (total > 0) log.info("Daily digest for {}: {} shop(s)", day, total);
+    }
+
+    private List<DigestRow> digestChunk(LocalDate day, long afterShopId) {
+        List<DigestRow> rows = reminders.findDigestChunk(day, afterShopId, digestChunkSize);
+        if (rows.isEmpty()) return rows;
+
+        Set<Long> open = reminders.lockUndigested(rows.stream().map(DigestRow::shopId).toList(), day);
+        List<DigestRow> send = rows.stream().filter(r -> open.contains(r.shopId())).toList();
+        reminders.markDigested(open, day, LocalDateTime.now());
+        wa.sendBatch(send.stream().map(r -> wa.dailyDigestMessage(r.ownerPhone(), r.shopName(),
+            day.format(DATE_FMT), String.valueOf(r.bookings()), clip(r.schedule()))).toList());
+        digestsSent.increment(send.size());
+        return rows;
+    }
+
+    private static String clip(String schedule) {
+        if (schedule == null || schedule.length() <= MAX_SCHEDULE_CHARS) return schedule;
+        int cut = schedule.lastIndexOf(", ", MAX_SCHEDULE_CHARS);
+        return schedule.substring(0, cut > 0 ? cut : MAX_SCHEDULE_CHARS) + ", …";
+    }
+
+    private static long millis(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,200 @@
+package com.trimly.service;
+
+import com.trimly.dto.SeatHoldRequest;
+import com.trimly.dto.SeatHoldResponse;
+import com.trimly.entity.Shop;
+import com.trimly.enums.ShopStatus;
+import com.trimly.exception.TrimlyException;
+import com.trimly.repository.BlockedSlotRepository;
+import com.trimly.repository.BookingRepository;
+import com.trimly.repository.ShopRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Temporary seat holds taken while a customer picks services during checkout.
+ *
+ * Holds live only in memory — they are counted by slot availability and by the
+ * seat check in {@link BookingService#create}, and either convert into a booking
+ * or simply expire. Nothing is ever written to the database.
+ *
+ * Expiry runs on a {@link HashedTimingWheel} with one-second ticks, so the
+ * sweeper only looks at the holds whose second has come. Each customer's live
+ * hold ids are indexed too, so the per-customer cap is checked without a scan.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class SeatHoldService {
+
+    private static final int WHEEL_SIZE = 512;   // buckets, one per second
+
+    private final ShopRepository        shopRepo;
+    private final BookingRepository     bookingRepo;
+    private final BlockedSlotRepository blockedSlotRepo;
+
+    @Value("${app.booking.hold-ttl-seconds:120}")      private int holdTtlSeconds;
+    @Value("${app.booking.max-holds-per-customer:3}")  private int maxHoldsPerCustomer;
+
+    private final Map<String, Hold>     holds     = new ConcurrentHashMap<>();
+    private final Map<SlotKey, Integer> heldSeats = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> byCustomer = new ConcurrentHashMap<>();   // mutated only inside compute
+    private final HashedTimingWheel<String> wheel =
+        new HashedTimingWheel<>(1000, WHEEL_SIZE, System.currentTimeMillis());
+
+    record SlotKey(Long shopId, LocalDate date, LocalTime time) {}
+
+    record Hold(String id, Long customerId, SlotKey slot, int seats, long expiresAtMillis) {}
+
+    // ── Customer — take / release ─────────────────────────────────────────
+
+    public SeatHoldResponse hold(Long customerId, SeatHoldRequest req) {
+        Shop shop = shopRepo.findById(req.getShopId())
+            .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+        if (shop.getStatus() != ShopStatus.ACTIVE)
+            throw TrimlyException.badRequest("Shop is not currently accepting bookings");
+        if (!shop.isOpen())
+            throw TrimlyException.badRequest("Shop is currently closed");
+
+        SlotKey key = new SlotKey(shop.getId(), req.getBookingDate(), req.getSlotTime());
+        checkSlot(shop, key);
+
+        String id = UUID.randomUUID().toString();
+        byCustomer.compute(customerId, (k, ids) -> {
+            if (ids == null) ids = new HashSet<>();
+            if (ids.size() >= maxHoldsPerCustomer)
+                throw TrimlyException.rateLimit("Too many active holds. Complete or release one first.");
+            ids.add(id);
+            return ids;
+        });
+
+        int used = bookingRepo.countSeatsUsedAtSlot(key.shopId(), key.date(), key.time());
+        try {
+            // Check-and-add is atomic per slot; the DB count is read just before
+            heldSeats.compute(key, (k, cur) -> {
+                int held = cur != null ? cur : 0;
+                if (used + held + req.getSeats() > shop.getSeats())
+                    throw TrimlyException.conflict("Not enough seats at this time slot. Please pick another.");
+                return held + req.getSeats();
+            });
+        } catch (TrimlyException e) {
+            unindex(customerId, id);
+            throw e;
+        }
+
+        long expiresAt = System.currentTimeMillis() + holdTtlSeconds * 1000L;
+        Hold h = new Hold(id, customerId, key, req.getSeats(), expiresAt);
+        holds.put(h.id(), h);
+        wheel.schedule(h.id(), expiresAt);
+
+        return SeatHoldResponse.builder()
+            .holdId(h.id()).shopId(key.shopId())
+            .bookingDate(key.date()).slotTime(key.time()).seats(h.seats())
+            .expiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault()))
+            .build();
+    }
+
+    /** A slot the customer could also pick from the listing: on the shop's grid, ahead, and not blocked */
+    private void checkSlot(Shop shop, SlotKey key) {
+        LocalTime t = key.time();
+        if (t.isBefore(shop.getOpenTime()) || !t.isBefore(shop.getCloseTime())
+                || ChronoUnit.MINUTES.between(shop.getOpenTime(), t) % shop.getSlotDurationMinutes() != 0)
+            throw TrimlyException.badRequest("Slot is outside the shop's hours");
+        if (!key.date().atTime(t).isAfter(LocalDateTime.now()))
+            throw TrimlyException.badRequest("Slot is in the past");
+        if (blockedSlotRepo.isBlocked(key.shopId(), key.date(), t))
+            throw TrimlyException.conflict("This slot is not available. Please pick another.");
+    }
+
+    public void release(Long customerId, String holdId) {
+        Hold h = holds.get(holdId);
+        if (h == null) return;   // already expired or converted
+        if (!h.customerId().equals(customerId))
+            throw TrimlyException.forbidden("Not your hold");
+        remove(h);
+    }
+
+    // ── Booking integration ───────────────────────────────────────────────
+
+    /** Seats currently held at a slot by anyone. */
+    public int heldSeats(Long shopId, LocalDate date, LocalTime time) {
+        return heldSeats.getOrDefault(new SlotKey(shopId, date, time), 0);
+    }
+
+    /**
+     * Seats held at a slot by everyone except the given hold — used by the
+     * booking seat check so a customer's own hold doesn't count against them.
+     * A hold that doesn't match the customer and slot is not excluded.
+     */
+    public int heldSeatsExcluding(Long shopId, LocalDate date, LocalTime time,
+                                  Long customerId, String holdId) {
+        SlotKey key = new SlotKey(shopId, date, time);
+        int held = heldSeats.getOrDefault(key, 0);
+        Hold own = holdId != null ? holds.get(holdId) : null;
+        if (own != null && own.customerId().equals(customerId) && own.slot().equals(key))
+            held -= own.seats();
+        return Math.max(0, held);
+    }
+
+    /**
+     * Drop the customer's hold once the booking made from it commits. Until
+     * then the hold keeps its seats, so a rolled-back booking loses nothing;
+     * someone else's hold id is ignored.
+     */
+    public void consumeAfterCommit(Long customerId, String holdId) {
+        if (holdId == null) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            consume(customerId, holdId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override public void afterCommit() {
+                consume(customerId, holdId);
+            }
+        });
+    }
+
+    private void consume(Long customerId, String holdId) {
+        Hold h = holds.get(holdId);
+        if (h != null && h.customerId().equals(customerId)) remove(h);
+    }
+
+    // ── Timing wheel ──────────────────────────────────────────────────────
+
+    @Scheduled(fixedRate = 1000)
+    public void expire() {
+        for (String id : wheel.advance(System.currentTimeMillis())) {
+            Hold h = holds.get(id);
+            if (h != null) remove(h);   // null: released or converted meanwhile
+        }
+    }
+
+    private void remove(Hold h) {
+        if (!holds.remove(h.id(), h)) return;
+        wheel.cancel(h.id());
+        unindex(h.customerId(), h.id());
+        heldSeats.computeIfPresent(h.slot(), (k, cur) -> cur - h.seats() > 0 ? cur - h.seats() : null);
+    }
+
+    private void unindex(Long customerId, String holdId) {
+        byCustomer.computeIfPresent(customerId, (k, ids) -> {
+            ids.remove(holdId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.trimly.service;
+
+import com.trimly.entity.Shop;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on Shop: a new shop, a status/commission change or an owner
+ * change publishes a ShopChangedEvent so ShopDirectory drops its header.
+ */
+@Component @RequiredArgsConstructor
+public class ShopChangeListener {
+
+    private final ApplicationEventPublisher events;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void changed(Shop shop) {
+        Long ownerId = shop.getOwner() != null ? shop.getOwner().getId() : null;
+        events.publishEvent(new ShopChangedEvent(shop.getId(), ownerId));
+    }
+}
@@ -0,0 +1,4 @@
+package com.trimly.service;
+
+/** A shops row was inserted, updated or deleted — published by ShopChangeListener */
+public record ShopChangedEvent(Long shopId, Long ownerId) {}
@@ -0,0 +1,73 @@
+package com.trimly.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trimly.enums.ShopStatus;
+import com.trimly.exception.TrimlyException;
+import com.trimly.repository.ShopRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Owner → shop resolution for barber endpoints.
+ *
+ * Barber calls only need to know which shop the caller owns (and, for stats
+ * and service prices, its commission) — not the shop with all its services.
+ * Headers come from a projection query and sit in a bounded Caffeine cache,
+ * invalidated after commit whenever a shops row changes (ShopChangedEvent).
+ * Owners without a shop are not cached, so a freshly registered shop is
+ * visible straight away.
+ */
+@Component @RequiredArgsConstructor
+public class ShopDirectory {
+
+    public record ShopHeader(Long id, String shopName, ShopStatus status, BigDecimal commissionPercent) {}
+
+    private final ShopRepository shopRepo;
+    private final MeterRegistry  meters;
+
+    @Value("${app.security.shop-directory.max-size:10000}")  private long maxSize;
+    @Value("${app.security.shop-directory.ttl-seconds:600}") private long ttlSeconds;
+
+    private Cache<Long, ShopHeader> byOwner;
+
+    @PostConstruct
+    void init() {
+        byOwner = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meters, byOwner, "shop_directory");
+    }
+
+    public Optional<ShopHeader> find(Long ownerId) {
+        return Optional.ofNullable(byOwner.get(ownerId, id -> shopRepo.findHeaderByOwnerId(id)
+            .map(v -> new ShopHeader(v.getId(), v.getShopName(), v.getStatus(), v.getCommissionPercent()))
+            .orElse(null)));
+    }
+
+    public ShopHeader require(Long ownerId) {
+        return find(ownerId).orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+    }
+
+    public Long shopIdOf(Long ownerId) {
+        return require(ownerId).id();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(ShopChangedEvent e) {
+        if (e.ownerId() != null) byOwner.invalidate(e.ownerId());
+        // Ownership moved: drop whichever owner still points at this shop
+        byOwner.asMap().values().removeIf(h -> h.id().equals(e.shopId()));
+    }
+}
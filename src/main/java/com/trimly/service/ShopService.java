@@ -26,6 +26,8 @@ public class ShopService {
     private final BarberServiceRepository svcRepo;
     private final BookingRepository    bookingRepo;
     private final BlockedSlotRepository blockedSlotRepo;   // ← NEW
+    private final SeatHoldService      seatHolds;
+    private final ShopDirectory        shops;
 
     // ── Public browsing ───────────────────────────────────────────────────
 
@@ -84,13 +86,15 @@ public class ShopService {
 
     @Transactional(readOnly = true)
     public ShopResponse getBarberShop(Long ownerId) {
-        return toBarber(shopRepo.findByOwner_Id(ownerId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found")));
+        return toBarber(ownedShop(ownerId));
+    }
+
+    public Long getOwnedShopId(Long ownerId) {
+        return shops.shopIdOf(ownerId);
     }
 
     public ShopResponse updateShop(Long ownerId, ShopUpdateRequest req) {
-        Shop s = shopRepo.findByOwner_Id(ownerId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+        Shop s = ownedShop(ownerId);
 
         if (StringUtils.hasText(req.getShopName()))       s.setShopName(req.getShopName().trim());
         if (StringUtils.hasText(req.getLocation()))       s.setLocation(req.getLocation().trim());
@@ -112,10 +116,9 @@ public class ShopService {
     }
 
     public ServiceResponse addService(Long ownerId, ServiceRequest req) {
-        Shop shop = shopRepo.findByOwner_Id(ownerId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+        ShopDirectory.ShopHeader shop = shops.require(ownerId);
         BarberService svc = svcRepo.save(BarberService.builder()
-                .shop(shop)
+                .shop(shopRepo.getReferenceById(shop.id()))
                 .serviceName(req.getServiceName().trim())
                 .description(req.getDescription())
                 .category(req.getCategory())
@@ -124,16 +127,12 @@ public class ShopService {
                 .icon(req.getIcon() != null ? req.getIcon() : "✂️")
                 .isCombo(req.isCombo())
                 .build());
-        return toSvcResp(svc, shop.getCommissionPercent(), true);
+        return toSvcResp(svc, shop.commissionPercent(), true);
     }
 
     public ServiceResponse updateService(Long ownerId, Long svcId, ServiceRequest req) {
-        Shop shop = shopRepo.findByOwner_Id(ownerId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
-        BarberService svc = svcRepo.findById(svcId)
-                .orElseThrow(() -> TrimlyException.notFound("Service not found"));
-        if (!svc.getShop().getId().equals(shop.getId()))
-            throw TrimlyException.forbidden("Not your service");
+        ShopDirectory.ShopHeader shop = shops.require(ownerId);
+        BarberService svc = ownedService(shop.id(), svcId);
 
         if (StringUtils.hasText(req.getServiceName())) svc.setServiceName(req.getServiceName().trim());
         if (req.getDescription() != null)              svc.setDescription(req.getDescription());
@@ -142,27 +141,18 @@ public class ShopService {
         if (req.getDurationMinutes() > 0)              svc.setDurationMinutes(req.getDurationMinutes());
         if (StringUtils.hasText(req.getIcon()))        svc.setIcon(req.getIcon());
 
-        return toSvcResp(svcRepo.save(svc), shop.getCommissionPercent(), true);
+        return toSvcResp(svcRepo.save(svc), shop.commissionPercent(), true);
     }
 
     public ServiceResponse toggleService(Long ownerId, Long svcId) {
-        Shop shop = shopRepo.findByOwner_Id(ownerId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
-        BarberService svc = svcRepo.findById(svcId)
-                .orElseThrow(() -> TrimlyException.notFound("Service not found"));
-        if (!svc.getShop().getId().equals(shop.getId()))
-            throw TrimlyException.forbidden("Not your service");
+        ShopDirectory.ShopHeader shop = shops.require(ownerId);
+        BarberService svc = ownedService(shop.id(), svcId);
         svc.setEnabled(!svc.isEnabled());
-        return toSvcResp(svcRepo.save(svc), shop.getCommissionPercent(), true);
+        return toSvcResp(svcRepo.save(svc), shop.commissionPercent(), true);
     }
 
     public void deleteService(Long ownerId, Long svcId) {
-        Shop shop = shopRepo.findByOwner_Id(ownerId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
-        BarberService svc = svcRepo.findById(svcId)
-                .orElseThrow(() -> TrimlyException.notFound("Service not found"));
-        if (!svc.getShop().getId().equals(shop.getId()))
-            throw TrimlyException.forbidden("Not your service");
+        BarberService svc = ownedService(shops.shopIdOf(ownerId), svcId);
         svcRepo.delete(svc);
     }
 
@@ -170,30 +160,25 @@ public class ShopService {
 
     @Transactional(readOnly = true)
     public List<String> getBlockedSlots(Long userId, LocalDate date) {
-        Shop shop = shopRepo.findByOwner_Id(userId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
         DateTimeFormatter fmt = DateTimeFormatter.ofPattern("h:mm a");
-        return blockedSlotRepo.findBlockedTimes(shop.getId(), date)
+        return blockedSlotRepo.findBlockedTimes(shops.shopIdOf(userId), date)
                 .stream()
                 .map(t -> t.format(fmt))
                 .collect(Collectors.toList());
     }
 
     public void blockSlot(Long userId, BlockedSlotRequest req) {
-        Shop shop = shopRepo.findByOwner_Id(userId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
-        if (blockedSlotRepo.isBlocked(shop.getId(), req.getDate(), req.getSlotTime())) return;
+        Long shopId = shops.shopIdOf(userId);
+        if (blockedSlotRepo.isBlocked(shopId, req.getDate(), req.getSlotTime())) return;
         blockedSlotRepo.save(BlockedSlot.builder()
-                .shop(shop)
+                .shop(shopRepo.getReferenceById(shopId))
                 .slotDate(req.getDate())
                 .slotTime(req.getSlotTime())
                 .build());
     }
 
     public void unblockSlot(Long userId, BlockedSlotRequest req) {
-        Shop shop = shopRepo.findByOwner_Id(userId)
-                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
-        blockedSlotRepo.deleteByShopAndDateAndTime(shop.getId(), req.getDate(), req.getSlotTime());
+        blockedSlotRepo.deleteByShopAndDateAndTime(shops.shopIdOf(userId), req.getDate(), req.getSlotTime());
     }
 
     // ── Admin ─────────────────────────────────────────────────────────────
@@ -223,6 +208,20 @@ public class ShopService {
 
     // ── Helpers ───────────────────────────────────────────────────────────
 
+    private Shop ownedShop(Long ownerId) {
+        return shopRepo.findById(shops.shopIdOf(ownerId))
+                .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+    }
+
+    /** Ownership is checked on the FK column — the service's shop proxy is never initialised */
+    private BarberService ownedService(Long shopId, Long svcId) {
+        BarberService svc = svcRepo.findById(svcId)
+                .orElseThrow(() -> TrimlyException.notFound("Service not found"));
+        if (!svc.getShop().getId().equals(shopId))
+            throw TrimlyException.forbidden("Not your service");
+        return svc;
+    }
+
     private List<SlotInfo> genSlotsWithSeats(Shop shop, LocalDate date) {
         List<SlotInfo> list = new ArrayList<>();
         LocalTime t = shop.getOpenTime();
@@ -231,7 +230,8 @@ public class ShopService {
 
         while (t.isBefore(shop.getCloseTime())) {
             int used = bookingRepo.countSeatsUsedAtSlot(shop.getId(), date, t);
-            int left = Math.max(0, seats - used);
+            int held = seatHolds.heldSeats(shop.getId(), date, t);
+            int left = Math.max(0, seats - used - held);
             // ← blocked slots: treat as fully taken
             boolean blocked = blockedSlotRepo.isBlocked(shop.getId(), date, t);
             boolean taken = left == 0 || blocked;
@@ -243,6 +243,7 @@ public class ShopService {
                     .available(!taken)
                     .seatsTotal(seats)
                     .seatsUsed(used)
+                    .seatsHeld(held)
                     .seatsLeft(blocked ? 0 : left)
                     .build());
 
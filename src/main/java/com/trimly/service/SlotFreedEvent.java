@@ -0,0 +1,7 @@
+package com.trimly.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/** Seats at a slot were released (cancel, reject, booking moved away) — waitlist may promote. */
+public record SlotFreedEvent(Long shopId, LocalDate date, LocalTime time) {}
@@ -0,0 +1,43 @@
+package com.trimly.service;
+
+import com.trimly.exception.TrimlyException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Delta-sync position: last (updatedAt, id) seen for bookings, the last
+ * tombstone id, and when the cursor was issued (to detect cursors older than
+ * tombstone retention). Clients treat the encoded form as an opaque string.
+ */
+record SyncCursor(LocalDateTime updatedAt, long bookingId, long tombstoneId, LocalDateTime issuedAt) {
+
+    private static final String VERSION = "v1";
+    private static final LocalDateTime EPOCH = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+
+    /** Starting point for a full listing — before any booking could exist */
+    static final LocalDateTime ORIGIN = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    String encode() {
+        long micros = ChronoUnit.MICROS.between(EPOCH, updatedAt);
+        String raw = VERSION + ":" + micros + ":" + bookingId + ":" + tombstoneId
+            + ":" + issuedAt.toEpochSecond(ZoneOffset.UTC);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static SyncCursor decode(String token) {
+        try {
+            String[] p = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+            if (p.length != 5 || !VERSION.equals(p[0])) throw new IllegalArgumentException();
+            return new SyncCursor(EPOCH.plus(Long.parseLong(p[1]), ChronoUnit.MICROS),
+                Long.parseLong(p[2]), Long.parseLong(p[3]),
+                LocalDateTime.ofEpochSecond(Long.parseLong(p[4]), 0, ZoneOffset.UTC));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw TrimlyException.badRequest("Invalid sync cursor");
+        }
+    }
+}
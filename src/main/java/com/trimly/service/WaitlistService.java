@@ -0,0 +1,342 @@
+package com.trimly.service;
+
+import com.trimly.dto.BookingRequest;
+import com.trimly.dto.BookingResponse;
+import com.trimly.dto.WaitlistRequest;
+import com.trimly.dto.WaitlistResponse;
+import com.trimly.entity.BarberService;
+import com.trimly.entity.Shop;
+import com.trimly.entity.WaitlistEntry;
+import com.trimly.enums.ShopStatus;
+import com.trimly.enums.WaitlistStatus;
+import com.trimly.exception.TrimlyException;
+import com.trimly.repository.BarberServiceRepository;
+import com.trimly.repository.BookingRepository;
+import com.trimly.repository.ShopRepository;
+import com.trimly.repository.WaitlistEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Waitlist for fully booked slots.
+ *
+ * Each (shop, date, time) has an in-memory FIFO; when a SlotFreedEvent arrives
+ * the queue is walked under its lock and the first entries that fit the free
+ * seats are turned into PENDING bookings through BookingService.create — same
+ * admission rules, same barber notification. No table scan is involved.
+ *
+ * waitlist_entries is written behind: changes are queued and flushed in order
+ * as JDBC batches every second (and on shutdown), and the queues are rebuilt
+ * from it on startup. A crash can lose at most the last unflushed second of
+ * joins and leaves. Promotions are the exception: the PROMOTED row is written
+ * in the booking's own transaction, so a restart can never put a customer
+ * who already holds the booking back on the waitlist.
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class WaitlistService {
+
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("h:mm a");
+
+    private final WaitlistEntryRepository repo;
+    private final JdbcTemplate            jdbc;
+    private final ShopRepository          shopRepo;
+    private final BarberServiceRepository svcRepo;
+    private final BookingRepository       bookingRepo;
+    private final SeatHoldService         seatHolds;
+    private final BookingService          bookingService;
+    private final WhatsAppService         wa;
+    private final PlatformTransactionManager txManager;
+    private final MeterRegistry           meters;
+
+    @Value("${app.waitlist.max-per-customer:5}") private int maxPerCustomer;
+    @Value("${app.waitlist.max-per-slot:50}")     private int maxPerSlot;
+
+    private record SlotKey(Long shopId, LocalDate date, LocalTime time) {}
+
+    private record Entry(String id, SlotKey slot, Long customerId, int seats,
+                         List<Long> serviceIds, LocalDateTime createdAt) {}
+
+    /** Pending write-behind change */
+    private record Change(Entry inserted, String id, WaitlistStatus status, Long bookingId, LocalDateTime at) {}
+
+    private final Map<SlotKey, ArrayDeque<Entry>> queues = new ConcurrentHashMap<>();
+    private final Map<String, Entry>              byId   = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Change>   writes = new ConcurrentLinkedQueue<>();
+    /** A failed batch, retried ahead of anything queued after it; touched only by flush() */
+    private List<Change> unflushed = List.of();
+
+    private TransactionTemplate tx;
+    private Counter promoted;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(txManager);
+        Gauge.builder("trimly.waitlist.waiting", byId, Map::size).register(meters);
+        promoted = Counter.builder("trimly.waitlist.promoted").register(meters);
+    }
+
+    /** Rebuild the queues from the persisted copy */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime now = LocalDateTime.now();
+        int loaded = 0;
+        for (WaitlistEntry w : repo.findByStatusOrderByCreatedAtAsc(WaitlistStatus.WAITING)) {
+            SlotKey key = new SlotKey(w.getShopId(), w.getBookingDate(), w.getSlotTime());
+            if (w.getBookingDate().atTime(w.getSlotTime()).isBefore(now)) {
+                writes.add(new Change(null, w.getId(), WaitlistStatus.EXPIRED, null, now));
+                continue;
+            }
+            List<Long> svcIds = Arrays.stream(w.getServiceIds().split(","))
+                .map(String::trim).filter(t -> t.matches("\\d+")).map(Long::valueOf).toList();
+            Entry e = new Entry(w.getId(), key, w.getCustomerId(), w.getSeats(), svcIds, w.getCreatedAt());
+            queues.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(e);
+            byId.put(e.id(), e);
+            loaded++;
+        }
+        if (loaded > 0) log.info("Waitlist: {} waiting entr(ies) restored", loaded);
+    }
+
+    // ── Customer ──────────────────────────────────────────────────────────
+
+    public WaitlistResponse join(Long customerId, WaitlistRequest req) {
+        Shop shop = shopRepo.findById(req.getShopId())
+            .orElseThrow(() -> TrimlyException.notFound("Shop not found"));
+        if (shop.getStatus() != ShopStatus.ACTIVE)
+            throw TrimlyException.badRequest("Shop is not currently accepting bookings");
+        if (req.getBookingDate().atTime(req.getSlotTime()).isBefore(LocalDateTime.now()))
+            throw TrimlyException.badRequest("This slot has already passed");
+
+        List<BarberService> svcs = svcRepo.findAllById(req.getServiceIds());
+        if (svcs.size() != req.getServiceIds().size())
+            throw TrimlyException.badRequest("One or more selected services not found");
+        if (svcs.stream().anyMatch(s -> !s.getShop().getId().equals(shop.getId()) || !s.isEnabled()))
+            throw TrimlyException.badRequest("Selected services are not available at this shop");
+
+        SlotKey key = new SlotKey(shop.getId(), req.getBookingDate(), req.getSlotTime());
+        if (freeSeats(shop, key) >= req.getSeats())
+            throw TrimlyException.badRequest("Seats are available at this slot — book it directly");
+
+        List<Entry> mine = byId.values().stream().filter(e -> e.customerId().equals(customerId)).toList();
+        if (mine.size() >= maxPerCustomer)
+            throw TrimlyException.badRequest("You can be on at most " + maxPerCustomer + " waitlists at a time");
+        if (mine.stream().anyMatch(e -> e.slot().equals(key)))
+            throw TrimlyException.conflict("You are already on the waitlist for this slot");
+
+        Entry e = new Entry(UUID.randomUUID().toString(), key, customerId, req.getSeats(),
+            List.copyOf(req.getServiceIds()), LocalDateTime.now());
+        while (true) {
+            ArrayDeque<Entry> q = queues.computeIfAbsent(key, k -> new ArrayDeque<>());
+            synchronized (q) {
+                if (queues.get(key) != q) continue;   // emptied and dropped meanwhile — take the new one
+                if (q.size() >= maxPerSlot)
+                    throw TrimlyException.conflict("The waitlist for this slot is full");
+                q.addLast(e);
+                byId.put(e.id(), e);
+                writes.add(new Change(e, e.id(), WaitlistStatus.WAITING, null, e.createdAt()));
+                return toResp(e, q.size());
+            }
+        }
+    }
+
+    public List<WaitlistResponse> getMine(Long customerId) {
+        return byId.values().stream()
+            .filter(e -> e.customerId().equals(customerId))
+            .sorted(Comparator.comparing(Entry::createdAt))
+            .map(e -> toResp(e, position(e)))
+            .toList();
+    }
+
+    public void leave(Long customerId, String id) {
+        Entry e = byId.get(id);
+        if (e == null) throw TrimlyException.notFound("Waitlist entry not found");
+        if (!e.customerId().equals(customerId)) throw TrimlyException.forbidden("Not your waitlist entry");
+        remove(e, WaitlistStatus.CANCELLED, null);
+    }
+
+    // ── Promotion ─────────────────────────────────────────────────────────
+
+    /** Runs after the freeing transaction committed, on the async pool */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotFreed(SlotFreedEvent ev) {
+        SlotKey key = new SlotKey(ev.shopId(), ev.date(), ev.time());
+        ArrayDeque<Entry> q = queues.get(key);
+        if (q == null) return;
+        Shop shop = shopRepo.findById(key.shopId()).orElse(null);
+        if (shop == null || shop.getStatus() != ShopStatus.ACTIVE || !shop.isOpen()) return;
+
+        synchronized (q) {
+            Iterator<Entry> it = q.iterator();
+            while (it.hasNext()) {
+                int free = freeSeats(shop, key);
+                if (free <= 0) break;
+                Entry e = it.next();
+                if (e.seats() > free) continue;   // keeps its place; a smaller request behind may fit
+                try {
+                    tx.executeWithoutResult(s -> promote(e));
+                    it.remove();
+                    byId.remove(e.id());
+                    promoted.increment();
+                } catch (TrimlyException ex) {
+                    if (ex.getStatus() == HttpStatus.CONFLICT) break;   // a direct booking took the seats
+                    // Services removed, account gone … — this entry can never be booked
+                    log.info("Waitlist entry {} dropped on promotion: {}", e.id(), ex.getMessage());
+                    it.remove();
+                    byId.remove(e.id());
+                    writes.add(new Change(null, e.id(), WaitlistStatus.CANCELLED, null, LocalDateTime.now()));
+                }
+            }
+            if (q.isEmpty()) queues.remove(key, q);
+        }
+    }
+
+    /** Booking, PROMOTED row and notice commit together */
+    private void promote(Entry e) {
+        BookingResponse b = bookingService.create(e.customerId(), toBookingRequest(e));
+        // Upsert: the entry's own insert may still be waiting in the write-behind queue
+        jdbc.update("""
+            INSERT INTO waitlist_entries
+                (id, shop_id, customer_id, booking_date, slot_time, seats, service_ids, status, booking_id, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE status = VALUES(status), booking_id = VALUES(booking_id), updated_at = VALUES(updated_at)
+            """, e.id(), e.slot().shopId(), e.customerId(), Date.valueOf(e.slot().date()),
+            Time.valueOf(e.slot().time()), e.seats(), serviceIdsCsv(e), WaitlistStatus.PROMOTED.name(),
+            b.getId(), Timestamp.valueOf(e.createdAt()), Timestamp.valueOf(LocalDateTime.now()));
+        wa.sendWaitlistPromoted(b.getId(), b.getCustomerPhone(), b.getCustomerName(), b.getShopName(),
+            e.slot().date().format(DATE_FMT), e.slot().time().format(TIME_FMT));
+    }
+
+    // ── Scheduled: expire passed slots, flush write-behind ────────────────
+
+    @Scheduled(cron = "0 */5 * * * *")
+    public void expirePassed() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Entry e : List.copyOf(byId.values()))
+            if (e.slot().date().atTime(e.slot().time()).isBefore(now))
+                remove(e, WaitlistStatus.EXPIRED, null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.waitlist.flush-ms:1000}")
+    public synchronized void flush() {
+        List<Change> batch = new ArrayList<>(unflushed);
+        for (Change c; (c = writes.poll()) != null; ) batch.add(c);
+        if (batch.isEmpty()) return;
+
+        // Inserts first — a status change in the same batch may refer to a new row
+        List<Object[]> inserts = batch.stream().filter(c -> c.inserted() != null).map(c -> {
+            Entry e = c.inserted();
+            Timestamp at = Timestamp.valueOf(e.createdAt());
+            return new Object[]{ e.id(), e.slot().shopId(), e.customerId(),
+                Date.valueOf(e.slot().date()), Time.valueOf(e.slot().time()), e.seats(),
+                serviceIdsCsv(e), WaitlistStatus.WAITING.name(), at, at };
+        }).toList();
+        List<Object[]> updates = batch.stream().filter(c -> c.inserted() == null)
+            .map(c -> new Object[]{ c.status().name(), c.bookingId(), Timestamp.valueOf(c.at()), c.id() })
+            .toList();
+        try {
+            if (!inserts.isEmpty()) jdbc.batchUpdate("""
+                INSERT INTO waitlist_entries
+                    (id, shop_id, customer_id, booking_date, slot_time, seats, service_ids, status, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE id = id
+                """, inserts);
+            if (!updates.isEmpty()) jdbc.batchUpdate(
+                "UPDATE waitlist_entries SET status = ?, booking_id = ?, updated_at = ? WHERE id = ?", updates);
+            unflushed = List.of();
+        } catch (RuntimeException ex) {
+            // Keep the changes for the next flush, ahead of newer ones so their order holds —
+            // both statements are idempotent
+            log.warn("Waitlist flush failed, will retry: {}", ex.getMessage());
+            unflushed = batch;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    private int freeSeats(Shop shop, SlotKey key) {
+        return shop.getSeats()
+            - bookingRepo.countSeatsUsedAtSlot(key.shopId(), key.date(), key.time())
+            - seatHolds.heldSeats(key.shopId(), key.date(), key.time());
+    }
+
+    private void remove(Entry e, WaitlistStatus status, Long bookingId) {
+        ArrayDeque<Entry> q = queues.get(e.slot());
+        if (q != null) {
+            synchronized (q) {
+                q.remove(e);
+                if (q.isEmpty()) queues.remove(e.slot(), q);
+            }
+        }
+        if (byId.remove(e.id()) != null)
+            writes.add(new Change(null, e.id(), status, bookingId, LocalDateTime.now()));
+    }
+
+    private int position(Entry e) {
+        ArrayDeque<Entry> q = queues.get(e.slot());
+        if (q == null) return 0;
+        synchronized (q) {
+            int i = 1;
+            for (Entry x : q) {
+                if (x == e) return i;
+                i++;
+            }
+        }
+        return 0;
+    }
+
+    private static String serviceIdsCsv(Entry e) {
+        return e.serviceIds().stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private static BookingRequest toBookingRequest(Entry e) {
+        BookingRequest r = new BookingRequest();
+        r.setShopId(e.slot().shopId());
+        r.setServiceIds(e.serviceIds());
+        r.setBookingDate(e.slot().date());
+        r.setSlotTime(e.slot().time());
+        r.setSeats(e.seats());
+        return r;
+    }
+
+    private static WaitlistResponse toResp(Entry e, int position) {
+        return WaitlistResponse.builder()
+            .id(e.id()).shopId(e.slot().shopId())
+            .bookingDate(e.slot().date()).slotTime(e.slot().time())
+            .seats(e.seats()).position(position).joinedAt(e.createdAt())
+            .build();
+    }
+}
@@ -0,0 +1,276 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.trimly.repository.WhatsAppOutboxRepository;
+import com.trimly.repository.WhatsAppOutboxRepository.Claimed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers wa_outbox rows to the Graph API.
+ *
+ * Each poll claims a batch (SKIP LOCKED, with a lease so a crashed node's
+ * rows come back), sends it with bounded concurrency on WebClient, and
+ * records every outcome in one batched UPDATE. Timeouts, 429 and 5xx are
+ * retried with exponential backoff and jitter; other 4xx responses and
+ * running out of attempts mark the row FAILED.
+ *
+ * In-flight sends are capped by an {@link AdaptiveConcurrencyLimit} fed with
+ * every call's latency, and a {@link CircuitBreaker} watches the retryable
+ * failures. While it is open nothing is claimed — messages simply wait in the
+ * outbox — and sends of an in-flight batch that has not started yet are
+ * handed back untouched (no attempt counted) until the breaker's next probe.
+ *
+ * A batch is sent in waves of the concurrency limit read at claim time, each
+ * wave bounded by the send timeout. Claims are sized so those waves fit in
+ * the lease, and the lease is stretched if a batch still needs longer, so
+ * another node never reclaims rows that are still being sent.
+ */
+@Service @Slf4j
+public class WhatsAppDispatcher {
+
+    private final WhatsAppOutboxRepository outbox;
+    private final TransactionTemplate      tx;
+    private final WhatsAppPayloadEncoder   encoder;
+    private final MeterRegistry            meters;
+    private final WebClient                webClient;
+
+    @Value("${app.whatsapp.enabled:false}")           private boolean enabled;
+
+    @Value("${app.whatsapp.outbox.batch-size:100}")        private int  batchSize;
+    @Value("${app.whatsapp.outbox.concurrency:8}")         private int  concurrency;
+    @Value("${app.whatsapp.outbox.lease-seconds:120}")     private long leaseSeconds;
+    @Value("${app.whatsapp.outbox.send-timeout-ms:10000}") private long sendTimeoutMs;
+    @Value("${app.whatsapp.outbox.max-attempts:8}")        private int  maxAttempts;
+    @Value("${app.whatsapp.outbox.backoff-base-ms:2000}")  private long backoffBaseMs;
+    @Value("${app.whatsapp.outbox.backoff-max-ms:3600000}") private long backoffMaxMs;
+
+    @Value("${app.whatsapp.concurrency.min:1}")          private int minConcurrency;
+    @Value("${app.whatsapp.concurrency.max:32}")         private int maxConcurrency;
+    @Value("${app.whatsapp.concurrency.probe-every:200}") private int probeEvery;
+
+    @Value("${app.whatsapp.circuit.window:50}")           private int    circuitWindow;
+    @Value("${app.whatsapp.circuit.min-calls:10}")        private int    circuitMinCalls;
+    @Value("${app.whatsapp.circuit.failure-rate:0.5}")    private double circuitFailureRate;
+    @Value("${app.whatsapp.circuit.open-seconds:30}")     private long   circuitOpenSeconds;
+    @Value("${app.whatsapp.circuit.trial-calls:3}")       private int    circuitTrialCalls;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final Map<String, Timer> sendLatency = new ConcurrentHashMap<>();
+    private AdaptiveConcurrencyLimit limit;
+    private CircuitBreaker breaker;
+    private Timer   latency;
+    private Counter sent;
+    private Counter retried;
+    private Counter dead;
+    private Counter deferred;
+
+    /** deferred = never sent because the breaker opened; goes back to PENDING as is */
+    private record Outcome(Claimed msg, String waMsgId, String error, boolean retryable, boolean deferred) {
+        Outcome(Claimed msg, String waMsgId, String error, boolean retryable) {
+            this(msg, waMsgId, error, retryable, false);
+        }
+        boolean ok() { return error == null && !deferred; }
+    }
+
+    public WhatsAppDispatcher(WhatsAppOutboxRepository outbox, PlatformTransactionManager txManager,
+                              WhatsAppPayloadEncoder encoder, MeterRegistry meters, WebClient whatsAppWebClient) {
+        this.outbox  = outbox;
+        this.tx      = new TransactionTemplate(txManager);
+        this.encoder = encoder;
+        this.meters  = meters;
+        this.webClient = whatsAppWebClient;
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("trimly.wa.outbox.depth", depth, AtomicLong::get)
+            .description("Outbox rows not yet delivered").register(meters);
+        latency = Timer.builder("trimly.wa.delivery.latency")
+            .description("Time from outbox insert to Graph API acceptance").register(meters);
+        sent    = Counter.builder("trimly.wa.sent").register(meters);
+        retried = Counter.builder("trimly.wa.failed").tag("outcome", "retry").register(meters);
+        dead    = Counter.builder("trimly.wa.failed").tag("outcome", "dead").register(meters);
+        deferred = Counter.builder("trimly.wa.deferred")
+            .description("Claimed sends handed back because the circuit opened").register(meters);
+
+        limit   = new AdaptiveConcurrencyLimit(concurrency, minConcurrency, maxConcurrency, probeEvery);
+        breaker = new CircuitBreaker(circuitWindow, circuitMinCalls, circuitFailureRate,
+            circuitOpenSeconds * 1000, circuitTrialCalls);
+        Gauge.builder("trimly.wa.concurrency.limit", limit, AdaptiveConcurrencyLimit::current)
+            .description("Current adaptive cap on in-flight Graph API calls").register(meters);
+        Gauge.builder("trimly.wa.circuit.state", breaker, b -> b.state().ordinal())
+            .description("0 closed, 1 open, 2 half-open").register(meters);
+    }
+
+    @Scheduled(fixedDelayString = "${app.whatsapp.outbox.poll-ms:1000}")
+    public void dispatch() {
+        List<Claimed> batch;
+        int wanted;
+        do {
+            int permits = breaker.permits();
+            if (permits == 0) break;                          // open: leave rows in the outbox
+            int parallel = limit.current();
+            wanted = Math.min(batchSize, parallel * wavesPerLease());
+            if (permits > 0) wanted = Math.min(wanted, permits);
+            LocalDateTime now = LocalDateTime.now();
+            int n = wanted;
+            batch = tx.execute(s -> outbox.claim(now, now.plus(lease(n, parallel)), n));
+            if (batch == null || batch.isEmpty()) break;
+            breaker.acquire(batch.size());
+            record(sendAll(batch, parallel));
+        } while (batch.size() == wanted);
+        depth.set(outbox.countUndelivered());
+    }
+
+    /** Full waves of timed-out sends that fit in the configured lease, leaving one timeout spare */
+    private int wavesPerLease() {
+        return (int) Math.max(1, leaseSeconds * 1000 / sendTimeoutMs - 1);
+    }
+
+    /** Worst case for n sends at this parallelism, plus a timeout's margin for recording */
+    private Duration lease(int n, int parallel) {
+        long waves = (n + parallel - 1) / parallel;
+        return Duration.ofMillis(Math.max(leaseSeconds * 1000, (waves + 1) * sendTimeoutMs));
+    }
+
+    private List<Outcome> sendAll(List<Claimed> batch, int parallel) {
+        List<Outcome> out = Flux.fromIterable(batch)
+            .flatMap(this::send, parallel)
+            .collectList()
+            .block();
+        return out != null ? out : List.of();
+    }
+
+    private Mono<Outcome> send(Claimed m) {
+        if (enabled && breaker.state() == CircuitBreaker.State.OPEN)
+            return Mono.just(new Outcome(m, null, null, true, true));
+        if (!enabled) {
+            log.info("[WA-MOCK] to=+91{} template={} params={}", m.phone(), m.template(), m.paramsJson());
+            return local(new Outcome(m, null, null, false));
+        }
+        if (!encoder.configured())
+            return local(new Outcome(m, null, "WhatsApp credentials not configured", false));
+
+        byte[] body;
+        try {
+            body = encoder.encode(m);
+        } catch (Exception e) {
+            return local(new Outcome(m, null, "Bad params: " + e.getMessage(), false));
+        }
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.post()
+                .uri(encoder.messagesUri())
+                .header("Authorization", encoder.authorization())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(Duration.ofMillis(sendTimeoutMs))
+                .map(resp -> new Outcome(m, resp.path("messages").path(0).path("id").asText(null), null, false))
+                .onErrorResume(e -> Mono.just(failure(m, e)))
+                .doOnNext(o -> observe(o, System.nanoTime() - start));
+        });
+    }
+
+    /** Settled without calling the Graph API: says nothing about its health, so any trial taken goes back */
+    private Mono<Outcome> local(Outcome o) {
+        breaker.release(1);
+        return Mono.just(o);
+    }
+
+    /** Feed one call's latency and result to the limiter, the breaker and the per-template histogram */
+    private void observe(Outcome o, long rttNanos) {
+        boolean overload = !o.ok() && o.retryable();
+        limit.onSample(rttNanos, overload);
+        breaker.record(overload);
+        sendLatency.computeIfAbsent(o.msg().template(), t -> Timer.builder("trimly.wa.send.latency")
+                .description("Graph API round-trip per template")
+                .tag("template", t)
+                .publishPercentileHistogram()
+                .register(meters))
+            .record(rttNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Outcome failure(Claimed m, Throwable e) {
+        if (e instanceof WebClientResponseException wce) {
+            int code = wce.getStatusCode().value();
+            boolean retry = code == 429 || code == 408 || code >= 500;
+            return new Outcome(m, null, code + " " + wce.getResponseBodyAsString(), retry);
+        }
+        String what = e instanceof TimeoutException ? "Timeout" : e.getClass().getSimpleName();
+        return new Outcome(m, null, what + ": " + e.getMessage(), true);
+    }
+
+    private void record(List<Outcome> outcomes) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> okIds = new ArrayList<>(), failIds = new ArrayList<>();
+        List<String> wamids = new ArrayList<>(), errors = new ArrayList<>();
+        List<LocalDateTime> next = new ArrayList<>();
+        List<Long> deferIds = new ArrayList<>();
+
+        for (Outcome o : outcomes) {
+            Claimed m = o.msg();
+            if (o.deferred()) {
+                deferIds.add(m.id());
+                deferred.increment();
+                continue;
+            }
+            if (o.ok()) {
+                okIds.add(m.id());
+                wamids.add(o.waMsgId());
+                latency.record(Duration.between(m.createdAt(), now));
+                sent.increment();
+                continue;
+            }
+            int attempt = m.attempts() + 1;
+            boolean retry = o.retryable() && attempt < maxAttempts;
+            failIds.add(m.id());
+            errors.add(o.error());
+            next.add(retry ? now.plus(backoff(attempt)) : null);
+            (retry ? retried : dead).increment();
+            if (retry)
+                log.warn("[WA] template={} to=+91{} attempt {} failed, retrying: {}", m.template(), m.phone(), attempt, o.error());
+            else
+                log.error("[WA] template={} to=+91{} failed permanently after {} attempt(s): {}", m.template(), m.phone(), attempt, o.error());
+        }
+        outbox.markSent(okIds, wamids, now);
+        outbox.markFailed(failIds, next, errors);
+        outbox.release(deferIds, now.plusSeconds(circuitOpenSeconds));
+    }
+
+    /** base · 2^(attempt-1), capped, with the upper half jittered so retries spread out */
+    private Duration backoff(int attempt) {
+        long exp = backoffBaseMs << Math.min(attempt - 1, 30);
+        long cap = Math.min(exp <= 0 ? backoffMaxMs : exp, backoffMaxMs);
+        long half = cap / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+}
@@ -0,0 +1,111 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimly.repository.WhatsAppOutboxRepository.Claimed;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.regex.Pattern;
+
+/**
+ * Writes Graph API template-message bodies straight to bytes.
+ *
+ * The endpoint URI and the Authorization header are built once. Each message
+ * streams its parameters from the stored JSON array into the output with one
+ * parser and one generator — no intermediate maps, lists or per-parameter
+ * strings — so WebClient just copies the finished byte[] to the socket.
+ */
+@Component @RequiredArgsConstructor
+public class WhatsAppPayloadEncoder {
+
+    /** Leading +91 / 91 / 0 on a local number */
+    private static final Pattern LOCAL_PREFIX = Pattern.compile("^(\\+91|91|0)");
+    private static final Pattern NON_DIGIT    = Pattern.compile("\\D");
+
+    private final ObjectMapper mapper;
+
+    @Value("${app.whatsapp.base-url}")         private String baseUrl;
+    @Value("${app.whatsapp.phone-number-id:}") private String phoneNumberId;
+    @Value("${app.whatsapp.access-token:}")    private String accessToken;
+    @Value("${app.whatsapp.language:en_IN}")   private String language;
+
+    private JsonFactory json;
+    private URI    messagesUri;
+    private String authorization;
+
+    @PostConstruct
+    void init() {
+        json = mapper.getFactory();
+        if (!configured()) return;
+        messagesUri   = URI.create(baseUrl + "/" + phoneNumberId + "/messages");
+        authorization = "Bearer " + accessToken;
+    }
+
+    public boolean configured() {
+        return !phoneNumberId.isBlank() && !accessToken.isBlank();
+    }
+
+    public URI messagesUri()     { return messagesUri; }
+    public String authorization() { return authorization; }
+
+    /** Country code 91 plus the 10-digit local number */
+    static String normalisePhone(String phone) {
+        String local = LOCAL_PREFIX.matcher(phone).replaceFirst("");
+        return "91" + NON_DIGIT.matcher(local).replaceAll("");
+    }
+
+    /**
+     * {@code {"messaging_product":"whatsapp","to":..,"type":"template","template":{"name":..,
+     * "language":{"code":..},"components":[{"type":"body","parameters":[{"type":"text","text":..},..]}]}}}
+     *
+     * @throws IOException if the stored params are not a JSON array of strings
+     */
+    public byte[] encode(Claimed m) throws IOException {
+        ByteArrayBuilder out = new ByteArrayBuilder(256 + m.paramsJson().length());
+        try (JsonGenerator g = json.createGenerator(out);
+             JsonParser p = json.createParser(m.paramsJson())) {
+            g.writeStartObject();
+            g.writeStringField("messaging_product", "whatsapp");
+            g.writeStringField("to", normalisePhone(m.phone()));
+            g.writeStringField("type", "template");
+            g.writeObjectFieldStart("template");
+            g.writeStringField("name", m.template());
+            g.writeObjectFieldStart("language");
+            g.writeStringField("code", language);
+            g.writeEndObject();
+            g.writeArrayFieldStart("components");
+            g.writeStartObject();
+            g.writeStringField("type", "body");
+            g.writeArrayFieldStart("parameters");
+            writeParameters(p, g);
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeParameters(JsonParser p, JsonGenerator g) throws IOException {
+        if (p.nextToken() != JsonToken.START_ARRAY) throw new IOException("params must be a JSON array");
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t != JsonToken.VALUE_STRING) throw new IOException("params must be strings, got " + t);
+            g.writeStartObject();
+            g.writeStringField("type", "text");
+            g.writeFieldName("text");
+            g.writeString(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            g.writeEndObject();
+        }
+    }
+}
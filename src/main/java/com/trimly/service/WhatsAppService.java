@@ -1,19 +1,23 @@
 package com.trimly.service;
 
-import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimly.repository.WhatsAppOutboxRepository;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * WhatsApp Business Cloud API integration (Meta Graph API v19.0).
  *
- * All messages are sent asynchronously so they never block HTTP responses.
+ * Nothing is sent from here: each message becomes a wa_outbox row, written in
+ * the caller's transaction, so a rolled-back change sends nothing and a
+ * committed one survives restarts and Graph API outages. WhatsAppDispatcher
+ * delivers the rows.
  *
  * SETUP GUIDE:
  * 1. Go to https://developers.facebook.com → Create App → Add "WhatsApp"
@@ -22,15 +26,9 @@ import java.util.Map;
  *
  * Phone numbers: always stored/sent as 10-digit Indian numbers, prefixed with "91" for API.
  */
-@Service @Slf4j
+@Service @RequiredArgsConstructor
 public class WhatsAppService {
 
-    @Value("${app.whatsapp.enabled:false}")           private boolean enabled;
-    @Value("${app.whatsapp.base-url}")                private String baseUrl;
-    @Value("${app.whatsapp.phone-number-id:}")        private String phoneNumberId;
-    @Value("${app.whatsapp.access-token:}")           private String accessToken;
-    @Value("${app.whatsapp.language:en_IN}")          private String language;
-
     // Template names (must match approved templates in Meta Business Manager)
     @Value("${app.whatsapp.template.booking-request:trimly_booking_request}")     private String tplBookingRequest;
     @Value("${app.whatsapp.template.booking-confirmed:trimly_booking_confirmed}") private String tplBookingConfirmed;
@@ -41,15 +39,15 @@ public class WhatsAppService {
     @Value("${app.whatsapp.template.reschedule-response:trimly_reschedule_response}") private String tplRescheduleResponse;
     @Value("${app.whatsapp.template.otp-login:trimly_otp_login}")                private String tplOtp;
     @Value("${app.whatsapp.template.password-reset:trimly_password_reset}")       private String tplPasswordReset;
+    @Value("${app.whatsapp.template.waitlist-promoted:trimly_waitlist_promoted}") private String tplWaitlistPromoted;
+    @Value("${app.whatsapp.template.appointment-reminder:trimly_appointment_reminder}") private String tplAppointmentReminder;
+    @Value("${app.whatsapp.template.daily-digest:trimly_daily_digest}")           private String tplDailyDigest;
 
-    private final WebClient webClient;
-
-    public WhatsAppService(WebClient.Builder builder) {
-        this.webClient = builder.build();
-    }
+    private final WhatsAppOutboxRepository outbox;
+    private final ObjectMapper             mapper;
 
     // ─────────────────────────────────────────────────────────────────────────
-    // Public messaging methods (all @Async — non-blocking)
+    // Public messaging methods (each queues one outbox row)
     // ─────────────────────────────────────────────────────────────────────────
 
     /**
@@ -57,11 +55,10 @@ public class WhatsAppService {
      * Template: trimly_booking_request
      * Params: {{1}}=customerName, {{2}}=services, {{3}}=date, {{4}}=time, {{5}}=bookingRef
      */
-    @Async
-    public void sendBookingRequestToBarber(String barberPhone, String customerName,
+    public void sendBookingRequestToBarber(Long bookingId, String barberPhone, String customerName,
             String services, String date, String time, String bookingRef) {
-        send(barberPhone, tplBookingRequest,
-            params(customerName, services, date, time, bookingRef));
+        enqueue(bookingId, barberPhone, tplBookingRequest,
+            customerName, services, date, time, bookingRef);
     }
 
     /**
@@ -69,11 +66,10 @@ public class WhatsAppService {
      * Template: trimly_booking_confirmed
      * Params: {{1}}=customerName, {{2}}=shopName, {{3}}=services, {{4}}=date, {{5}}=time
      */
-    @Async
-    public void sendBookingConfirmedToCustomer(String customerPhone, String customerName,
+    public void sendBookingConfirmedToCustomer(Long bookingId, String customerPhone, String customerName,
             String shopName, String services, String date, String time) {
-        send(customerPhone, tplBookingConfirmed,
-            params(customerName, shopName, services, date, time));
+        enqueue(bookingId, customerPhone, tplBookingConfirmed,
+            customerName, shopName, services, date, time);
     }
 
     /**
@@ -81,11 +77,10 @@ public class WhatsAppService {
      * Template: trimly_booking_rejected
      * Params: {{1}}=customerName, {{2}}=shopName, {{3}}=services, {{4}}=reason
      */
-    @Async
-    public void sendBookingRejectedToCustomer(String customerPhone, String customerName,
+    public void sendBookingRejectedToCustomer(Long bookingId, String customerPhone, String customerName,
             String shopName, String services, String reason) {
-        send(customerPhone, tplBookingRejected,
-            params(customerName, shopName, services, reason != null ? reason : "No reason provided"));
+        enqueue(bookingId, customerPhone, tplBookingRejected,
+            customerName, shopName, services, reason != null ? reason : "No reason provided");
     }
 
     /**
@@ -93,10 +88,9 @@ public class WhatsAppService {
      * Template: trimly_booking_cancelled
      * Params: {{1}}=name, {{2}}=shopName, {{3}}=date, {{4}}=time
      */
-    @Async
-    public void sendCancellationNotice(String toPhone, String name,
+    public void sendCancellationNotice(Long bookingId, String toPhone, String name,
             String shopName, String date, String time) {
-        send(toPhone, tplBookingCancelled, params(name, shopName, date, time));
+        enqueue(bookingId, toPhone, tplBookingCancelled, name, shopName, date, time);
     }
 
     /**
@@ -104,10 +98,9 @@ public class WhatsAppService {
      * Template: trimly_booking_completed
      * Params: {{1}}=customerName, {{2}}=shopName, {{3}}=amount
      */
-    @Async
-    public void sendBookingCompleted(String customerPhone, String customerName,
+    public void sendBookingCompleted(Long bookingId, String customerPhone, String customerName,
             String shopName, String amount) {
-        send(customerPhone, tplBookingCompleted, params(customerName, shopName, amount));
+        enqueue(bookingId, customerPhone, tplBookingCompleted, customerName, shopName, amount);
     }
 
     /**
@@ -115,11 +108,10 @@ public class WhatsAppService {
      * Template: trimly_reschedule_request
      * Params: {{1}}=customerName, {{2}}=shopName, {{3}}=oldTime, {{4}}=newDate, {{5}}=newTime, {{6}}=reason
      */
-    @Async
-    public void sendRescheduleRequestToCustomer(String customerPhone, String customerName,
+    public void sendRescheduleRequestToCustomer(Long bookingId, String customerPhone, String customerName,
             String shopName, String oldTime, String newDate, String newTime, String reason) {
-        send(customerPhone, tplRescheduleRequest,
-            params(customerName, shopName, oldTime, newDate, newTime, reason));
+        enqueue(bookingId, customerPhone, tplRescheduleRequest,
+            customerName, shopName, oldTime, newDate, newTime, reason);
     }
 
     /**
@@ -127,11 +119,20 @@ public class WhatsAppService {
      * Template: trimly_reschedule_response
      * Params: {{1}}=shopName, {{2}}=customerName, {{3}}=newTime, {{4}}=status
      */
-    @Async
-    public void sendRescheduleResponseToBarber(String barberPhone, String shopName,
+    public void sendRescheduleResponseToBarber(Long bookingId, String barberPhone, String shopName,
             String customerName, String newTime, String status) {
-        send(barberPhone, tplRescheduleResponse,
-            params(shopName, customerName, newTime, status));
+        enqueue(bookingId, barberPhone, tplRescheduleResponse,
+            shopName, customerName, newTime, status);
+    }
+
+    /**
+     * A seat freed up and the customer's waitlist entry became a booking request.
+     * Template: trimly_waitlist_promoted
+     * Params: {{1}}=customerName, {{2}}=shopName, {{3}}=date, {{4}}=time
+     */
+    public void sendWaitlistPromoted(Long bookingId, String customerPhone, String customerName,
+            String shopName, String date, String time) {
+        enqueue(bookingId, customerPhone, tplWaitlistPromoted, customerName, shopName, date, time);
     }
 
     /**
@@ -139,9 +140,8 @@ public class WhatsAppService {
      * Template: trimly_otp_login
      * Params: {{1}}=otp, {{2}}=expiryMinutes
      */
-    @Async
     public void sendOtp(String phone, String otp, String expiryMinutes) {
-        send(phone, tplOtp, params(otp, expiryMinutes));
+        enqueue(null, phone, tplOtp, otp, expiryMinutes);
     }
 
     /**
@@ -149,68 +149,85 @@ public class WhatsAppService {
      * Template: trimly_password_reset
      * Params: {{1}}=name, {{2}}=resetLink, {{3}}=expiryHours
      */
-    @Async
     public void sendPasswordReset(String phone, String name, String resetLink, String expiryHours) {
-        send(phone, tplPasswordReset, params(name, resetLink, expiryHours));
+        enqueue(null, phone, tplPasswordReset, name, resetLink, expiryHours);
     }
 
     // ─────────────────────────────────────────────────────────────────────────
-    // Core send logic
+    // Batch delivery — one JDBC batch for many messages (bulk barber actions)
     // ─────────────────────────────────────────────────────────────────────────
 
-    private void send(String phone, String templateName, List<Map<String, Object>> parameters) {
-        if (!enabled) {
-            log.info("[WA-MOCK] to=+91{} template={} params={}", phone, templateName, parameters);
-            return;
-        }
+    /** A prepared template message, sent later as part of a batch. */
+    public record Message(Long bookingId, String phone, String template, String[] params) {}
 
-        if (phoneNumberId.isBlank() || accessToken.isBlank()) {
-            log.warn("WhatsApp credentials not configured — skipping message to +91{}", phone);
-            return;
-        }
+    public Message bookingRequestMessage(Long bookingId, String barberPhone, String customerName,
+            String services, String date, String time, String bookingRef) {
+        return new Message(bookingId, barberPhone, tplBookingRequest,
+            new String[] { customerName, services, date, time, bookingRef });
+    }
+
+    public Message bookingConfirmedMessage(Long bookingId, String customerPhone, String customerName,
+            String shopName, String services, String date, String time) {
+        return new Message(bookingId, customerPhone, tplBookingConfirmed,
+            new String[] { customerName, shopName, services, date, time });
+    }
 
-        // Normalize phone: strip leading 0/+91, keep 10 digits, prepend country code 91
-        String normalised = "91" + phone.replaceAll("^(\\+91|91|0)", "").replaceAll("\\D", "");
-
-        Map<String, Object> body = Map.of(
-            "messaging_product", "whatsapp",
-            "to", normalised,
-            "type", "template",
-            "template", Map.of(
-                "name", templateName,
-                "language", Map.of("code", language),
-                "components", List.of(
-                    Map.of(
-                        "type", "body",
-                        "parameters", parameters
-                    )
-                )
-            )
-        );
-
-        webClient.post()
-            .uri(baseUrl + "/" + phoneNumberId + "/messages")
-            .header("Authorization", "Bearer " + accessToken)
-            .header("Content-Type", "application/json")
-            .bodyValue(body)
-            .retrieve()
-            .bodyToMono(String.class)
-            .doOnSuccess(resp -> log.info("[WA] Sent template={} to=+91{} response={}", templateName, phone, resp))
-            .doOnError(e -> {
-                if (e instanceof WebClientResponseException wce) {
-                    log.error("[WA] Failed template={} to=+91{} status={} body={}",
-                        templateName, phone, wce.getStatusCode(), wce.getResponseBodyAsString());
-                } else {
-                    log.error("[WA] Failed template={} to=+91{} error={}", templateName, phone, e.getMessage());
-                }
-            })
-            .subscribe(); // fire and forget
-    }
-
-    /** Build a list of text parameters for a WhatsApp template */
-    private List<Map<String, Object>> params(String... values) {
-        return java.util.Arrays.stream(values)
-            .map(v -> Map.<String, Object>of("type", "text", "text", v != null ? v : ""))
-            .toList();
+    public Message bookingRejectedMessage(Long bookingId, String customerPhone, String customerName,
+            String shopName, String services, String reason) {
+        return new Message(bookingId, customerPhone, tplBookingRejected,
+            new String[] { customerName, shopName, services, reason != null ? reason : "No reason provided" });
+    }
+
+    public Message bookingCompletedMessage(Long bookingId, String customerPhone, String customerName,
+            String shopName, String amount) {
+        return new Message(bookingId, customerPhone, tplBookingCompleted,
+            new String[] { customerName, shopName, amount });
+    }
+
+    /**
+     * Appointment reminder, a couple of hours before the slot.
+     * Template: trimly_appointment_reminder
+     * Params: {{1}}=customerName, {{2}}=shopName, {{3}}=services, {{4}}=time
+     */
+    public Message appointmentReminderMessage(Long bookingId, String customerPhone, String customerName,
+            String shopName, String services, String time) {
+        return new Message(bookingId, customerPhone, tplAppointmentReminder,
+            new String[] { customerName, shopName, services, time });
+    }
+
+    /**
+     * Evening digest of tomorrow's bookings for the barber.
+     * Template: trimly_daily_digest
+     * Params: {{1}}=shopName, {{2}}=date, {{3}}=bookingCount, {{4}}=schedule
+     */
+    public Message dailyDigestMessage(String barberPhone, String shopName, String date,
+            String bookingCount, String schedule) {
+        return new Message(null, barberPhone, tplDailyDigest,
+            new String[] { shopName, date, bookingCount, schedule });
+    }
+
+    public void sendBatch(List<Message> messages) {
+        outbox.insert(messages.stream()
+            .map(m -> new WhatsAppOutboxRepository.NewMessage(m.bookingId(), m.phone(), m.template(), json(m.params())))
+            .toList(), LocalDateTime.now());
+    }
+
+    // ─────────────────────────────────────────────────────────────────────────
+    // Outbox
+    // ─────────────────────────────────────────────────────────────────────────
+
+    /** bookingId links the message to its booking for delivery tracking; null for account messages */
+    private void enqueue(Long bookingId, String phone, String templateName, String... values) {
+        outbox.insert(List.of(new WhatsAppOutboxRepository.NewMessage(bookingId, phone, templateName, json(values))),
+            LocalDateTime.now());
+    }
+
+    private String json(String[] values) {
+        String[] clean = Arrays.stream(values).map(v -> v != null ? v : "").toArray(String[]::new);
+        try {
+            return mapper.writeValueAsString(clean);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);   // a String[] always serialises
+        }
     }
 }
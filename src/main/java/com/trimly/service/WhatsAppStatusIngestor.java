@@ -0,0 +1,243 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimly.enums.DeliveryStatus;
+import com.trimly.exception.TrimlyException;
+import com.trimly.repository.WhatsAppOutboxRepository;
+import com.trimly.repository.WhatsAppOutboxRepository.StatusUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Buffers WhatsApp delivery receipts between the webhook and the database.
+ *
+ * Callbacks are checked against Meta's X-Hub-Signature-256 (HMAC-SHA256 of
+ * the raw body with the app secret) and reduced to their status entries on
+ * the request thread, which then only offers them to a bounded queue and
+ * returns. A scheduled drain applies up to {@code batch-size} receipts per
+ * statement batch, keeping just the furthest status per message. When the
+ * queue is full the webhook answers 503 and Meta redelivers later — receipts
+ * are idempotent, so a partially accepted callback is safe to replay.
+ *
+ * A receipt can beat the dispatcher's own "sent" write for the same message,
+ * and that write can itself be delayed by a slow batch or a database retry.
+ * Receipts for ids not in wa_outbox yet are parked and re-checked every
+ * {@code unknown-retry-seconds} until {@code unknown-window-minutes} after
+ * they arrived, then dropped.
+ *
+ * Without an app secret every callback is refused, unless
+ * {@code allow-unsigned} is set (local profile only).
+ */
+@Service @RequiredArgsConstructor @Slf4j
+public class WhatsAppStatusIngestor {
+
+    private final WhatsAppOutboxRepository outbox;
+    private final ObjectMapper             mapper;
+    private final MeterRegistry            meters;
+
+    @Value("${app.whatsapp.webhook.verify-token:}")        private String verifyToken;
+    @Value("${app.whatsapp.webhook.app-secret:}")          private String appSecret;
+    @Value("${app.whatsapp.webhook.allow-unsigned:false}") private boolean allowUnsigned;
+
+    @Value("${app.whatsapp.webhook.queue-capacity:10000}") private int queueCapacity;
+    @Value("${app.whatsapp.webhook.batch-size:500}")       private int batchSize;
+    @Value("${app.whatsapp.webhook.unknown-retry-seconds:15}")  private long unknownRetrySeconds;
+    @Value("${app.whatsapp.webhook.unknown-window-minutes:15}") private long unknownWindowMinutes;
+
+    private BlockingQueue<Pending> queue;
+    /** Receipts for ids not recorded yet, oldest first; touched only by drain() */
+    private final ArrayDeque<Pending> parked = new ArrayDeque<>();
+    private Counter received;
+    private Counter applied;
+    private Counter dropped;
+
+    /** receivedAt / retryAt in epoch millis */
+    private record Pending(StatusUpdate update, long receivedAt, long retryAt) {}
+
+    @PostConstruct
+    void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("trimly.wa.status.queue", queue, BlockingQueue::size)
+            .description("Delivery receipts waiting to be written").register(meters);
+        received = Counter.builder("trimly.wa.status.received").register(meters);
+        applied  = Counter.builder("trimly.wa.status.applied").register(meters);
+        dropped  = Counter.builder("trimly.wa.status.dropped")
+            .description("Receipts for messages never recorded as sent").register(meters);
+        Gauge.builder("trimly.wa.status.parked", parked, ArrayDeque::size)
+            .description("Receipts waiting for their message to be recorded").register(meters);
+        if (appSecret.isBlank())
+            log.warn(allowUnsigned
+                ? "WhatsApp webhook accepts UNSIGNED callbacks — app-secret is blank (local only)"
+                : "WhatsApp webhook app-secret is blank — every status callback will be refused");
+    }
+
+    // ── Webhook ───────────────────────────────────────────────────────────
+
+    /** Subscription handshake: echo the challenge when the token matches */
+    public String verifySubscription(String mode, String token, String challenge) {
+        if (!"subscribe".equals(mode) || verifyToken.isBlank() || !verifyToken.equals(token))
+            throw TrimlyException.forbidden("Webhook verification failed");
+        return challenge;
+    }
+
+    /**
+     * Authenticate a status callback and queue its receipts.
+     * The signature is only skipped with a blank secret and allow-unsigned (local setups).
+     */
+    public void receive(byte[] body, String signature) {
+        if (appSecret.isBlank()) {
+            if (!allowUnsigned) throw TrimlyException.forbidden("Webhook signing is not configured");
+        } else if (!signatureMatches(body, signature)) {
+            throw TrimlyException.forbidden("Invalid webhook signature");
+        }
+        List<StatusUpdate> updates;
+        try {
+            updates = parse(mapper.readTree(body));
+        } catch (IOException e) {
+            throw TrimlyException.badRequest("Malformed webhook payload");
+        }
+        if (!offer(updates))
+            throw TrimlyException.unavailable("Receipt buffer full, retry later");
+    }
+
+    private boolean signatureMatches(byte[] body, String header) {
+        if (header == null || !header.startsWith("sha256=")) return false;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(appSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] expected = mac.doFinal(body);
+            byte[] actual   = HexFormat.of().parseHex(header.substring(7));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;   // not hex
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);   // HmacSHA256 is always available
+        }
+    }
+
+    /** entry[].changes[].value.statuses[] — message callbacks and unknown statuses are ignored */
+    private static List<StatusUpdate> parse(JsonNode root) {
+        List<StatusUpdate> out = new ArrayList<>();
+        for (JsonNode entry : root.path("entry"))
+            for (JsonNode change : entry.path("changes"))
+                for (JsonNode st : change.path("value").path("statuses")) {
+                    DeliveryStatus status = switch (st.path("status").asText("")) {
+                        case "sent"      -> DeliveryStatus.SENT;
+                        case "delivered" -> DeliveryStatus.DELIVERED;
+                        case "read"      -> DeliveryStatus.READ;
+                        case "failed"    -> DeliveryStatus.FAILED;
+                        default          -> null;
+                    };
+                    String id = st.path("id").asText(null);
+                    if (status == null || id == null) continue;
+                    long epoch = st.path("timestamp").asLong(0);
+                    LocalDateTime at = epoch > 0
+                        ? LocalDateTime.ofInstant(Instant.ofEpochSecond(epoch), ZoneId.systemDefault())
+                        : LocalDateTime.now();
+                    JsonNode err = st.path("errors").path(0);
+                    String error = err.isMissingNode() ? null
+                        : err.path("code").asText("") + " " + err.path("title").asText("");
+                    out.add(new StatusUpdate(id, status, at, error));
+                }
+        return out;
+    }
+
+    // ── Buffer ────────────────────────────────────────────────────────────
+
+    /** Non-blocking; false when the buffer is full and the caller should ask Meta to retry */
+    public boolean offer(List<StatusUpdate> updates) {
+        long now = System.currentTimeMillis();
+        for (StatusUpdate u : updates) {
+            if (!queue.offer(new Pending(u, now, now))) return false;
+            received.increment();
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.whatsapp.webhook.flush-ms:500}")
+    public synchronized void drain() {
+        long now = System.currentTimeMillis();
+        List<Pending> chunk = new ArrayList<>(batchSize);
+        List<Pending> retry = new ArrayList<>();
+        // Parked receipts whose re-check is due go first, in arrival order
+        while (!parked.isEmpty() && parked.peekFirst().retryAt() <= now && chunk.size() < batchSize)
+            chunk.add(parked.pollFirst());
+        while (!chunk.isEmpty() || queue.drainTo(chunk, batchSize) > 0) {
+            try {
+                apply(chunk, retry);
+            } catch (Exception e) {
+                // Database trouble: keep what fits and try again next tick
+                log.warn("Applying {} WhatsApp receipts failed, will retry: {}", chunk.size(), e.getMessage());
+                chunk.forEach(queue::offer);
+                break;
+            }
+            chunk.clear();
+        }
+        for (Pending p : retry) {
+            if (parked.size() < queueCapacity) parked.addLast(p);
+            else dropped.increment();
+        }
+    }
+
+    @PreDestroy
+    void flush() {
+        drain();
+    }
+
+    private void apply(List<Pending> chunk, List<Pending> retry) {
+        long now = System.currentTimeMillis();
+        // One row per message — the furthest status wins, later receipts for it are moot
+        Map<String, Pending> latest = new LinkedHashMap<>();
+        for (Pending p : chunk)
+            latest.merge(p.update().waMsgId(), p,
+                (a, b) -> b.update().status().compareTo(a.update().status()) > 0 ? b : a);
+        List<Pending> rows = new ArrayList<>(latest.values());
+        int[] counts = outbox.applyStatuses(rows.stream().map(Pending::update).toList());
+
+        List<String> missed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) applied.increment();
+            else missed.add(rows.get(i).update().waMsgId());
+        }
+        if (missed.isEmpty()) return;
+
+        // 0 rows: either already further along (fine) or not recorded yet (retry)
+        Set<String> known = new HashSet<>(outbox.findKnownMsgIds(missed));
+        for (String id : missed) {
+            if (known.contains(id)) continue;
+            Pending p = latest.get(id);
+            if (now - p.receivedAt() < unknownWindowMinutes * 60_000)
+                retry.add(new Pending(p.update(), p.receivedAt(), now + unknownRetrySeconds * 1000));
+            else dropped.increment();
+        }
+    }
+}
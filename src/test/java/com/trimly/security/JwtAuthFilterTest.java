@@ -0,0 +1,161 @@
+package com.trimly.security;
+
+import com.trimly.entity.User;
+import com.trimly.enums.Role;
+import io.jsonwebtoken.JwtParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The Bearer path through JwtAuthFilter and JwtService, counting signature
+ * verifications on the real parser.
+ */
+class JwtAuthFilterTest {
+
+    private static final String SECRET  = "test-secret-test-secret-test-secret-0123456789";
+    private static final long   USER_ID = 42L;
+    private static final int    REQUESTS = 10_000;
+
+    private final UserStateCache userStates = mock(UserStateCache.class);
+    private final TokenRevocationService revocations = mock(TokenRevocationService.class);
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private JwtService jwt;
+    private JwtAuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        when(userStates.get(USER_ID)).thenReturn(Optional.of(new UserStateCache.UserState(true, Role.BARBER, null,
+            "Amit", "amit@trimly.in", "9876543210")));
+        jwt = jwtService(10_000);
+        filter = new JwtAuthFilter(jwt, userStates, revocations);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatedRequestsWithOneTokenVerifyItsSignatureOnce() throws Exception {
+        String token = jwt.generateAccessToken(user(), 7L);
+
+        for (int i = 0; i < REQUESTS; i++) {
+            Authentication auth = authenticate(token);
+            assertThat(auth).isNotNull();
+            AuthUser principal = (AuthUser) auth.getPrincipal();
+            assertThat(principal.id()).isEqualTo(USER_ID);
+            assertThat(principal.role()).isEqualTo(Role.BARBER);
+            assertThat(principal.shopId()).isEqualTo(7L);
+        }
+
+        assertThat(verifications.get()).isEqualTo(1);
+        // Account state is still checked on every request
+        verify(userStates, times(REQUESTS)).get(USER_ID);
+    }
+
+    @Test
+    void withoutTheCacheEachRequestVerifiesOnce() throws Exception {
+        jwt = jwtService(0);
+        filter = new JwtAuthFilter(jwt, userStates, revocations);
+        String token = jwt.generateAccessToken(user(), null);
+
+        for (int i = 0; i < 100; i++) assertThat(authenticate(token)).isNotNull();
+
+        assertThat(verifications.get()).isEqualTo(100);
+    }
+
+    @Test
+    void tamperedTokenIsRejectedAndNeverCached() throws Exception {
+        String token = jwt.generateAccessToken(user(), null);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThat(authenticate(tampered)).isNull();
+        assertThat(authenticate(tampered)).isNull();
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredTokenIsRejected() throws Exception {
+        ReflectionTestUtils.setField(jwt, "accessExpirationMs", -1_000L);
+        String token = jwt.generateAccessToken(user(), null);
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void disabledAccountIsRejectedEvenWithACachedToken() throws Exception {
+        String token = jwt.generateAccessToken(user(), null);
+        assertThat(authenticate(token)).isNotNull();
+
+        when(userStates.get(USER_ID)).thenReturn(Optional.of(new UserStateCache.UserState(false, Role.BARBER, null,
+            "Amit", "amit@trimly.in", "9876543210")));
+        assertThat(authenticate(token)).isNull();
+        assertThat(verifications.get()).isEqualTo(1);
+    }
+
+    @Test
+    void revokedTokenIsRejected() throws Exception {
+        when(revocations.isRevoked(any(), any())).thenReturn(true);
+        assertThat(authenticate(jwt.generateAccessToken(user(), null))).isNull();
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    /** One request through the filter; returns what it put in the security context */
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/barber/bookings");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    /** A JwtService whose parser counts every signature verification */
+    private JwtService jwtService(long cacheSize) {
+        JwtService s = new JwtService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(s, "secret", SECRET);
+        ReflectionTestUtils.setField(s, "accessExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(s, "verifiedCacheSize", cacheSize);
+        ReflectionTestUtils.setField(s, "verifiedCacheTtlSeconds", 300L);
+        s.init();
+
+        JwtParser real = (JwtParser) ReflectionTestUtils.getField(s, "parser");
+        ReflectionTestUtils.setField(s, "parser", Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{ JwtParser.class }, (proxy, method, args) -> {
+                if (method.getName().equals("parseSignedClaims")) verifications.incrementAndGet();
+                try {
+                    return method.invoke(real, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }));
+        return s;
+    }
+
+    private static User user() {
+        User u = User.builder().fullName("Amit").email("amit@trimly.in").phone("9876543210").role(Role.BARBER).build();
+        u.setId(USER_ID);
+        return u;
+    }
+}
@@ -0,0 +1,133 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs in the fixed-heap surefire execution (fresh JVM, -Xmx64m): 1M rows
+ * buffered anywhere would need well over 150 MB, so finishing at all shows the
+ * export streams.
+ */
+@Tag("fixed-heap")
+class BookingExportServiceTest {
+
+    private static final int ROWS        = 1_000_000;
+    private static final int CHECK_EVERY = 100_000;
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final BookingExportService service =
+        new BookingExportService(jdbc, mock(ShopDirectory.class), new ObjectMapper());
+    /** The statement creator the export last handed to JdbcTemplate */
+    private final PreparedStatementCreator[] creator = new PreparedStatementCreator[1];
+
+    @Test
+    void csvExportOfAMillionRowsStreamsInFixedHeap() throws Exception {
+        CountingSink sink = new CountingSink();
+        long[] lastFlushed = {0};
+
+        feed(ROWS, col -> switch (col) {
+            case 1  -> "1000042";
+            case 3  -> "Ravi Kumar";
+            case 5  -> "9876543210";
+            case 6  -> "Haircut, Beard Trim";
+            case 14 -> "COMPLETED";
+            default -> "42";
+        }, row -> {
+            if (row % CHECK_EVERY != 0) return;
+            // Bytes reach the client while the cursor is still open
+            assertThat(sink.bytes).as("bytes flushed by row %d", row).isGreaterThan(lastFlushed[0]);
+            lastFlushed[0] = sink.bytes;
+        });
+
+        service.export(null, null, null, null, BookingExportService.Format.CSV).writeTo(sink);
+
+        assertThat(sink.lines).isEqualTo(ROWS + 1);   // header + rows
+    }
+
+    @Test
+    void cursorIsForwardOnlyAndStreamedByTheDriver() throws Exception {
+        feed(0, col -> null, row -> { });
+        service.export(null, null, null, null, BookingExportService.Format.CSV).writeTo(new ByteArrayOutputStream());
+
+        PreparedStatementCreator psc = creator[0];
+        Connection con = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(con.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(ps);
+
+        assertThat(psc.createPreparedStatement(con)).isSameAs(ps);
+        verify(con).prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        verify(ps).setFetchSize(Integer.MIN_VALUE);   // MySQL Connector/J: row-by-row streaming
+    }
+
+    @Test
+    void csvCellsThatLookLikeFormulasAreNeutralised() throws Exception {
+        String[] values = {"=HYPERLINK(\"http://x\")", "+91 98765", "-2+3", "@SUM(A1)", "\tx", "plain"};
+        feed(1, col -> col <= values.length ? values[col - 1] : null, row -> { });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(null, null, null, null, BookingExportService.Format.CSV).writeTo(out);
+
+        String row = out.toString(StandardCharsets.UTF_8).split("\n")[1];
+        assertThat(row).startsWith("\"'=HYPERLINK(\"\"http://x\"\")\",'+91 98765,'-2+3,'@SUM(A1),'\tx,plain,");
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    /** Make the mocked cursor hand {@code rows} rows to the export, calling {@code afterRow} after each */
+    private void feed(int rows, IntFunction<String> column, IntConsumer afterRow) {
+        doAnswer(inv -> {
+            creator[0] = inv.getArgument(0);
+            RowCallbackHandler handler = inv.getArgument(1);
+            ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ ResultSet.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("getString")) return column.apply((Integer) args[0]);
+                    throw new UnsupportedOperationException(method.getName());
+                });
+            for (int i = 1; i <= rows; i++) {
+                handler.processRow(rs);
+                afterRow.accept(i);
+            }
+            return null;
+        }).when(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    /** Discards what it is given, keeping only byte and line counts */
+    private static final class CountingSink extends OutputStream {
+        long bytes;
+        long lines;
+
+        @Override public void write(int b) {
+            bytes++;
+            if (b == '\n') lines++;
+        }
+
+        @Override public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) if (b[i] == '\n') lines++;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.trimly.repository.WhatsAppOutboxRepository;
+import com.trimly.repository.WhatsAppOutboxRepository.Claimed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives WhatsAppDispatcher against a local stub of the Graph API
+ * (JDK HttpServer) with the outbox mocked out.
+ */
+class WhatsAppDispatcherTest {
+
+    private static final long BACKOFF_BASE_MS = 2000;
+
+    private record Reply(int status, String body) {}
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ConcurrentLinkedQueue<Reply>    replies  = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<JsonNode> requests = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String>   auths    = new ConcurrentLinkedQueue<>();
+
+    private HttpServer server;
+    private WhatsAppOutboxRepository outbox;
+    private WhatsAppDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", ex -> {
+            requests.add(mapper.readTree(ex.getRequestBody().readAllBytes()));
+            auths.add(ex.getRequestHeaders().getFirst("Authorization"));
+            Reply r = replies.poll();
+            byte[] body = (r != null ? r.body() : "{}").getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(r != null ? r.status() : 500, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+
+        WhatsAppPayloadEncoder encoder = new WhatsAppPayloadEncoder(mapper);
+        ReflectionTestUtils.setField(encoder, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(encoder, "phoneNumberId", "1234");
+        ReflectionTestUtils.setField(encoder, "accessToken", "test-token");
+        ReflectionTestUtils.setField(encoder, "language", "en_IN");
+        encoder.init();
+
+        PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        outbox = mock(WhatsAppOutboxRepository.class);
+
+        dispatcher = new WhatsAppDispatcher(outbox, txManager, encoder, new SimpleMeterRegistry(), WebClient.create());
+        Map.<String, Object>ofEntries(
+            Map.entry("enabled", true),
+            Map.entry("batchSize", 100),
+            Map.entry("concurrency", 4),
+            Map.entry("leaseSeconds", 120L),
+            Map.entry("sendTimeoutMs", 2000L),
+            Map.entry("maxAttempts", 3),
+            Map.entry("backoffBaseMs", BACKOFF_BASE_MS),
+            Map.entry("backoffMaxMs", 3_600_000L),
+            Map.entry("minConcurrency", 1),
+            Map.entry("maxConcurrency", 32),
+            Map.entry("probeEvery", 200),
+            Map.entry("circuitWindow", 50),
+            Map.entry("circuitMinCalls", 10),
+            Map.entry("circuitFailureRate", 0.5),
+            Map.entry("circuitOpenSeconds", 30L),
+            Map.entry("circuitTrialCalls", 3)
+        ).forEach((k, v) -> ReflectionTestUtils.setField(dispatcher, k, v));
+        dispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void acceptedSendIsMarkedSentWithItsMessageId() {
+        claims(message(0));
+        replies.add(new Reply(200, "{\"messages\":[{\"id\":\"wamid.OK\"}]}"));
+
+        dispatcher.dispatch();
+
+        verify(outbox).markSent(eq(List.of(7L)), eq(List.of("wamid.OK")), any());
+        verify(outbox).markFailed(List.of(), List.of(), List.of());
+
+        JsonNode sent = requests.poll();
+        assertThat(sent.path("to").asText()).isEqualTo("919876543210");
+        assertThat(sent.path("template").path("name").asText()).isEqualTo("trimly_booking_confirmed");
+        assertThat(auths.poll()).isEqualTo("Bearer test-token");
+    }
+
+    @Test
+    void rateLimitedSendIsRetriedWithBackoff() {
+        claims(message(0));
+        replies.add(new Reply(429, "{\"error\":{\"code\":130429}}"));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        LocalDateTime next = failedOnce(true);
+        // Attempt 1: half to all of the base delay
+        assertThat(next).isAfterOrEqualTo(before.plus(Duration.ofMillis(BACKOFF_BASE_MS / 2)));
+        assertThat(next).isBefore(LocalDateTime.now().plus(Duration.ofMillis(BACKOFF_BASE_MS + 1)));
+    }
+
+    @Test
+    void serverErrorIsRetriedAndTheRetrySucceeds() {
+        claims(message(0));
+        replies.add(new Reply(503, "{}"));
+        dispatcher.dispatch();
+        LocalDateTime next = failedOnce(true);
+        assertThat(next).isAfter(LocalDateTime.now());
+
+        // Next poll picks the row up again, one attempt recorded
+        claims(message(1));
+        replies.add(new Reply(200, "{\"messages\":[{\"id\":\"wamid.RETRIED\"}]}"));
+        dispatcher.dispatch();
+
+        verify(outbox).markSent(eq(List.of(7L)), eq(List.of("wamid.RETRIED")), any());
+        assertThat(requests).hasSize(2);
+    }
+
+    @Test
+    void clientErrorIsDeadLetteredWithoutRetry() {
+        claims(message(0));
+        replies.add(new Reply(400, "{\"error\":{\"message\":\"Invalid parameter\"}}"));
+
+        dispatcher.dispatch();
+
+        assertThat(failedOnce(false)).isNull();
+        verify(outbox, never()).markSent(eq(List.of(7L)), anyList(), any());
+    }
+
+    @Test
+    void serverErrorOnTheLastAttemptIsDeadLettered() {
+        claims(message(2));   // maxAttempts = 3
+        replies.add(new Reply(500, "{}"));
+
+        dispatcher.dispatch();
+
+        assertThat(failedOnce(false)).isNull();
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    private static Claimed message(int attempts) {
+        return new Claimed(7L, "+91 98765 43210", "trimly_booking_confirmed",
+            "[\"Ravi\",\"Sharp Cuts\",\"Haircut\",\"12 Oct 2026\",\"10:30 AM\"]",
+            attempts, LocalDateTime.now().minusSeconds(5));
+    }
+
+    /** One claim returns {@code m}, the next nothing */
+    private void claims(Claimed m) {
+        when(outbox.claim(any(), any(), anyInt())).thenReturn(List.of(m), List.of());
+    }
+
+    /** Asserts the row was marked failed once and returns its next attempt time (null = dead) */
+    @SuppressWarnings("unchecked")
+    private LocalDateTime failedOnce(boolean retryExpected) {
+        ArgumentCaptor<List<Long>>          ids    = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<LocalDateTime>> next   = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<String>>        errors = ArgumentCaptor.forClass(List.class);
+        verify(outbox).markFailed(ids.capture(), next.capture(), errors.capture());
+        assertThat(ids.getValue()).containsExactly(7L);
+        assertThat(errors.getValue()).hasSize(1);
+        LocalDateTime at = next.getValue().get(0);
+        assertThat(at != null).as("retry scheduled").isEqualTo(retryExpected);
+        return at;
+    }
+}
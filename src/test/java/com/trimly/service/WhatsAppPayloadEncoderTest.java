@@ -0,0 +1,172 @@
+package com.trimly.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trimly.repository.WhatsAppOutboxRepository;
+import com.trimly.repository.WhatsAppOutboxRepository.Claimed;
+import com.trimly.repository.WhatsAppOutboxRepository.NewMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Queues one message per template through WhatsAppService, then encodes each
+ * stored outbox row and checks the Graph API body it becomes.
+ */
+class WhatsAppPayloadEncoderTest {
+
+    /** Template name → the parameters queued for it below, in order */
+    private static final Map<String, List<String>> EXPECTED = Map.ofEntries(
+        Map.entry("trimly_booking_request",       List.of("Ravi", "Haircut", "12 Oct 2026", "10:30 AM", "TRM-1001")),
+        Map.entry("trimly_booking_confirmed",     List.of("Ravi", "Sharp Cuts", "Haircut", "12 Oct 2026", "10:30 AM")),
+        Map.entry("trimly_booking_rejected",      List.of("Ravi", "Sharp Cuts", "Haircut", "No reason provided")),
+        Map.entry("trimly_booking_cancelled",     List.of("Ravi", "Sharp Cuts", "12 Oct 2026", "10:30 AM")),
+        Map.entry("trimly_booking_completed",     List.of("Ravi", "Sharp Cuts", "₹250")),
+        Map.entry("trimly_reschedule_request",    List.of("Ravi", "Sharp Cuts", "10:30 AM", "13 Oct 2026", "11:00 AM", "Running late \"today\"")),
+        Map.entry("trimly_reschedule_response",   List.of("Sharp Cuts", "Ravi", "11:00 AM", "ACCEPTED")),
+        Map.entry("trimly_waitlist_promoted",     List.of("Ravi", "Sharp Cuts", "12 Oct 2026", "10:30 AM")),
+        Map.entry("trimly_otp_login",             List.of("482913", "5")),
+        Map.entry("trimly_password_reset",        List.of("Amit", "https://trimly.in/reset?t=abc&x=1", "1")),
+        Map.entry("trimly_appointment_reminder",  List.of("Ravi", "Sharp Cuts", "Haircut, Beard Trim", "10:30 AM")),
+        Map.entry("trimly_daily_digest",          List.of("Sharp Cuts", "13 Oct 2026", "2", "9:30 AM Ravi, 10:00 AM Amit"))
+    );
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final WhatsAppOutboxRepository outbox = mock(WhatsAppOutboxRepository.class);
+    private final WhatsAppService wa = new WhatsAppService(outbox, mapper);
+    private final WhatsAppPayloadEncoder encoder = new WhatsAppPayloadEncoder(mapper);
+
+    @BeforeEach
+    void setUp() {
+        Map.ofEntries(
+            Map.entry("tplBookingRequest",      "trimly_booking_request"),
+            Map.entry("tplBookingConfirmed",    "trimly_booking_confirmed"),
+            Map.entry("tplBookingRejected",     "trimly_booking_rejected"),
+            Map.entry("tplBookingCancelled",    "trimly_booking_cancelled"),
+            Map.entry("tplBookingCompleted",    "trimly_booking_completed"),
+            Map.entry("tplRescheduleRequest",   "trimly_reschedule_request"),
+            Map.entry("tplRescheduleResponse",  "trimly_reschedule_response"),
+            Map.entry("tplOtp",                 "trimly_otp_login"),
+            Map.entry("tplPasswordReset",       "trimly_password_reset"),
+            Map.entry("tplWaitlistPromoted",    "trimly_waitlist_promoted"),
+            Map.entry("tplAppointmentReminder", "trimly_appointment_reminder"),
+            Map.entry("tplDailyDigest",         "trimly_daily_digest")
+        ).forEach((k, v) -> ReflectionTestUtils.setField(wa, k, v));
+
+        ReflectionTestUtils.setField(encoder, "baseUrl", "https://graph.facebook.com/v19.0");
+        ReflectionTestUtils.setField(encoder, "phoneNumberId", "1234");
+        ReflectionTestUtils.setField(encoder, "accessToken", "test-token");
+        ReflectionTestUtils.setField(encoder, "language", "en_IN");
+        encoder.init();
+    }
+
+    @Test
+    void everyTemplateEncodesToAGraphApiTemplateBody() throws IOException {
+        wa.sendBookingRequestToBarber(1L, "9876543210", "Ravi", "Haircut", "12 Oct 2026", "10:30 AM", "TRM-1001");
+        wa.sendBookingConfirmedToCustomer(1L, "9876543210", "Ravi", "Sharp Cuts", "Haircut", "12 Oct 2026", "10:30 AM");
+        wa.sendBookingRejectedToCustomer(1L, "9876543210", "Ravi", "Sharp Cuts", "Haircut", null);
+        wa.sendCancellationNotice(1L, "9876543210", "Ravi", "Sharp Cuts", "12 Oct 2026", "10:30 AM");
+        wa.sendBookingCompleted(1L, "9876543210", "Ravi", "Sharp Cuts", "₹250");
+        wa.sendRescheduleRequestToCustomer(1L, "9876543210", "Ravi", "Sharp Cuts", "10:30 AM", "13 Oct 2026",
+            "11:00 AM", "Running late \"today\"");
+        wa.sendRescheduleResponseToBarber(1L, "9876543210", "Sharp Cuts", "Ravi", "11:00 AM", "ACCEPTED");
+        wa.sendWaitlistPromoted(1L, "9876543210", "Ravi", "Sharp Cuts", "12 Oct 2026", "10:30 AM");
+        wa.sendOtp("9876543210", "482913", "5");
+        wa.sendPasswordReset("9876543210", "Amit", "https://trimly.in/reset?t=abc&x=1", "1");
+        wa.sendBatch(List.of(
+            wa.appointmentReminderMessage(1L, "9876543210", "Ravi", "Sharp Cuts", "Haircut, Beard Trim", "10:30 AM"),
+            wa.dailyDigestMessage("9876543210", "Sharp Cuts", "13 Oct 2026", "2", "9:30 AM Ravi, 10:00 AM Amit")));
+
+        List<NewMessage> queued = queued();
+        assertThat(queued).extracting(NewMessage::template)
+            .containsExactlyInAnyOrderElementsOf(EXPECTED.keySet());
+
+        for (NewMessage m : queued) {
+            JsonNode body = mapper.readTree(encoder.encode(claimed(m)));
+            assertShape(body, m.template(), EXPECTED.get(m.template()));
+        }
+    }
+
+    @Test
+    void phoneIsNormalisedToCountryCodePlusTenDigits() {
+        for (String phone : List.of("9876543210", "+91 98765 43210", "919876543210", "09876543210", "98765-43210"))
+            assertThat(WhatsAppPayloadEncoder.normalisePhone(phone)).as(phone).isEqualTo("919876543210");
+    }
+
+    @Test
+    void endpointAndAuthorizationAreBuiltFromConfig() {
+        assertThat(encoder.messagesUri()).hasToString("https://graph.facebook.com/v19.0/1234/messages");
+        assertThat(encoder.authorization()).isEqualTo("Bearer test-token");
+    }
+
+    @Test
+    void storedParamsThatAreNotAStringArrayAreRejected() {
+        assertThatThrownBy(() -> encoder.encode(claimed("{\"a\":1}"))).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> encoder.encode(claimed("[\"a\", 1]"))).isInstanceOf(IOException.class);
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────
+
+    private void assertShape(JsonNode body, String template, List<String> params) {
+        assertThat(fieldNames(body)).as(template)
+            .containsExactly("messaging_product", "to", "type", "template");
+        assertThat(body.path("messaging_product").asText()).isEqualTo("whatsapp");
+        assertThat(body.path("to").asText()).isEqualTo("919876543210");
+        assertThat(body.path("type").asText()).isEqualTo("template");
+
+        JsonNode tpl = body.path("template");
+        assertThat(fieldNames(tpl)).as(template).containsExactly("name", "language", "components");
+        assertThat(tpl.path("name").asText()).isEqualTo(template);
+        assertThat(tpl.path("language").path("code").asText()).isEqualTo("en_IN");
+
+        JsonNode components = tpl.path("components");
+        assertThat(components.size()).as(template).isEqualTo(1);
+        assertThat(components.path(0).path("type").asText()).isEqualTo("body");
+
+        JsonNode parameters = components.path(0).path("parameters");
+        assertThat(parameters.isArray()).isTrue();
+        List<String> texts = new ArrayList<>();
+        for (JsonNode p : parameters) {
+            assertThat(fieldNames(p)).as(template).containsExactly("type", "text");
+            assertThat(p.path("type").asText()).isEqualTo("text");
+            texts.add(p.path("text").asText());
+        }
+        assertThat(texts).as(template).isEqualTo(params);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NewMessage> queued() {
+        ArgumentCaptor<List<NewMessage>> rows = ArgumentCaptor.forClass(List.class);
+        verify(outbox, atLeastOnce()).insert(rows.capture(), any(LocalDateTime.class));
+        return rows.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        for (Iterator<String> it = node.fieldNames(); it.hasNext(); ) names.add(it.next());
+        return names;
+    }
+
+    private static Claimed claimed(NewMessage m) {
+        return new Claimed(1L, m.phone(), m.template(), m.paramsJson(), 0, LocalDateTime.now());
+    }
+
+    private static Claimed claimed(String paramsJson) {
+        return new Claimed(1L, "9876543210", "trimly_otp_login", paramsJson, 0, LocalDateTime.now());
+    }
+}